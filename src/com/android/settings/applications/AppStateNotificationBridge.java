@@ -24,8 +24,11 @@ import android.os.UserManager;
 import android.text.format.DateUtils;
 import android.util.ArrayMap;
 import android.util.Log;
+import android.util.SparseArray;
 import android.widget.CompoundButton;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.notification.NotificationBackend;
@@ -37,7 +40,6 @@ import com.android.settingslib.utils.StringUtil;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Connects the info provided by ApplicationsState and UsageStatsManager.
@@ -52,6 +54,10 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
     protected List<Integer> mUserIds;
     private NotificationBackend mBackend;
     private static final int DAYS_TO_CHECK = 7;
+    // Block states are shared by every instance of this screen, keyed by uid and package name.
+    // They are dropped when the app changes or its notifications are enabled or disabled.
+    private static final PackageStateCache sBannedCache = new PackageStateCache();
+    private static final PackageStateCache sBlockableCache = new PackageStateCache();
 
     public AppStateNotificationBridge(Context context, ApplicationsState appState,
             Callback callback, IUsageStatsManager usageStatsManager,
@@ -68,6 +74,23 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         }
     }
 
+    @Override
+    public void onPackageListChanged() {
+        clearBlockStates();
+        super.onPackageListChanged();
+    }
+
+    /** Drops the cached banned state of an app, after its notifications are enabled or disabled. */
+    public static void onNotificationsBannedChanged(int uid, String pkg) {
+        sBannedCache.remove(uid, pkg);
+    }
+
+    @VisibleForTesting
+    static void clearBlockStates() {
+        sBannedCache.clear();
+        sBlockableCache.clear();
+    }
+
     @Override
     protected void loadAllExtraInfo() {
         ArrayList<AppEntry> apps = mAppSession.getAllApps();
@@ -78,10 +101,12 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
             return;
         }
 
-        final Map<String, NotificationsSentState> map = getAggregatedUsageEvents();
+        final SparseArray<ArrayMap<String, NotificationsSentState>> userStats =
+                getAggregatedUsageEvents();
         for (AppEntry entry : apps) {
-            NotificationsSentState stats =
-                    map.get(getKey(UserHandle.getUserId(entry.info.uid), entry.info.packageName));
+            final ArrayMap<String, NotificationsSentState> map =
+                    userStats.get(UserHandle.getUserId(entry.info.uid));
+            NotificationsSentState stats = map != null ? map.get(entry.info.packageName) : null;
             if (stats == null) {
                 stats = new NotificationsSentState();
             }
@@ -93,6 +118,8 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
 
     @Override
     protected void updateExtraInfo(AppEntry entry, String pkg, int uid) {
+        sBannedCache.remove(entry.info.uid, entry.info.packageName);
+        sBlockableCache.remove(entry.info.uid, entry.info.packageName);
         NotificationsSentState stats = getAggregatedUsageEvents(
                 UserHandle.getUserId(entry.info.uid), entry.info.packageName);
         calculateAvgSentCounts(stats);
@@ -122,8 +149,20 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
 
     private void addBlockStatus(AppEntry entry, NotificationsSentState stats) {
         if (stats != null) {
-            stats.blocked = mBackend.getNotificationsBanned(entry.info.packageName, entry.info.uid);
-            stats.blockable = mBackend.enableSwitch(mContext, entry.info);
+            final int uid = entry.info.uid;
+            final String pkg = entry.info.packageName;
+            Boolean blocked = sBannedCache.get(uid, pkg);
+            if (blocked == null) {
+                blocked = mBackend.getNotificationsBanned(pkg, uid);
+                sBannedCache.put(uid, pkg, blocked);
+            }
+            Boolean blockable = sBlockableCache.get(uid, pkg);
+            if (blockable == null) {
+                blockable = mBackend.enableSwitch(mContext, entry.info);
+                sBlockableCache.put(uid, pkg, blockable);
+            }
+            stats.blocked = blocked;
+            stats.blockable = blockable;
         }
     }
 
@@ -136,8 +175,13 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         }
     }
 
-    protected Map<String, NotificationsSentState> getAggregatedUsageEvents() {
-        ArrayMap<String, NotificationsSentState> aggregatedStats = new ArrayMap<>();
+    /**
+     * Returns the notifications sent by each app in the last {@link #DAYS_TO_CHECK} days, keyed by
+     * user id and then by package name. Apps which sent no notifications are not included.
+     */
+    protected SparseArray<ArrayMap<String, NotificationsSentState>> getAggregatedUsageEvents() {
+        final SparseArray<ArrayMap<String, NotificationsSentState>> aggregatedStats =
+                new SparseArray<>();
 
         long now = System.currentTimeMillis();
         long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
@@ -150,23 +194,29 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
                 e.printStackTrace();
             }
             if (events != null) {
+                ArrayMap<String, NotificationsSentState> userStats = null;
                 UsageEvents.Event event = new UsageEvents.Event();
                 while (events.hasNextEvent()) {
                     events.getNextEvent(event);
-                    NotificationsSentState stats =
-                            aggregatedStats.get(getKey(userId, event.getPackageName()));
+                    if (event.getEventType() != UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
+                        continue;
+                    }
+                    if (userStats == null) {
+                        userStats = new ArrayMap<>();
+                        aggregatedStats.put(userId, userStats);
+                    }
+                    // Package names of events come from the string pool of UsageEvents, so
+                    // looking them up is cheap.
+                    final String pkg = event.getPackageName();
+                    NotificationsSentState stats = userStats.get(pkg);
                     if (stats == null) {
                         stats = new NotificationsSentState();
-                        aggregatedStats.put(getKey(userId, event.getPackageName()), stats);
+                        userStats.put(pkg, stats);
                     }
-
-                    if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
-                        if (event.getTimeStamp() > stats.lastSent) {
-                            stats.lastSent = event.getTimeStamp();
-                        }
-                        stats.sentCount++;
+                    if (event.getTimeStamp() > stats.lastSent) {
+                        stats.lastSent = event.getTimeStamp();
                     }
-
+                    stats.sentCount++;
                 }
             }
         }
@@ -215,10 +265,6 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         return null;
     }
 
-    protected static String getKey(int userId, String pkg) {
-        return userId + "|" + pkg;
-    }
-
     public CompoundButton.OnCheckedChangeListener getSwitchOnCheckedListener(final AppEntry entry) {
         if (entry == null) {
             return null;
@@ -230,6 +276,7 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
                     mBackend.setNotificationsEnabledForPackage(
                             entry.info.packageName, entry.info.uid, isChecked);
                     stats.blocked = !isChecked;
+                    sBannedCache.put(entry.info.uid, entry.info.packageName, stats.blocked);
                 }
             }
         };
@@ -329,6 +376,36 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         return !stats.blocked;
     }
 
+    /** A per-app boolean state, keyed by uid and then by package name. */
+    private static final class PackageStateCache {
+        private final SparseArray<ArrayMap<String, Boolean>> mStates = new SparseArray<>();
+
+        synchronized Boolean get(int uid, String pkg) {
+            final ArrayMap<String, Boolean> states = mStates.get(uid);
+            return states != null ? states.get(pkg) : null;
+        }
+
+        synchronized void put(int uid, String pkg, boolean state) {
+            ArrayMap<String, Boolean> states = mStates.get(uid);
+            if (states == null) {
+                states = new ArrayMap<>();
+                mStates.put(uid, states);
+            }
+            states.put(pkg, state);
+        }
+
+        synchronized void remove(int uid, String pkg) {
+            final ArrayMap<String, Boolean> states = mStates.get(uid);
+            if (states != null) {
+                states.remove(pkg);
+            }
+        }
+
+        synchronized void clear() {
+            mStates.clear();
+        }
+    }
+
     /**
      * NotificationsSentState contains how often an app sends notifications and how recently it sent
      * one.
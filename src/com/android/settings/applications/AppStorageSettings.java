@@ -53,6 +53,7 @@ import androidx.preference.PreferenceCategory;
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.deviceinfo.StorageWizardMoveConfirm;
+import com.android.settings.deviceinfo.storage.PackageStorageStatsCache;
 import com.android.settingslib.RestrictedLockUtils;
 import com.android.settingslib.applications.AppUtils;
 import com.android.settingslib.applications.ApplicationsState.Callbacks;
@@ -169,6 +170,11 @@ public class AppStorageSettings extends AppInfoWithHeader
                 .setComputingString(R.string.computing_size)
                 .setErrorString(R.string.invalid_size_value)
                 .build();
+        if (mPackageInfo != null && mPackageInfo.applicationInfo != null) {
+            mSizeController.setCachedResult(FetchPackageStorageAsyncLoader.getCachedStats(
+                    getContext(), mPackageInfo.applicationInfo, mPackageInfo.lastUpdateTime,
+                    UserHandle.of(mUserId)));
+        }
         mButtonsPref = ((ActionButtonsPreference) findPreference(KEY_HEADER_BUTTONS));
         mStorageUsed = findPreference(KEY_STORAGE_USED);
         mChangeStorageButton = (Button) ((LayoutPreference) findPreference(KEY_CHANGE_STORAGE))
@@ -552,6 +558,13 @@ public class AppStorageSettings extends AppInfoWithHeader
         getLoaderManager().restartLoader(1, Bundle.EMPTY, this);
     }
 
+    private void invalidateCachedStats() {
+        final PackageStorageStatsCache cache =
+                new PackageStorageStatsCache(getContext(), mUserId);
+        cache.invalidate(mPackageName);
+        cache.apply();
+    }
+
     @VisibleForTesting
     void updateUiWithSize(AppStorageStats result) {
         if (mCacheCleared) {
@@ -594,11 +607,13 @@ public class AppStorageSettings extends AppInfoWithHeader
             }
             switch (msg.what) {
                 case MSG_CLEAR_USER_DATA:
+                    invalidateCachedStats();
                     mDataCleared = true;
                     mCacheCleared = true;
                     processClearMsg(msg);
                     break;
                 case MSG_CLEAR_CACHE:
+                    invalidateCachedStats();
                     mCacheCleared = true;
                     // Refresh size info
                     updateSize();
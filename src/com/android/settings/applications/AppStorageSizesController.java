@@ -39,6 +39,8 @@ public class AppStorageSizesController {
 
     @Nullable
     private StorageStatsSource.AppStorageStats mLastResult;
+    @Nullable
+    private StorageStatsSource.AppStorageStats mCachedResult;
     private boolean mLastResultFailed;
     private boolean mCachedCleared;
     private boolean mDataCleared;
@@ -62,7 +64,10 @@ public class AppStorageSizesController {
      * @param context Context to use to fetch strings
      */
     public void updateUi(Context context) {
-        if (mLastResult == null) {
+        // Shows the cached sizes while computing.
+        final StorageStatsSource.AppStorageStats result =
+                mLastResult != null || mLastResultFailed ? mLastResult : mCachedResult;
+        if (result == null) {
             int errorRes = mLastResultFailed ? mError : mComputing;
 
             mAppSize.setSummary(errorRes);
@@ -70,9 +75,9 @@ public class AppStorageSizesController {
             mCacheSize.setSummary(errorRes);
             mTotalSize.setSummary(errorRes);
         } else {
-            long codeSize = mLastResult.getCodeBytes();
+            long codeSize = result.getCodeBytes();
             long dataSize =
-                    mDataCleared ? 0 : mLastResult.getDataBytes() - mLastResult.getCacheBytes();
+                    mDataCleared ? 0 : result.getDataBytes() - result.getCacheBytes();
             if (mLastCodeSize != codeSize) {
                 mLastCodeSize = codeSize;
                 mAppSize.setSummary(getSizeStr(context, codeSize));
@@ -81,7 +86,7 @@ public class AppStorageSizesController {
                 mLastDataSize = dataSize;
                 mDataSize.setSummary(getSizeStr(context, dataSize));
             }
-            long cacheSize = (mDataCleared || mCachedCleared) ? 0 : mLastResult.getCacheBytes();
+            long cacheSize = (mDataCleared || mCachedCleared) ? 0 : result.getCacheBytes();
             if (mLastCacheSize != cacheSize) {
                 mLastCacheSize = cacheSize;
                 mCacheSize.setSummary(getSizeStr(context, cacheSize));
@@ -104,6 +109,14 @@ public class AppStorageSizesController {
         mLastResultFailed = result == null;
     }
 
+    /**
+     * Sets a result loaded from the storage stats cache, shown instead of the computing string
+     * until {@link #setResult} is called.
+     */
+    public void setCachedResult(@Nullable StorageStatsSource.AppStorageStats result) {
+        mCachedResult = result;
+    }
+
     /**
      * Sets if we have cleared the cache and should zero the cache bytes.
      * When the cache is cleared, the cache directories are recreated. These directories have
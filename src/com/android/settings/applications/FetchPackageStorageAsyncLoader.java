@@ -23,7 +23,10 @@ import android.content.pm.PackageManager.NameNotFoundException;
 import android.os.UserHandle;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+
 import com.android.internal.util.Preconditions;
+import com.android.settings.deviceinfo.storage.PackageStorageStatsCache;
 import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.applications.StorageStatsSource.AppStorageStats;
 import com.android.settingslib.utils.AsyncLoaderCompat;
@@ -52,12 +55,32 @@ public class FetchPackageStorageAsyncLoader extends AsyncLoaderCompat<AppStorage
         AppStorageStats result = null;
         try {
             result = mSource.getStatsForPackage(mInfo.volumeUuid, mInfo.packageName, mUser);
+            // Always loads the stats of a single package, but keeps them for the storage screen.
+            final long lastUpdateTime = getContext().getPackageManager()
+                    .getPackageInfoAsUser(mInfo.packageName, 0, mUser.getIdentifier())
+                    .lastUpdateTime;
+            final PackageStorageStatsCache cache =
+                    new PackageStorageStatsCache(getContext(), mUser.getIdentifier());
+            cache.put(mInfo.volumeUuid, mInfo.packageName, lastUpdateTime, result,
+                    PackageStorageStatsCache.UNKNOWN_CACHE_QUOTA);
+            cache.apply();
         } catch (NameNotFoundException | IOException e) {
             Log.w(TAG, "Package may have been removed during query, failing gracefully", e);
         }
         return result;
     }
 
+    /**
+     * Returns the cached stats of the package to show until the load is finished, or null if
+     * they are not cached.
+     */
+    @Nullable
+    public static AppStorageStats getCachedStats(Context context, ApplicationInfo info,
+            long lastUpdateTime, UserHandle user) {
+        return new PackageStorageStatsCache(context, user.getIdentifier())
+                .get(info.volumeUuid, info.packageName, lastUpdateTime);
+    }
+
     @Override
     protected void onDiscardResult(AppStorageStats result) {
     }
@@ -25,6 +25,7 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.net.Uri;
 import android.os.AsyncTask;
 import android.text.TextUtils;
 import android.util.ArraySet;
@@ -111,7 +112,7 @@ public class CategoryMixin implements LifecycleObserver {
      * Updates dashboard categories.
      */
     public void updateCategories() {
-        updateCategories(false /* fromBroadcast */);
+        updateCategories(null /* changedPackage */);
     }
 
     void addToDenylist(ComponentName component) {
@@ -127,13 +128,17 @@ public class CategoryMixin implements LifecycleObserver {
         mCategoryListeners.forEach(listener -> listener.onCategoriesChanged(categories));
     }
 
-    private void updateCategories(boolean fromBroadcast) {
+    /**
+     * @param changedPackage the package from a package broadcast, or null if the update is not
+     *                       triggered by a broadcast.
+     */
+    private void updateCategories(@Nullable String changedPackage) {
         // Only allow at most 2 tasks existing at the same time since when the first one is
         // executing, there may be new data from the second update request.
         // Ignore the third update request because the second task is still waiting for the first
         // task to complete in a serial thread, which will get the latest data.
         if (mCategoriesUpdateTaskCount < 2) {
-            new CategoriesUpdateTask().execute(fromBroadcast);
+            new CategoriesUpdateTask(changedPackage).execute();
         }
     }
 
@@ -156,22 +161,32 @@ public class CategoryMixin implements LifecycleObserver {
         void onCategoriesChanged(@Nullable Set<String> categories);
     }
 
-    private class CategoriesUpdateTask extends AsyncTask<Boolean, Void, Set<String>> {
+    private class CategoriesUpdateTask extends AsyncTask<Void, Void, Set<String>> {
 
         private final CategoryManager mCategoryManager;
+        private final String mChangedPackage;
         private Map<ComponentName, Tile> mPreviousTileMap;
 
-        CategoriesUpdateTask() {
+        CategoriesUpdateTask(String changedPackage) {
             mCategoriesUpdateTaskCount++;
             mCategoryManager = CategoryManager.get(mContext);
+            mChangedPackage = changedPackage;
         }
 
         @Override
-        protected Set<String> doInBackground(Boolean... params) {
+        protected Set<String> doInBackground(Void... params) {
+            final boolean fromBroadcast = mChangedPackage != null;
             mPreviousTileMap = mCategoryManager.getTileByComponentMap();
-            mCategoryManager.reloadAllCategories(mContext);
+            if (!TextUtils.isEmpty(mChangedPackage)) {
+                if (!mCategoryManager.reloadCategoriesForPackage(mContext, mChangedPackage)) {
+                    // The package has nothing to do with injected tiles.
+                    return new ArraySet<>();
+                }
+            } else {
+                mCategoryManager.reloadAllCategories(mContext);
+            }
             mCategoryManager.updateCategoryFromDenylist(sTileDenylist);
-            return getChangedCategories(params[0]);
+            return getChangedCategories(fromBroadcast);
         }
 
         @Override
@@ -226,7 +241,11 @@ public class CategoryMixin implements LifecycleObserver {
     private class PackageReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
-            updateCategories(true /* fromBroadcast */);
+            final Uri data = intent.getData();
+            final String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            // An empty package name still marks the update as broadcast-triggered, but
+            // reloads all categories.
+            updateCategories(packageName != null ? packageName : "");
         }
     }
 }
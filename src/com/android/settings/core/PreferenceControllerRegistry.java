@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of {@link BasePreferenceController} constructors, keyed by controller class name.
+ * <p/>
+ * Controllers declared in preference xml are instantiated by class name. Rather than running
+ * {@link Class#forName} and constructor lookup on every fragment attach or slice bind, each class
+ * name is resolved once per process and the resulting constructor is kept here. Entries can also
+ * be registered up front with {@link #register}, in which case reflection is never used for them.
+ */
+public class PreferenceControllerRegistry {
+
+    /**
+     * Creates a controller for the given context and preference key.
+     */
+    public interface ControllerConstructor {
+        /**
+         * @param context the context to create the controller with
+         * @param key     attribute android:key of the {@link androidx.preference.Preference},
+         *                may be null when {@link #requiresKey()} is false
+         */
+        BasePreferenceController newInstance(Context context, String key);
+
+        /**
+         * @return whether the controller can only be created with a preference key
+         */
+        boolean requiresKey();
+    }
+
+    private static final Map<String, ControllerConstructor> sConstructors =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Registers a direct constructor for {@param controllerName}, bypassing reflection.
+     */
+    public static void register(String controllerName, ControllerConstructor constructor) {
+        sConstructors.put(controllerName, constructor);
+    }
+
+    /**
+     * Instantiate a controller by class name. A Context-only constructor is preferred; the
+     * (Context, String) constructor is used when that is the only one available.
+     *
+     * @param context        the context to create the controller with
+     * @param controllerName class name of the {@link BasePreferenceController}
+     * @param key            attribute android:key of the {@link androidx.preference.Preference}
+     * @param isWorkProfile  is this controller only for work profile user?
+     * @throws IllegalStateException if the controller cannot be instantiated, or it requires a
+     *                               key and {@param key} is empty
+     */
+    public static BasePreferenceController createInstance(Context context, String controllerName,
+            String key, boolean isWorkProfile) {
+        final ControllerConstructor constructor = getConstructor(controllerName);
+        if (constructor.requiresKey() && TextUtils.isEmpty(key)) {
+            throw new IllegalStateException(
+                    "Controller requires key but it's not defined: " + controllerName);
+        }
+        final BasePreferenceController controller = constructor.newInstance(context, key);
+        if (constructor.requiresKey()) {
+            // Matches the reflective path: only keyed controllers honor android:forWork.
+            controller.setForWork(isWorkProfile);
+        }
+        return controller;
+    }
+
+    /**
+     * @return the {@link ControllerConstructor} for {@param controllerName}, resolving and
+     * caching it on first use.
+     * @throws IllegalStateException if no usable constructor exists
+     */
+    static ControllerConstructor getConstructor(String controllerName) {
+        ControllerConstructor constructor = sConstructors.get(controllerName);
+        if (constructor == null) {
+            constructor = resolve(controllerName);
+            final ControllerConstructor existing =
+                    sConstructors.putIfAbsent(controllerName, constructor);
+            if (existing != null) {
+                constructor = existing;
+            }
+        }
+        return constructor;
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        sConstructors.clear();
+    }
+
+    @VisibleForTesting
+    static boolean isRegistered(String controllerName) {
+        return sConstructors.containsKey(controllerName);
+    }
+
+    private static ControllerConstructor resolve(String controllerName) {
+        final Class<?> clazz;
+        try {
+            clazz = Class.forName(controllerName);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(
+                    "Invalid preference controller: " + controllerName, e);
+        }
+        if (!BasePreferenceController.class.isAssignableFrom(clazz)) {
+            throw new IllegalStateException(
+                    "Invalid preference controller: " + controllerName);
+        }
+        try {
+            return new ReflectiveConstructor(controllerName,
+                    clazz.getConstructor(Context.class), false /* requiresKey */);
+        } catch (NoSuchMethodException e) {
+            // Fall through to the keyed constructor.
+        }
+        try {
+            return new ReflectiveConstructor(controllerName,
+                    clazz.getConstructor(Context.class, String.class), true /* requiresKey */);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(
+                    "Invalid preference controller: " + controllerName, e);
+        }
+    }
+
+    private static class ReflectiveConstructor implements ControllerConstructor {
+
+        private final String mControllerName;
+        private final Constructor<?> mConstructor;
+        private final boolean mRequiresKey;
+
+        ReflectiveConstructor(String controllerName, Constructor<?> constructor,
+                boolean requiresKey) {
+            mControllerName = controllerName;
+            mConstructor = constructor;
+            mRequiresKey = requiresKey;
+        }
+
+        @Override
+        public BasePreferenceController newInstance(Context context, String key) {
+            final Object[] params = mRequiresKey
+                    ? new Object[]{context, key}
+                    : new Object[]{context};
+            try {
+                return (BasePreferenceController) mConstructor.newInstance(params);
+            } catch (InstantiationException | IllegalArgumentException
+                    | InvocationTargetException | IllegalAccessException e) {
+                throw new IllegalStateException(
+                        "Invalid preference controller: " + mControllerName, e);
+            }
+        }
+
+        @Override
+        public boolean requiresKey() {
+            return mRequiresKey;
+        }
+    }
+}
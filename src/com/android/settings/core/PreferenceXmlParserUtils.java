@@ -20,12 +20,15 @@ import android.annotation.NonNull;
 import android.annotation.Nullable;
 import android.annotation.XmlRes;
 import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.util.Xml;
 
@@ -42,6 +45,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -172,6 +176,9 @@ public class PreferenceXmlParserUtils {
 
     /**
      * Extracts metadata from preference xml and put them into a {@link Bundle}.
+     * <p/>
+     * The xml is only parsed the first time a given {@param xmlResId} is requested for the
+     * current configuration; later calls are served from {@link MetadataCache}.
      *
      * @param xmlResId xml res id of a preference screen
      * @param flags    Should be one or more of {@link MetadataFlag}.
@@ -184,6 +191,23 @@ public class PreferenceXmlParserUtils {
             Log.d(TAG, xmlResId + " is invalid.");
             return metadata;
         }
+        final boolean hasPrefScreenFlag = hasFlag(flags, MetadataFlag.FLAG_INCLUDE_PREF_SCREEN);
+        for (PreferenceNode node : MetadataCache.getNodes(context, xmlResId)) {
+            if (!hasPrefScreenFlag && TextUtils.equals(PREF_SCREEN_TAG, node.mType)) {
+                continue;
+            }
+            metadata.add(node.toBundle(flags, hasPrefScreenFlag));
+        }
+        return metadata;
+    }
+
+    /**
+     * Parses every supported preference node in {@param xmlResId}, reading all attributes that
+     * {@link #extractMetadata(Context, int, int)} may be asked for.
+     */
+    private static List<PreferenceNode> parseNodes(Context context, @XmlRes int xmlResId)
+            throws IOException, XmlPullParserException {
+        final List<PreferenceNode> nodes = new ArrayList<>();
         final XmlResourceParser parser = context.getResources().getXml(xmlResId);
 
         int type;
@@ -192,78 +216,167 @@ public class PreferenceXmlParserUtils {
             // Parse next until start tag is found
         }
         final int outerDepth = parser.getDepth();
-        final boolean hasPrefScreenFlag = hasFlag(flags, MetadataFlag.FLAG_INCLUDE_PREF_SCREEN);
         do {
             if (type != XmlPullParser.START_TAG) {
                 continue;
             }
             final String nodeName = parser.getName();
-            if (!hasPrefScreenFlag && TextUtils.equals(PREF_SCREEN_TAG, nodeName)) {
-                continue;
-            }
             if (!SUPPORTED_PREF_TYPES.contains(nodeName) && !nodeName.endsWith("Preference")) {
                 continue;
             }
-            final Bundle preferenceMetadata = new Bundle();
             final AttributeSet attrs = Xml.asAttributeSet(parser);
-
             final TypedArray preferenceAttributes = context.obtainStyledAttributes(attrs,
                     R.styleable.Preference);
-            TypedArray preferenceScreenAttributes = null;
-            if (hasPrefScreenFlag) {
-                preferenceScreenAttributes = context.obtainStyledAttributes(
-                        attrs, R.styleable.PreferenceScreen);
-            }
+            final TypedArray preferenceScreenAttributes = context.obtainStyledAttributes(
+                    attrs, R.styleable.PreferenceScreen);
+
+            final PreferenceNode node = new PreferenceNode();
+            node.mType = nodeName;
+            node.mKey = getKey(preferenceAttributes);
+            node.mController = getController(preferenceAttributes);
+            node.mTitle = getTitle(preferenceAttributes);
+            node.mSummary = getSummary(preferenceAttributes);
+            node.mIcon = getIcon(preferenceAttributes);
+            node.mKeywords = getKeywords(preferenceAttributes);
+            node.mSearchable = isSearchable(preferenceAttributes);
+            node.mAppended = isAppended(preferenceScreenAttributes);
+            node.mUnavailableSliceSubtitle = getUnavailableSliceSubtitle(preferenceAttributes);
+            node.mForWork = isForWork(preferenceAttributes);
+            node.mHighlightableMenuKey = getHighlightableMenuKey(preferenceAttributes);
+            nodes.add(node);
 
+            preferenceAttributes.recycle();
+            preferenceScreenAttributes.recycle();
+        } while ((type = parser.next()) != XmlPullParser.END_DOCUMENT
+                && (type != XmlPullParser.END_TAG || parser.getDepth() > outerDepth));
+        parser.close();
+        return nodes;
+    }
+
+    /**
+     * Metadata of a single preference node, holding every attribute regardless of the flags the
+     * caller asked for.
+     */
+    private static class PreferenceNode {
+        String mType;
+        String mKey;
+        String mController;
+        String mTitle;
+        String mSummary;
+        int mIcon;
+        String mKeywords;
+        boolean mSearchable;
+        boolean mAppended;
+        String mUnavailableSliceSubtitle;
+        boolean mForWork;
+        String mHighlightableMenuKey;
+
+        Bundle toBundle(int flags, boolean hasPrefScreenFlag) {
+            final Bundle preferenceMetadata = new Bundle();
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_TYPE)) {
-                preferenceMetadata.putString(METADATA_PREF_TYPE, nodeName);
+                preferenceMetadata.putString(METADATA_PREF_TYPE, mType);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_KEY)) {
-                preferenceMetadata.putString(METADATA_KEY, getKey(preferenceAttributes));
+                preferenceMetadata.putString(METADATA_KEY, mKey);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_CONTROLLER)) {
-                preferenceMetadata.putString(METADATA_CONTROLLER,
-                        getController(preferenceAttributes));
+                preferenceMetadata.putString(METADATA_CONTROLLER, mController);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_TITLE)) {
-                preferenceMetadata.putString(METADATA_TITLE, getTitle(preferenceAttributes));
+                preferenceMetadata.putString(METADATA_TITLE, mTitle);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_SUMMARY)) {
-                preferenceMetadata.putString(METADATA_SUMMARY, getSummary(preferenceAttributes));
+                preferenceMetadata.putString(METADATA_SUMMARY, mSummary);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_ICON)) {
-                preferenceMetadata.putInt(METADATA_ICON, getIcon(preferenceAttributes));
+                preferenceMetadata.putInt(METADATA_ICON, mIcon);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_KEYWORDS)) {
-                preferenceMetadata.putString(METADATA_KEYWORDS, getKeywords(preferenceAttributes));
+                preferenceMetadata.putString(METADATA_KEYWORDS, mKeywords);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_SEARCHABLE)) {
-                preferenceMetadata.putBoolean(METADATA_SEARCHABLE,
-                        isSearchable(preferenceAttributes));
+                preferenceMetadata.putBoolean(METADATA_SEARCHABLE, mSearchable);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_APPEND) && hasPrefScreenFlag) {
-                preferenceMetadata.putBoolean(METADATA_APPEND,
-                        isAppended(preferenceScreenAttributes));
+                preferenceMetadata.putBoolean(METADATA_APPEND, mAppended);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE)) {
                 preferenceMetadata.putString(METADATA_UNAVAILABLE_SLICE_SUBTITLE,
-                        getUnavailableSliceSubtitle(preferenceAttributes));
+                        mUnavailableSliceSubtitle);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_FOR_WORK)) {
-                preferenceMetadata.putBoolean(METADATA_FOR_WORK,
-                        isForWork(preferenceAttributes));
+                preferenceMetadata.putBoolean(METADATA_FOR_WORK, mForWork);
             }
             if (hasFlag(flags, MetadataFlag.FLAG_NEED_HIGHLIGHTABLE_MENU_KEY)) {
                 preferenceMetadata.putString(METADATA_HIGHLIGHTABLE_MENU_KEY,
-                        getHighlightableMenuKey(preferenceAttributes));
+                        mHighlightableMenuKey);
             }
-            metadata.add(preferenceMetadata);
+            return preferenceMetadata;
+        }
+    }
 
-            preferenceAttributes.recycle();
-        } while ((type = parser.next()) != XmlPullParser.END_DOCUMENT
-                && (type != XmlPullParser.END_TAG || parser.getDepth() > outerDepth));
-        parser.close();
-        return metadata;
+    /**
+     * Process-wide cache of parsed preference xml, shared by fragments, slice indexing and
+     * search indexing. Entries are dropped when a configuration change that can alter resolved
+     * xml or string values (locale, mcc/mnc, layout direction, ui mode, screen size) is seen.
+     */
+    @VisibleForTesting
+    static class MetadataCache {
+
+        private static final int CONFIG_CHANGES_MASK = ActivityInfo.CONFIG_LOCALE
+                | ActivityInfo.CONFIG_MCC
+                | ActivityInfo.CONFIG_MNC
+                | ActivityInfo.CONFIG_LAYOUT_DIRECTION
+                | ActivityInfo.CONFIG_UI_MODE
+                | ActivityInfo.CONFIG_SMALLEST_SCREEN_SIZE;
+
+        private static final Object sLock = new Object();
+        private static final SparseArray<List<PreferenceNode>> sNodes = new SparseArray<>();
+        private static Configuration sConfiguration;
+
+        static List<PreferenceNode> getNodes(Context context, @XmlRes int xmlResId)
+                throws IOException, XmlPullParserException {
+            final Configuration configuration = context.getResources().getConfiguration();
+            if (configuration == null) {
+                return parseNodes(context, xmlResId);
+            }
+            synchronized (sLock) {
+                if (sConfiguration == null
+                        || (sConfiguration.diff(configuration) & CONFIG_CHANGES_MASK) != 0) {
+                    sNodes.clear();
+                    sConfiguration = new Configuration(configuration);
+                }
+                final List<PreferenceNode> cached = sNodes.get(xmlResId);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            // Parse outside the lock so unrelated resources don't wait on each other.
+            final List<PreferenceNode> nodes =
+                    Collections.unmodifiableList(parseNodes(context, xmlResId));
+            synchronized (sLock) {
+                if (sConfiguration != null
+                        && (sConfiguration.diff(configuration) & CONFIG_CHANGES_MASK) == 0) {
+                    sNodes.put(xmlResId, nodes);
+                }
+            }
+            return nodes;
+        }
+
+        @VisibleForTesting
+        static void clear() {
+            synchronized (sLock) {
+                sNodes.clear();
+                sConfiguration = null;
+            }
+        }
+
+        @VisibleForTesting
+        static boolean contains(@XmlRes int xmlResId) {
+            synchronized (sLock) {
+                return sNodes.get(xmlResId) != null;
+            }
+        }
     }
 
     /**
@@ -17,6 +17,8 @@ package com.android.settings.dashboard;
 
 import android.content.ComponentName;
 import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.ArraySet;
@@ -34,27 +36,43 @@ import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.drawer.TileUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+/**
+ * Loads and caches the tiles injected into Settings.
+ * <p/>
+ * The loaded tile graph is published as an immutable {@link Snapshot}. Readers use the current
+ * snapshot without taking the lock, so they never wait for a reload; writers build a new snapshot
+ * under the lock and swap it in once complete.
+ */
 public class CategoryManager {
 
     private static final String TAG = "CategoryManager";
     private static final boolean DEBUG = false;
 
+    // Actions TileUtils queries for injected tiles. TileUtils keeps the first three private, so
+    // CategoryManagerTest checks every loaded tile resolves for one of these.
+    @VisibleForTesting
+    static final String[] TILE_ACTIONS = {
+            "com.android.settings.action.SETTINGS",
+            "com.android.settings.OPERATOR_APPLICATIONS_SETTINGS",
+            "com.android.settings.MANUFACTURER_APPLICATIONS_SETTINGS",
+            TileUtils.EXTRA_SETTINGS_ACTION,
+            TileUtils.IA_SETTINGS_ACTION,
+    };
+
     private static CategoryManager sInstance;
     private final InterestingConfigChanges mInterestingConfigChanges;
 
     // Tile cache (key: <packageName, activityName>, value: tile)
     private final Map<Pair<String, String>, Tile> mTileByComponentCache;
 
-    // Tile cache (key: category key, value: category)
-    private final Map<String, DashboardCategory> mCategoryByKeyMap;
-
-    private List<DashboardCategory> mCategories;
+    private volatile Snapshot mSnapshot;
 
     public static CategoryManager get(Context context) {
         if (sInstance == null) {
@@ -65,27 +83,48 @@ public class CategoryManager {
 
     CategoryManager(Context context) {
         mTileByComponentCache = new ArrayMap<>();
-        mCategoryByKeyMap = new ArrayMap<>();
         mInterestingConfigChanges = new InterestingConfigChanges();
         mInterestingConfigChanges.applyNewConfig(context.getResources());
     }
 
-    public synchronized DashboardCategory getTilesByCategory(Context context, String categoryKey) {
-        tryInitCategories(context);
-
-        return mCategoryByKeyMap.get(categoryKey);
+    public DashboardCategory getTilesByCategory(Context context, String categoryKey) {
+        return getSnapshot(context).mCategoryByKeyMap.get(categoryKey);
     }
 
-    public synchronized List<DashboardCategory> getCategories(Context context) {
-        tryInitCategories(context);
-        return mCategories;
+    public List<DashboardCategory> getCategories(Context context) {
+        return getSnapshot(context).mCategories;
     }
 
     public synchronized void reloadAllCategories(Context context) {
         final boolean forceClearCache = mInterestingConfigChanges.applyNewConfig(
                 context.getResources());
-        mCategories = null;
-        tryInitCategories(context, forceClearCache);
+        // The previous snapshot stays visible to readers until the new one is published.
+        loadCategories(context, forceClearCache);
+    }
+
+    /**
+     * Reloads categories after {@param packageName} was added, removed or changed. The reload is
+     * skipped when the package neither contributed tiles nor declares any tile source now.
+     *
+     * @return whether categories were reloaded
+     */
+    public synchronized boolean reloadCategoriesForPackage(Context context, String packageName) {
+        if (mInterestingConfigChanges.applyNewConfig(context.getResources())) {
+            loadCategories(context, true /* forceClearCache */);
+            return true;
+        }
+        final Snapshot snapshot = mSnapshot;
+        if (snapshot != null && !snapshot.mPackages.contains(packageName)
+                && !hasTileSources(context, packageName)) {
+            if (DEBUG) {
+                Log.d(TAG, "Skip reload, no tiles from " + packageName);
+            }
+            return false;
+        }
+        // Drop the package's cached tiles, so removed components don't linger in the cache.
+        mTileByComponentCache.keySet().removeIf(key -> TextUtils.equals(key.first, packageName));
+        loadCategories(context, false /* forceClearCache */);
+        return true;
     }
 
     /**
@@ -93,29 +132,39 @@ public class CategoryManager {
      * @param tileDenylist
      */
     public synchronized void updateCategoryFromDenylist(Set<ComponentName> tileDenylist) {
-        if (mCategories == null) {
+        final Snapshot snapshot = mSnapshot;
+        if (snapshot == null) {
             Log.w(TAG, "Category is null, skipping denylist update");
             return;
         }
-        for (int i = 0; i < mCategories.size(); i++) {
-            DashboardCategory category = mCategories.get(i);
-            for (int j = 0; j < category.getTilesCount(); j++) {
-                Tile tile = category.getTile(j);
-                if (tileDenylist.contains(tile.getIntent().getComponent())) {
-                    category.removeTile(j--);
+        boolean changed = false;
+        final List<DashboardCategory> categories = new ArrayList<>(snapshot.mCategories.size());
+        final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+        categoryByKeyMap.putAll(snapshot.mCategoryByKeyMap);
+        for (DashboardCategory category : snapshot.mCategories) {
+            final DashboardCategory filtered = filterDenylist(category, tileDenylist);
+            if (filtered != category) {
+                changed = true;
+                if (categoryByKeyMap.get(category.key) == category) {
+                    categoryByKeyMap.put(category.key, filtered);
                 }
             }
+            categories.add(filtered);
+        }
+        if (changed) {
+            mSnapshot = new Snapshot(categories, categoryByKeyMap);
         }
     }
 
     /** Return the current tile map */
-    public synchronized Map<ComponentName, Tile> getTileByComponentMap() {
+    public Map<ComponentName, Tile> getTileByComponentMap() {
         final Map<ComponentName, Tile> result = new ArrayMap<>();
-        if (mCategories == null) {
+        final Snapshot snapshot = mSnapshot;
+        if (snapshot == null) {
             Log.w(TAG, "Category is null, no tiles");
             return result;
         }
-        mCategories.forEach(category -> {
+        snapshot.mCategories.forEach(category -> {
             for (int i = 0; i < category.getTilesCount(); i++) {
                 final Tile tile = category.getTile(i);
                 result.put(tile.getIntent().getComponent(), tile);
@@ -124,6 +173,18 @@ public class CategoryManager {
         return result;
     }
 
+    /**
+     * Publishes {@param categories} as the current snapshot, bypassing the tile scan.
+     */
+    @VisibleForTesting
+    synchronized void setCategories(List<DashboardCategory> categories) {
+        final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+        for (DashboardCategory category : categories) {
+            categoryByKeyMap.put(category.key, category);
+        }
+        mSnapshot = new Snapshot(new ArrayList<>(categories), categoryByKeyMap);
+    }
+
     private void logTiles(Context context) {
         if (DEBUG) {
             getTileByComponentMap().forEach((component, tile) -> {
@@ -133,44 +194,88 @@ public class CategoryManager {
         }
     }
 
-    private synchronized void tryInitCategories(Context context) {
-        // Keep cached tiles by default. The cache is only invalidated when InterestingConfigChange
-        // happens.
-        tryInitCategories(context, false /* forceClearCache */);
+    private Snapshot getSnapshot(Context context) {
+        final Snapshot snapshot = mSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (this) {
+            // Keep cached tiles by default. The cache is only invalidated when
+            // InterestingConfigChange happens.
+            if (mSnapshot == null) {
+                loadCategories(context, false /* forceClearCache */);
+            }
+            return mSnapshot;
+        }
     }
 
-    private synchronized void tryInitCategories(Context context, boolean forceClearCache) {
-        if (mCategories == null) {
-            final boolean firstLoading = mCategoryByKeyMap.isEmpty();
-            if (forceClearCache) {
-                mTileByComponentCache.clear();
-            }
-            mCategoryByKeyMap.clear();
-            mCategories = TileUtils.getCategories(context, mTileByComponentCache);
-            for (DashboardCategory category : mCategories) {
-                mCategoryByKeyMap.put(category.key, category);
+    private synchronized void loadCategories(Context context, boolean forceClearCache) {
+        final boolean firstLoading = mSnapshot == null;
+        if (forceClearCache) {
+            mTileByComponentCache.clear();
+        }
+        final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+        final List<DashboardCategory> categories =
+                TileUtils.getCategories(context, mTileByComponentCache);
+        for (DashboardCategory category : categories) {
+            categoryByKeyMap.put(category.key, category);
+        }
+        backwardCompatCleanupForCategory(mTileByComponentCache, categoryByKeyMap);
+        sortCategories(context, categoryByKeyMap);
+        filterDuplicateTiles(categoryByKeyMap);
+        mSnapshot = new Snapshot(categories, categoryByKeyMap);
+        if (firstLoading) {
+            logTiles(context);
+
+            final DashboardCategory homepageCategory = categoryByKeyMap.get(
+                    CategoryKey.CATEGORY_HOMEPAGE);
+            if (homepageCategory == null) {
+                return;
             }
-            backwardCompatCleanupForCategory(mTileByComponentCache, mCategoryByKeyMap);
-            sortCategories(context, mCategoryByKeyMap);
-            filterDuplicateTiles(mCategoryByKeyMap);
-            if (firstLoading) {
-                logTiles(context);
-
-                final DashboardCategory homepageCategory = mCategoryByKeyMap.get(
-                        CategoryKey.CATEGORY_HOMEPAGE);
-                if (homepageCategory == null) {
-                    return;
+            for (Tile tile : homepageCategory.getTiles()) {
+                final String key = tile.getKey(context);
+                if (TextUtils.isEmpty(key)) {
+                    Log.w(TAG, "Key hint missing for homepage tile: " + tile.getTitle(context));
+                    continue;
                 }
-                for (Tile tile : homepageCategory.getTiles()) {
-                    final String key = tile.getKey(context);
-                    if (TextUtils.isEmpty(key)) {
-                        Log.w(TAG, "Key hint missing for homepage tile: " + tile.getTitle(context));
-                        continue;
+                HighlightableMenu.addMenuKey(key);
+            }
+        }
+    }
+
+    /**
+     * @return {@param category} itself if it has no denylisted tile, otherwise a copy without them
+     */
+    private static DashboardCategory filterDenylist(DashboardCategory category,
+            Set<ComponentName> tileDenylist) {
+        DashboardCategory filtered = null;
+        final int count = category.getTilesCount();
+        for (int i = 0; i < count; i++) {
+            final Tile tile = category.getTile(i);
+            if (tileDenylist.contains(tile.getIntent().getComponent())) {
+                if (filtered == null) {
+                    filtered = new DashboardCategory(category.key);
+                    for (int j = 0; j < i; j++) {
+                        filtered.addTile(category.getTile(j));
                     }
-                    HighlightableMenu.addMenuKey(key);
                 }
+            } else if (filtered != null) {
+                filtered.addTile(tile);
+            }
+        }
+        return filtered == null ? category : filtered;
+    }
+
+    private static boolean hasTileSources(Context context, String packageName) {
+        final PackageManager pm = context.getPackageManager();
+        for (String action : TILE_ACTIONS) {
+            final Intent intent = new Intent(action).setPackage(packageName);
+            if (!pm.queryIntentActivities(intent, 0 /* flags */).isEmpty()
+                    || !pm.queryIntentContentProviders(intent, 0 /* flags */).isEmpty()) {
+                return true;
             }
         }
+        return false;
     }
 
     @VisibleForTesting
@@ -270,4 +375,27 @@ public class CategoryManager {
             }
         }
     }
+
+    /**
+     * An immutable view of the loaded categories. Categories in a published snapshot are never
+     * modified; changes produce a new snapshot.
+     */
+    private static class Snapshot {
+        final List<DashboardCategory> mCategories;
+        final Map<String, DashboardCategory> mCategoryByKeyMap;
+        // Packages contributing at least one tile.
+        final Set<String> mPackages;
+
+        Snapshot(List<DashboardCategory> categories,
+                Map<String, DashboardCategory> categoryByKeyMap) {
+            mCategories = Collections.unmodifiableList(categories);
+            mCategoryByKeyMap = Collections.unmodifiableMap(categoryByKeyMap);
+            mPackages = new ArraySet<>();
+            for (DashboardCategory category : categoryByKeyMap.values()) {
+                for (int i = 0; i < category.getTilesCount(); i++) {
+                    mPackages.add(category.getTile(i).getPackageName());
+                }
+            }
+        }
+    }
 }
@@ -36,7 +36,6 @@ import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_TITL
 import android.app.settings.SettingsEnums;
 import android.content.ComponentName;
 import android.content.Context;
-import android.content.IContentProvider;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.drawable.Drawable;
@@ -47,9 +46,7 @@ import android.os.Bundle;
 import android.os.UserHandle;
 import android.provider.Settings;
 import android.text.TextUtils;
-import android.util.ArrayMap;
 import android.util.Log;
-import android.util.Pair;
 import android.widget.Toast;
 
 import androidx.annotation.VisibleForTesting;
@@ -78,7 +75,6 @@ import com.android.settingslib.widget.AdaptiveIcon;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Impl for {@code DashboardFeatureProvider}.
@@ -95,12 +91,14 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private final CategoryManager mCategoryManager;
     private final PackageManager mPackageManager;
+    private final DynamicDataLoader mDynamicDataLoader;
 
     public DashboardFeatureProviderImpl(Context context) {
         mContext = context.getApplicationContext();
         mCategoryManager = CategoryManager.get(context);
         mMetricsFeatureProvider = FeatureFactory.getFactory(context).getMetricsFeatureProvider();
         mPackageManager = context.getPackageManager();
+        mDynamicDataLoader = new DynamicDataLoader(context);
     }
 
     @Override
@@ -230,6 +228,10 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
 
     private DynamicDataObserver createDynamicDataObserver(String method, Uri uri, Preference pref) {
         return new DynamicDataObserver() {
+            // Not initialized on purpose: the first onDataChanged() runs from the super
+            // constructor, before field initializers.
+            private boolean mLoaded;
+
             @Override
             public Uri getUri() {
                 return uri;
@@ -237,6 +239,11 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
 
             @Override
             public void onDataChanged() {
+                if (mLoaded) {
+                    // The initial load may be served from cache; later ones mean data changed.
+                    mDynamicDataLoader.invalidate(uri);
+                }
+                mLoaded = true;
                 switch (method) {
                     case METHOD_GET_DYNAMIC_TITLE:
                         refreshTitle(uri, pref, this);
@@ -272,10 +279,8 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshTitle(Uri uri, Preference preference, DynamicDataObserver observer) {
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            final String titleFromUri = TileUtils.getTextFromUri(
-                    mContext, uri, providerMap, META_DATA_PREFERENCE_TITLE);
+        mDynamicDataLoader.load(uri, (context, u, providerMap) -> TileUtils.getTextFromUri(
+                context, u, providerMap, META_DATA_PREFERENCE_TITLE), titleFromUri -> {
             if (!TextUtils.equals(titleFromUri, preference.getTitle())) {
                 observer.post(() -> preference.setTitle(titleFromUri));
             }
@@ -300,10 +305,8 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshSummary(Uri uri, Preference preference, DynamicDataObserver observer) {
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            final String summaryFromUri = TileUtils.getTextFromUri(
-                    mContext, uri, providerMap, META_DATA_PREFERENCE_SUMMARY);
+        mDynamicDataLoader.load(uri, (context, u, providerMap) -> TileUtils.getTextFromUri(
+                context, u, providerMap, META_DATA_PREFERENCE_SUMMARY), summaryFromUri -> {
             if (!TextUtils.equals(summaryFromUri, preference.getSummary())) {
                 observer.post(() -> preference.setSummary(summaryFromUri));
             }
@@ -317,24 +320,24 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
 
         final Uri onCheckedChangedUri = TileUtils.getCompleteUri(tile,
                 META_DATA_PREFERENCE_SWITCH_URI, METHOD_ON_CHECKED_CHANGED);
+        final Uri isCheckedUri = TileUtils.getCompleteUri(tile, META_DATA_PREFERENCE_SWITCH_URI,
+                METHOD_IS_CHECKED);
         preference.setOnPreferenceChangeListener((pref, newValue) -> {
-            onCheckedChanged(onCheckedChangedUri, pref, (boolean) newValue);
+            onCheckedChanged(onCheckedChangedUri, isCheckedUri, pref, (boolean) newValue);
             return true;
         });
 
-        final Uri isCheckedUri = TileUtils.getCompleteUri(tile, META_DATA_PREFERENCE_SWITCH_URI,
-                METHOD_IS_CHECKED);
         setSwitchEnabled(preference, false);
         return createDynamicDataObserver(METHOD_IS_CHECKED, isCheckedUri, preference);
     }
 
-    private void onCheckedChanged(Uri uri, Preference pref, boolean checked) {
+    private void onCheckedChanged(Uri uri, Uri isCheckedUri, Preference pref, boolean checked) {
         setSwitchEnabled(pref, false);
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            final Bundle result = TileUtils.putBooleanToUriAndGetResult(mContext, uri, providerMap,
-                    EXTRA_SWITCH_CHECKED_STATE, checked);
-
+        // The cached checked state is stale whatever the outcome.
+        mDynamicDataLoader.invalidate(isCheckedUri);
+        mDynamicDataLoader.call(uri, (context, u, providerMap) ->
+                TileUtils.putBooleanToUriAndGetResult(context, u, providerMap,
+                        EXTRA_SWITCH_CHECKED_STATE, checked), result -> {
             ThreadUtils.postOnMainThread(() -> {
                 setSwitchEnabled(pref, true);
                 final boolean error = result.getBoolean(EXTRA_SWITCH_SET_CHECKED_ERROR);
@@ -352,10 +355,8 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshSwitch(Uri uri, Preference preference, DynamicDataObserver observer) {
-        ThreadUtils.postOnBackgroundThread(() -> {
-            final Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            final boolean checked = TileUtils.getBooleanFromUri(mContext, uri, providerMap,
-                    EXTRA_SWITCH_CHECKED_STATE);
+        mDynamicDataLoader.load(uri, (context, u, providerMap) -> TileUtils.getBooleanFromUri(
+                context, u, providerMap, EXTRA_SWITCH_CHECKED_STATE), checked -> {
             observer.post(() -> {
                 setSwitchChecked(preference, checked);
                 setSwitchEnabled(preference, true);
@@ -387,19 +388,19 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
             // Reserve the icon space to avoid preference padding change.
             preference.setIconSpaceReserved(true);
 
-            ThreadUtils.postOnBackgroundThread(() -> {
-                final Intent intent = tile.getIntent();
-                String packageName = null;
-                if (!TextUtils.isEmpty(intent.getPackage())) {
-                    packageName = intent.getPackage();
-                } else if (intent.getComponent() != null) {
-                    packageName = intent.getComponent().getPackageName();
-                }
-                final Map<String, IContentProvider> providerMap = new ArrayMap<>();
-                final Uri uri = TileUtils.getCompleteUri(tile, META_DATA_PREFERENCE_ICON_URI,
-                        METHOD_GET_PROVIDER_ICON);
-                final Pair<String, Integer> iconInfo = TileUtils.getIconFromUri(
-                        mContext, packageName, uri, providerMap);
+            final Intent intent = tile.getIntent();
+            final String packageName;
+            if (!TextUtils.isEmpty(intent.getPackage())) {
+                packageName = intent.getPackage();
+            } else if (intent.getComponent() != null) {
+                packageName = intent.getComponent().getPackageName();
+            } else {
+                packageName = null;
+            }
+            final Uri uri = TileUtils.getCompleteUri(tile, META_DATA_PREFERENCE_ICON_URI,
+                    METHOD_GET_PROVIDER_ICON);
+            mDynamicDataLoader.load(uri, (context, u, providerMap) -> TileUtils.getIconFromUri(
+                    context, packageName, u, providerMap), iconInfo -> {
                 if (iconInfo == null) {
                     Log.w(TAG, "Failed to get icon from uri " + uri);
                     return;
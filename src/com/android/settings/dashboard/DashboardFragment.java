@@ -47,6 +47,7 @@ import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.ProviderTile;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.search.Indexable;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -56,8 +57,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base fragment for dashboard style UI containing a list of static and dynamic setting items.
@@ -67,7 +68,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         BasePreferenceController.UiBlockListener {
     public static final String CATEGORY = "category";
     private static final String TAG = "DashboardFragment";
-    private static final long TIMEOUT_MILLIS = 50L;
+    @VisibleForTesting
+    static final long TIMEOUT_MILLIS = 50L;
 
     @VisibleForTesting
     final ArrayMap<String, List<DynamicDataObserver>> mDashboardTilePrefKeys = new ArrayMap<>();
@@ -533,21 +535,37 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             unregisterDynamicDataObservers(entry.getValue());
         }
 
-        // Wait for pending observers to update UI.
+        // Apply pending observers' data in one pass once they are all ready, without blocking
+        // the main thread. Tiles show their static title and summary until then.
         if (!pendingObservers.isEmpty()) {
-            final CountDownLatch mainLatch = new CountDownLatch(1);
-            new Thread(() -> {
-                pendingObservers.forEach(observer ->
-                        awaitObserverLatch(observer.getCountDownLatch()));
-                mainLatch.countDown();
-            }).start();
-            Log.d(tag, "Start waiting observers");
-            awaitObserverLatch(mainLatch);
-            Log.d(tag, "Stop waiting observers");
-            pendingObservers.forEach(DynamicDataObserver::updateUi);
+            applyObserversWhenReady(tag, pendingObservers);
         }
     }
 
+    /**
+     * Calls {@link DynamicDataObserver#updateUi()} for all {@param observers} in a single main
+     * thread pass, as soon as every observer has loaded its data or {@link #TIMEOUT_MILLIS} has
+     * passed, whichever is first. Observers that finish later update their tile on their own.
+     */
+    @VisibleForTesting
+    void applyObserversWhenReady(String tag, List<DynamicDataObserver> observers) {
+        final AtomicInteger remaining = new AtomicInteger(observers.size());
+        final AtomicBoolean applied = new AtomicBoolean();
+        final Runnable applyUpdates = () -> {
+            if (applied.compareAndSet(false, true)) {
+                Log.d(tag, "Apply " + (observers.size() - remaining.get()) + "/"
+                        + observers.size() + " observer updates");
+                observers.forEach(DynamicDataObserver::updateUi);
+            }
+        };
+        ThreadUtils.getUiThreadHandler().postDelayed(applyUpdates, TIMEOUT_MILLIS);
+        observers.forEach(observer -> observer.setOnReadyListener(() -> {
+            if (remaining.decrementAndGet() == 0) {
+                ThreadUtils.postOnMainThread(applyUpdates);
+            }
+        }));
+    }
+
     @Override
     public void onBlockerWorkFinished(BasePreferenceController controller) {
         mBlockerController.countDown(controller.getPreferenceKey());
@@ -591,12 +609,4 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             resolver.unregisterContentObserver(observer);
         });
     }
-
-    private void awaitObserverLatch(CountDownLatch latch) {
-        try {
-            latch.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            // Do nothing
-        }
-    }
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.content.Context;
+import android.content.IContentProvider;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads dynamic data of injected tiles from their content providers.
+ * <p/>
+ * Calls are grouped by {@link Uri} authority: a request made while a batch for the same authority
+ * is queued or running joins that batch, so every tile of a package is served by one background
+ * task sharing one acquired {@link IContentProvider}. The provider is released once the batch
+ * drains.
+ * <p/>
+ * Results of {@link #load} are cached per {@link Uri}, which already encodes the provider method,
+ * until {@link #invalidate} is called for it or {@link #CACHE_TTL_MS} has passed.
+ */
+class DynamicDataLoader {
+
+    private static final String TAG = "DynamicDataLoader";
+
+    /**
+     * Entries older than this are reloaded, as the provider may have changed while no observer
+     * was registered for it.
+     */
+    @VisibleForTesting
+    static final long CACHE_TTL_MS = 2000L;
+
+    /** Performs the provider call for a {@link Uri}. Runs on a background thread. */
+    interface Fetcher<T> {
+        T fetch(Context context, Uri uri, Map<String, IContentProvider> providerMap);
+    }
+
+    /** Receives the result of a {@link Fetcher}. */
+    interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private final Context mContext;
+    private final Object mLock = new Object();
+    // Authorities with a batch in flight, mapped to the requests waiting for it.
+    private final Map<String, List<Request<?>>> mPendingRequests = new ArrayMap<>();
+    private final Map<Uri, CacheEntry> mCache = new ArrayMap<>();
+    private long mGeneration;
+
+    DynamicDataLoader(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Loads the data behind {@param uri}, serving it from the cache when possible. On a cache hit
+     * {@param callback} runs on the calling thread, otherwise on a background thread.
+     */
+    @SuppressWarnings("unchecked")
+    <T> void load(Uri uri, Fetcher<T> fetcher, Callback<T> callback) {
+        final CacheEntry entry;
+        synchronized (mLock) {
+            entry = getCacheEntryLocked(uri);
+        }
+        if (entry != null) {
+            callback.onResult((T) entry.mResult);
+            return;
+        }
+        enqueue(new Request<>(uri, fetcher, callback, true /* cacheable */));
+    }
+
+    /**
+     * Runs a provider call that must not be cached, e.g. one that writes to the provider. It still
+     * shares the batch and the acquired provider with other calls to the same authority.
+     */
+    <T> void call(Uri uri, Fetcher<T> fetcher, Callback<T> callback) {
+        enqueue(new Request<>(uri, fetcher, callback, false /* cacheable */));
+    }
+
+    /** Drops the cached result of {@param uri} so that the next {@link #load} hits the provider. */
+    void invalidate(Uri uri) {
+        synchronized (mLock) {
+            mCache.remove(uri);
+            mGeneration++;
+        }
+    }
+
+    @VisibleForTesting
+    boolean isCached(Uri uri) {
+        synchronized (mLock) {
+            return getCacheEntryLocked(uri) != null;
+        }
+    }
+
+    private void enqueue(Request<?> request) {
+        final String authority = request.mUri.getAuthority();
+        synchronized (mLock) {
+            request.mGeneration = mGeneration;
+            final List<Request<?>> requests = mPendingRequests.get(authority);
+            if (requests != null) {
+                requests.add(request);
+                return;
+            }
+            final List<Request<?>> batch = new ArrayList<>();
+            batch.add(request);
+            mPendingRequests.put(authority, batch);
+        }
+        ThreadUtils.postOnBackgroundThread(() -> drain(authority));
+    }
+
+    private void drain(String authority) {
+        final Map<String, IContentProvider> providerMap = new ArrayMap<>();
+        while (true) {
+            final List<Request<?>> batch;
+            synchronized (mLock) {
+                batch = mPendingRequests.get(authority);
+                if (batch.isEmpty()) {
+                    // Nothing joined while the last batch ran; let the provider go.
+                    mPendingRequests.remove(authority);
+                    return;
+                }
+                mPendingRequests.put(authority, new ArrayList<>());
+            }
+            for (Request<?> request : batch) {
+                try {
+                    request.run(providerMap);
+                } catch (RuntimeException e) {
+                    // Keeps draining, a failed tile must not stall the other tiles of the
+                    // authority.
+                    Log.w(TAG, "Failed to load " + request.mUri, e);
+                }
+            }
+        }
+    }
+
+    private CacheEntry getCacheEntryLocked(Uri uri) {
+        final CacheEntry entry = mCache.get(uri);
+        if (entry == null) {
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() - entry.mTimestamp > CACHE_TTL_MS) {
+            mCache.remove(uri);
+            return null;
+        }
+        return entry;
+    }
+
+    private static class CacheEntry {
+        final Object mResult;
+        final long mTimestamp;
+
+        CacheEntry(Object result) {
+            mResult = result;
+            mTimestamp = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private class Request<T> {
+        final Uri mUri;
+        final Fetcher<T> mFetcher;
+        final Callback<T> mCallback;
+        final boolean mCacheable;
+        // Loader generation at enqueue time, guarded by mLock.
+        long mGeneration;
+
+        Request(Uri uri, Fetcher<T> fetcher, Callback<T> callback, boolean cacheable) {
+            mUri = uri;
+            mFetcher = fetcher;
+            mCallback = callback;
+            mCacheable = cacheable;
+        }
+
+        @SuppressWarnings("unchecked")
+        void run(Map<String, IContentProvider> providerMap) {
+            if (mCacheable) {
+                // An earlier request of the same batch may have loaded this uri already.
+                final CacheEntry entry;
+                synchronized (mLock) {
+                    entry = getCacheEntryLocked(mUri);
+                }
+                if (entry != null) {
+                    mCallback.onResult((T) entry.mResult);
+                    return;
+                }
+            }
+            final T result = mFetcher.fetch(mContext, mUri, providerMap);
+            if (mCacheable) {
+                synchronized (mLock) {
+                    // Don't cache a result that may predate an invalidation.
+                    if (mGeneration == DynamicDataLoader.this.mGeneration) {
+                        mCache.put(mUri, new CacheEntry(result));
+                    }
+                }
+            }
+            mCallback.onResult(result);
+        }
+    }
+}
@@ -22,20 +22,18 @@ import android.os.Looper;
 
 import com.android.settingslib.utils.ThreadUtils;
 
-import java.util.concurrent.CountDownLatch;
-
 /**
  * Observer for updating injected dynamic data.
  */
 public abstract class DynamicDataObserver extends ContentObserver {
 
     private Runnable mUpdateRunnable;
-    private CountDownLatch mCountDownLatch;
+    private Runnable mReadyListener;
+    private boolean mReady;
     private boolean mUpdateDelegated;
 
     protected DynamicDataObserver() {
         super(new Handler(Looper.getMainLooper()));
-        mCountDownLatch = new CountDownLatch(1);
         // Load data for the first time
         onDataChanged();
     }
@@ -54,9 +52,16 @@ public abstract class DynamicDataObserver extends ContentObserver {
         }
     }
 
-    /** Returns the count-down latch */
-    public CountDownLatch getCountDownLatch() {
-        return mCountDownLatch;
+    /**
+     * Sets a listener to run once the first data load is ready to be applied with
+     * {@link #updateUi()}. Runs immediately if the data is already ready.
+     */
+    public synchronized void setOnReadyListener(Runnable listener) {
+        if (mReady) {
+            listener.run();
+        } else {
+            mReadyListener = listener;
+        }
     }
 
     @Override
@@ -69,7 +74,13 @@ public abstract class DynamicDataObserver extends ContentObserver {
             ThreadUtils.postOnMainThread(runnable);
         } else {
             mUpdateRunnable = runnable;
-            mCountDownLatch.countDown();
+            if (!mReady) {
+                mReady = true;
+                if (mReadyListener != null) {
+                    mReadyListener.run();
+                    mReadyListener = null;
+                }
+            }
         }
     }
 }
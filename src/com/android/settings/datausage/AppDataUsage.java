@@ -281,6 +281,14 @@ public class AppDataUsage extends DataUsageBaseFragment implements OnPreferenceC
         LoaderManager.getInstance(this).restartLoader(LOADER_APP_USAGE_DATA, null /* args */,
                 mUidDataCallbacks);
         updatePrefs();
+
+        // Shows the usage as last loaded until it is loaded again.
+        final List<NetworkCycleDataForUid> cachedData = mTemplate != null
+                ? DataUsageCache.getInstance().getUidData(mTemplate, mAppItem.uids, mCycles)
+                : null;
+        if (cachedData != null) {
+            bindUsageData(cachedData);
+        }
     }
 
     @Override
@@ -558,6 +566,10 @@ public class AppDataUsage extends DataUsageBaseFragment implements OnPreferenceC
             new AdapterView.OnItemSelectedListener() {
         @Override
         public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+            // Keeps the selection when the usage loaded again is bound.
+            if (mUsageData != null && position < mUsageData.size()) {
+                mSelectedCycle = mUsageData.get(position).getEndTime();
+            }
             bindData(position);
         }
 
@@ -567,6 +579,28 @@ public class AppDataUsage extends DataUsageBaseFragment implements OnPreferenceC
         }
     };
 
+    private void bindUsageData(List<NetworkCycleDataForUid> data) {
+        mUsageData = data;
+        mCycleAdapter.updateCycleList(data);
+        if (mSelectedCycle > 0L) {
+            final int numCycles = data.size();
+            int position = 0;
+            for (int i = 0; i < numCycles; i++) {
+                final NetworkCycleDataForUid cycleData = data.get(i);
+                if (cycleData.getEndTime() == mSelectedCycle) {
+                    position = i;
+                    break;
+                }
+            }
+            if (position > 0) {
+                mCycle.setSelection(position);
+            }
+            bindData(position);
+        } else {
+            bindData(0 /* position */);
+        }
+    }
+
     @VisibleForTesting
     final LoaderManager.LoaderCallbacks<List<NetworkCycleDataForUid>> mUidDataCallbacks =
         new LoaderManager.LoaderCallbacks<List<NetworkCycleDataForUid>>() {
@@ -588,25 +622,11 @@ public class AppDataUsage extends DataUsageBaseFragment implements OnPreferenceC
             @Override
             public void onLoadFinished(Loader<List<NetworkCycleDataForUid>> loader,
                     List<NetworkCycleDataForUid> data) {
-                mUsageData = data;
-                mCycleAdapter.updateCycleList(data);
-                if (mSelectedCycle > 0L) {
-                    final int numCycles = data.size();
-                    int position = 0;
-                    for (int i = 0; i < numCycles; i++) {
-                        final NetworkCycleDataForUid cycleData = data.get(i);
-                        if (cycleData.getEndTime() == mSelectedCycle) {
-                            position = i;
-                            break;
-                        }
-                    }
-                    if (position > 0) {
-                        mCycle.setSelection(position);
-                    }
-                    bindData(position);
-                } else {
-                    bindData(0 /* position */);
+                if (mTemplate != null) {
+                    DataUsageCache.getInstance().putUidData(mTemplate, mAppItem.uids, mCycles,
+                            data);
                 }
+                bindUsageData(data);
                 mIsLoading = false;
             }
 
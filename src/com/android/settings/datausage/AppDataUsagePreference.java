@@ -31,8 +31,8 @@ import java.text.NumberFormat;
 
 public class AppDataUsagePreference extends AppPreference {
 
-    private final AppItem mItem;
-    private final int mPercent;
+    private AppItem mItem;
+    private int mPercent;
     private UidDetail mDetail;
 
     public AppDataUsagePreference(Context context, AppItem item, int percent,
@@ -40,12 +40,7 @@ public class AppDataUsagePreference extends AppPreference {
         super(context);
         mItem = item;
         mPercent = percent;
-
-        if (item.restricted && item.total <= 0) {
-            setSummary(com.android.settings.R.string.data_usage_app_restricted);
-        } else {
-            setSummary(DataUsageUtils.formatDataUsage(context, item.total));
-        }
+        updateSummary();
         mDetail = provider.getUidDetail(item.key, false /* blocking */);
         if (mDetail != null) {
             setAppInfo();
@@ -76,6 +71,33 @@ public class AppDataUsagePreference extends AppPreference {
                 NumberFormat.getPercentInstance().format((double) mPercent / 100));
     }
 
+    /**
+     * Updates the usage of the item shown by this preference. The new item must have the same key,
+     * so the app info loaded for the previous item is kept.
+     */
+    public void setItem(AppItem item, int percent) {
+        if (item.key != mItem.key) {
+            throw new IllegalArgumentException("Item key changed from " + mItem.key
+                    + " to " + item.key);
+        }
+        final boolean changed = item.total != mItem.total || item.restricted != mItem.restricted
+                || percent != mPercent;
+        mItem = item;
+        mPercent = percent;
+        if (changed) {
+            updateSummary();
+            notifyChanged();
+        }
+    }
+
+    private void updateSummary() {
+        if (mItem.restricted && mItem.total <= 0) {
+            setSummary(com.android.settings.R.string.data_usage_app_restricted);
+        } else {
+            setSummary(DataUsageUtils.formatDataUsage(getContext(), mItem.total));
+        }
+    }
+
     private void setAppInfo() {
         if (mDetail != null) {
             setIcon(mDetail.icon);
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
+import static android.net.NetworkPolicyManager.POLICY_REJECT_METERED_BACKGROUND;
+
+import android.app.ActivityManager;
+import android.app.usage.NetworkStats;
+import android.app.usage.NetworkStats.Bucket;
+import android.app.usage.NetworkStatsManager;
+import android.content.Context;
+import android.net.NetworkPolicyManager;
+import android.net.NetworkTemplate;
+import android.os.Process;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.util.SparseLongArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+import com.android.settingslib.utils.AsyncLoaderCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the data usage of apps in a time range, collapsed into the {@link AppItem}s shown by
+ * {@link DataUsageList}, sorted by category and usage.
+ * <p/>
+ * The usage of each uid in a closed cycle is served from {@link DataUsageCache}, only the usage of
+ * the current cycle is queried again.
+ */
+public class AppsDataUsageLoader extends AsyncLoaderCompat<AppsDataUsageLoader.Result> {
+    private static final String TAG = "AppsDataUsageLoader";
+
+    private final NetworkStatsManager mNetworkStatsManager;
+    private final NetworkPolicyManager mPolicyManager;
+    private final UserManager mUserManager;
+    private final DataUsageCache mCache;
+    private final NetworkTemplate mTemplate;
+    private final long mStart;
+    private final long mEnd;
+
+    public AppsDataUsageLoader(Context context, NetworkPolicyManager policyManager,
+            NetworkTemplate template, long start, long end) {
+        this(context, policyManager, DataUsageCache.getInstance(), template, start, end);
+    }
+
+    @VisibleForTesting
+    AppsDataUsageLoader(Context context, NetworkPolicyManager policyManager,
+            DataUsageCache cache, NetworkTemplate template, long start, long end) {
+        super(context);
+        mNetworkStatsManager = context.getSystemService(NetworkStatsManager.class);
+        mUserManager = context.getSystemService(UserManager.class);
+        mPolicyManager = policyManager;
+        mCache = cache;
+        mTemplate = template;
+        mStart = start;
+        mEnd = end;
+    }
+
+    @Override
+    @Nullable
+    public Result loadInBackground() {
+        SparseLongArray usage = mCache.getCycleUsage(mTemplate, mStart, mEnd);
+        if (usage == null) {
+            usage = loadUsage();
+            if (usage == null) {
+                return null;
+            }
+            mCache.putCycleUsage(mTemplate, mStart, mEnd, usage);
+        }
+        // Collapsed again on each load, as users and restrictions may have changed since the
+        // usage was cached.
+        final Aggregator aggregator =
+                new Aggregator(mUserManager, ActivityManager.getCurrentUser());
+        for (int i = 0, size = usage.size(); i < size; i++) {
+            aggregator.add(usage.keyAt(i), usage.valueAt(i));
+        }
+        aggregator.addRestrictedUids(
+                mPolicyManager.getUidsWithPolicy(POLICY_REJECT_METERED_BACKGROUND));
+        return aggregator.build();
+    }
+
+    /** Queries the usage of each uid in the time range, or returns null if it failed. */
+    @Nullable
+    private SparseLongArray loadUsage() {
+        final NetworkStats stats;
+        try {
+            stats = mNetworkStatsManager.querySummary(mTemplate, mStart, mEnd);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Exception querying network detail.", e);
+            return null;
+        }
+        if (stats == null) {
+            return null;
+        }
+        final SparseLongArray usage = new SparseLongArray();
+        final Bucket bucket = new Bucket();
+        try {
+            while (stats.hasNextBucket() && stats.getNextBucket(bucket)) {
+                final int uid = bucket.getUid();
+                usage.put(uid, usage.get(uid) + bucket.getRxBytes() + bucket.getTxBytes());
+            }
+        } finally {
+            stats.close();
+        }
+        return usage;
+    }
+
+    @Override
+    protected void onDiscardResult(Result result) {
+    }
+
+    /** The data usage items of a time range. */
+    public static class Result {
+        /** Items sorted by category and then by usage in descending order. */
+        public final List<AppItem> items;
+        /** The largest usage among {@link #items}, which is 100 percent of the usage bars. */
+        public final long largest;
+
+        Result(List<AppItem> items, long largest) {
+            this.items = items;
+            this.largest = largest;
+        }
+    }
+
+    /**
+     * Collapses the usage of uids into items. Usage is accumulated per collapse key in primitive
+     * arrays, and an {@link AppItem} is only built for each key once all usage is added.
+     */
+    @VisibleForTesting
+    static class Aggregator {
+        private static final int USER_STATE_UNKNOWN = 0;
+        private static final int USER_STATE_PROFILE = 1;
+        private static final int USER_STATE_OTHER = 2;
+        private static final int USER_STATE_REMOVED = 3;
+
+        private final UserManager mUserManager;
+        private final int mCurrentUserId;
+        // Looked up once for each user id instead of once for each bucket.
+        private final SparseIntArray mUserStates = new SparseIntArray();
+        private final SparseLongArray mTotals = new SparseLongArray();
+        private final SparseIntArray mCategories = new SparseIntArray();
+        private final SparseArray<SparseBooleanArray> mUids = new SparseArray<>();
+        private final SparseBooleanArray mRestricted = new SparseBooleanArray();
+        private long mLargest;
+
+        Aggregator(UserManager userManager, int currentUserId) {
+            mUserManager = userManager;
+            mCurrentUserId = currentUserId;
+            for (UserHandle profile : userManager.getUserProfiles()) {
+                mUserStates.put(profile.getIdentifier(), USER_STATE_PROFILE);
+            }
+        }
+
+        /** Adds the usage of {@param uid} and decides how to collapse it with other uids. */
+        void add(int uid, long bytes) {
+            final int collapseKey;
+            final int category;
+            final int userId = UserHandle.getUserId(uid);
+            if (UserHandle.isApp(uid) || Process.isSdkSandboxUid(uid)) {
+                final int userState = getUserState(userId);
+                if (userState == USER_STATE_PROFILE) {
+                    if (userId != mCurrentUserId) {
+                        // Add to a managed user item.
+                        final int managedKey = UidDetailProvider.buildKeyForUser(userId);
+                        accumulate(managedKey, uid, bytes, AppItem.CATEGORY_USER);
+                    }
+                    // Map SDK sandbox back to its corresponding app
+                    if (Process.isSdkSandboxUid(uid)) {
+                        collapseKey = Process.getAppUidForSdkSandboxUid(uid);
+                    } else {
+                        collapseKey = uid;
+                    }
+                    category = AppItem.CATEGORY_APP;
+                } else if (userState == USER_STATE_REMOVED) {
+                    // If it is a removed user add it to the removed users' key
+                    collapseKey = UID_REMOVED;
+                    category = AppItem.CATEGORY_APP;
+                } else {
+                    // Add to other user item.
+                    collapseKey = UidDetailProvider.buildKeyForUser(userId);
+                    category = AppItem.CATEGORY_USER;
+                }
+            } else if (uid == UID_REMOVED || uid == UID_TETHERING
+                    || uid == Process.OTA_UPDATE_UID) {
+                collapseKey = uid;
+                category = AppItem.CATEGORY_APP;
+            } else {
+                collapseKey = Process.SYSTEM_UID;
+                category = AppItem.CATEGORY_APP;
+            }
+            accumulate(collapseKey, uid, bytes, category);
+        }
+
+        /** Marks the uids of the current user and its profiles as restricted. */
+        void addRestrictedUids(int[] restrictedUids) {
+            for (int uid : restrictedUids) {
+                // Only splice in restricted state for current user or managed users
+                if (mUserStates.get(UserHandle.getUserId(uid)) != USER_STATE_PROFILE) {
+                    continue;
+                }
+                if (mTotals.indexOfKey(uid) < 0) {
+                    mTotals.put(uid, -1);
+                    mCategories.put(uid, AppItem.CATEGORY_APP);
+                    getUids(uid).put(uid, true);
+                }
+                mRestricted.put(uid, true);
+            }
+        }
+
+        Result build() {
+            final int size = mTotals.size();
+            final List<AppItem> items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final int key = mTotals.keyAt(i);
+                final AppItem item = new AppItem(key);
+                item.category = mCategories.get(key);
+                item.total = mTotals.valueAt(i);
+                item.restricted = mRestricted.get(key);
+                final SparseBooleanArray uids = mUids.get(key);
+                for (int j = 0, uidCount = uids.size(); j < uidCount; j++) {
+                    item.addUid(uids.keyAt(j));
+                }
+                items.add(item);
+            }
+            Collections.sort(items);
+            return new Result(items, mLargest);
+        }
+
+        private void accumulate(int collapseKey, int uid, long bytes, int category) {
+            final int index = mTotals.indexOfKey(collapseKey);
+            if (index < 0) {
+                mCategories.put(collapseKey, category);
+            }
+            final long total = (index < 0 ? 0 : mTotals.valueAt(index)) + bytes;
+            mTotals.put(collapseKey, total);
+            getUids(collapseKey).put(uid, true);
+            mLargest = Math.max(mLargest, total);
+        }
+
+        private SparseBooleanArray getUids(int collapseKey) {
+            SparseBooleanArray uids = mUids.get(collapseKey);
+            if (uids == null) {
+                uids = new SparseBooleanArray();
+                mUids.put(collapseKey, uids);
+            }
+            return uids;
+        }
+
+        private int getUserState(int userId) {
+            int userState = mUserStates.get(userId, USER_STATE_UNKNOWN);
+            if (userState == USER_STATE_UNKNOWN) {
+                userState = mUserManager.getUserInfo(userId) == null
+                        ? USER_STATE_REMOVED : USER_STATE_OTHER;
+                mUserStates.put(userId, userState);
+            }
+            return userState;
+        }
+    }
+}
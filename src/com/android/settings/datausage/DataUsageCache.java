@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import android.net.NetworkTemplate;
+import android.text.format.DateUtils;
+import android.util.LruCache;
+import android.util.SparseBooleanArray;
+import android.util.SparseLongArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.net.NetworkCycleChartData;
+import com.android.settingslib.net.NetworkCycleDataForUid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A process-wide cache of the data usage shown by {@link DataUsageList} and {@link AppDataUsage}.
+ * <p/>
+ * The usage of each uid in a cycle is cached per template, start and end, only once the cycle is
+ * closed: closed cycles never change, so they are served without querying NetworkStatsManager
+ * again, while the current cycle is always loaded. The cycle lists of the chart and of an app are
+ * cached as last loaded, so a screen can show them at once while it loads them again.
+ */
+final class DataUsageCache {
+    // Usage keeps being recorded for a while after a cycle ends: the uid bucket (2 hours) holding
+    // the cycle end has to be over and then polled (every 30 minutes).
+    @VisibleForTesting
+    static final long CLOSED_CYCLE_DELAY_MS =
+            2 * DateUtils.HOUR_IN_MILLIS + 30 * DateUtils.MINUTE_IN_MILLIS;
+    @VisibleForTesting
+    static final int MAX_CYCLE_USAGE_SIZE = 32;
+    @VisibleForTesting
+    static final int MAX_CYCLE_LIST_SIZE = 8;
+
+    private static final DataUsageCache sInstance = new DataUsageCache();
+
+    private final LruCache<List<Object>, SparseLongArray> mCycleUsage =
+            new LruCache<>(MAX_CYCLE_USAGE_SIZE);
+    private final LruCache<NetworkTemplate, List<NetworkCycleChartData>> mChartData =
+            new LruCache<>(MAX_CYCLE_LIST_SIZE);
+    private final LruCache<List<Object>, List<NetworkCycleDataForUid>> mUidData =
+            new LruCache<>(MAX_CYCLE_LIST_SIZE);
+
+    @VisibleForTesting
+    DataUsageCache() {
+    }
+
+    static DataUsageCache getInstance() {
+        return sInstance;
+    }
+
+    /** Returns whether the usage of a cycle ending at {@param end} can't change anymore. */
+    static boolean isClosedCycle(long end) {
+        return end + CLOSED_CYCLE_DELAY_MS <= System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the usage of each uid of {@param template} from {@param start} to {@param end}, or
+     * null if it is not cached. The returned array must not be modified.
+     */
+    @Nullable
+    SparseLongArray getCycleUsage(NetworkTemplate template, long start, long end) {
+        return mCycleUsage.get(Arrays.asList(template, start, end));
+    }
+
+    /**
+     * Caches the usage of each uid of {@param template} from {@param start} to {@param end}, if
+     * the cycle is closed. The array must not be modified afterwards.
+     */
+    void putCycleUsage(NetworkTemplate template, long start, long end, SparseLongArray usage) {
+        if (isClosedCycle(end)) {
+            mCycleUsage.put(Arrays.asList(template, start, end), usage);
+        }
+    }
+
+    /** Returns the cycles of the chart of {@param template} as last loaded, or null. */
+    @Nullable
+    List<NetworkCycleChartData> getChartData(NetworkTemplate template) {
+        return mChartData.get(template);
+    }
+
+    void putChartData(NetworkTemplate template, @Nullable List<NetworkCycleChartData> data) {
+        if (data != null) {
+            mChartData.put(template, data);
+        }
+    }
+
+    /**
+     * Returns the cycles of {@param uids} of {@param template} as last loaded for
+     * {@param cycles}, or null.
+     */
+    @Nullable
+    List<NetworkCycleDataForUid> getUidData(NetworkTemplate template, SparseBooleanArray uids,
+            @Nullable List<Long> cycles) {
+        return mUidData.get(getUidDataKey(template, uids, cycles));
+    }
+
+    void putUidData(NetworkTemplate template, SparseBooleanArray uids,
+            @Nullable List<Long> cycles, @Nullable List<NetworkCycleDataForUid> data) {
+        if (data != null) {
+            mUidData.put(getUidDataKey(template, uids, cycles), data);
+        }
+    }
+
+    void clear() {
+        mCycleUsage.evictAll();
+        mChartData.evictAll();
+        mUidData.evictAll();
+    }
+
+    private static List<Object> getUidDataKey(NetworkTemplate template, SparseBooleanArray uids,
+            @Nullable List<Long> cycles) {
+        final List<Integer> uidList = new ArrayList<>(uids.size());
+        for (int i = 0; i < uids.size(); i++) {
+            uidList.add(uids.keyAt(i));
+        }
+        return Arrays.asList(template, uidList,
+                cycles != null ? new ArrayList<>(cycles) : null);
+    }
+}
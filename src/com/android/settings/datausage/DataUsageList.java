@@ -14,25 +14,15 @@
 
 package com.android.settings.datausage;
 
-import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
-import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
-import static android.net.NetworkPolicyManager.POLICY_REJECT_METERED_BACKGROUND;
-
 import android.app.Activity;
-import android.app.ActivityManager;
 import android.app.settings.SettingsEnums;
-import android.app.usage.NetworkStats;
-import android.app.usage.NetworkStats.Bucket;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.UserInfo;
 import android.graphics.Color;
 import android.net.ConnectivityManager;
 import android.net.NetworkPolicy;
 import android.net.NetworkTemplate;
 import android.os.Bundle;
-import android.os.Process;
-import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.Settings;
 import android.telephony.SubscriptionInfo;
@@ -64,11 +54,9 @@ import com.android.settings.widget.LoadingViewController;
 import com.android.settingslib.AppItem;
 import com.android.settingslib.net.NetworkCycleChartData;
 import com.android.settingslib.net.NetworkCycleChartDataLoader;
-import com.android.settingslib.net.NetworkStatsSummaryLoader;
 import com.android.settingslib.net.UidDetailProvider;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -228,6 +216,13 @@ public class DataUsageList extends DataUsageBaseFragment
                 buildArgs(mTemplate), mNetworkCycleDataCallbacks);
 
         updateBody();
+
+        // Shows the cycles as last loaded until they are loaded again.
+        final List<NetworkCycleChartData> cachedData = mTemplate != null
+                ? DataUsageCache.getInstance().getChartData(mTemplate) : null;
+        if (cachedData != null) {
+            bindCycleData(cachedData);
+        }
     }
 
     @Override
@@ -376,6 +371,18 @@ public class DataUsageList extends DataUsageBaseFragment
         updateDetailData();
     }
 
+    /**
+     * Updates the chart and total usage of the selected cycle without loading its app usage again.
+     */
+    private void updateCycleUsage() {
+        final int position = mCycleSpinner.getSelectedItemPosition();
+        if (mCycleData == null || position < 0 || position >= mCycleData.size()) {
+            return;
+        }
+        mChart.setNetworkCycleData(mCycleData.get(position));
+        updateTotalUsage();
+    }
+
     /**
      * Update details based on {@link #mChart} inspection range depending on
      * current mode. Updates {@link #mAdapter} with sorted list
@@ -388,6 +395,10 @@ public class DataUsageList extends DataUsageBaseFragment
         getLoaderManager().restartLoader(LOADER_SUMMARY, null /* args */,
                 mNetworkStatsDetailCallbacks);
 
+        updateTotalUsage();
+    }
+
+    private void updateTotalUsage() {
         final long totalBytes = mCycleData != null && !mCycleData.isEmpty()
             ? mCycleData.get(mCycleSpinner.getSelectedItemPosition()).getTotalUsage() : 0;
         final CharSequence totalPhrase = DataUsageUtils.formatDataUsage(getActivity(), totalBytes);
@@ -395,105 +406,52 @@ public class DataUsageList extends DataUsageBaseFragment
     }
 
     /**
-     * Bind the given {@link NetworkStats}, or {@code null} to clear list.
+     * Bind the given {@link AppsDataUsageLoader.Result}, or {@code null} to clear list.
+     * Preferences of apps which are still in the list are updated and reordered instead of being
+     * created again.
      */
-    private void bindStats(NetworkStats stats, int[] restrictedUids) {
-        mApps.removeAll();
-        if (stats == null) {
+    private void bindStats(AppsDataUsageLoader.Result result) {
+        if (result == null) {
+            mApps.removeAll();
             if (LOGD) {
                 Log.d(TAG, "No network stats data. App list cleared.");
             }
             return;
         }
 
-        final ArrayList<AppItem> items = new ArrayList<>();
-        long largest = 0;
-
-        final int currentUserId = ActivityManager.getCurrentUser();
-        final UserManager userManager = UserManager.get(getContext());
-        final List<UserHandle> profiles = userManager.getUserProfiles();
-        final SparseArray<AppItem> knownItems = new SparseArray<AppItem>();
-
-        final Bucket bucket = new Bucket();
-        while (stats.hasNextBucket() && stats.getNextBucket(bucket)) {
-            // Decide how to collapse items together
-            final int uid = bucket.getUid();
-            final int collapseKey;
-            final int category;
-            final int userId = UserHandle.getUserId(uid);
-            if (UserHandle.isApp(uid) || Process.isSdkSandboxUid(uid)) {
-                if (profiles.contains(new UserHandle(userId))) {
-                    if (userId != currentUserId) {
-                        // Add to a managed user item.
-                        final int managedKey = UidDetailProvider.buildKeyForUser(userId);
-                        largest = accumulate(managedKey, knownItems, bucket,
-                            AppItem.CATEGORY_USER, items, largest);
-                    }
-                    // Map SDK sandbox back to its corresponding app
-                    if (Process.isSdkSandboxUid(uid)) {
-                        collapseKey = Process.getAppUidForSdkSandboxUid(uid);
-                    } else {
-                        collapseKey = uid;
-                    }
-                    category = AppItem.CATEGORY_APP;
-                } else {
-                    // If it is a removed user add it to the removed users' key
-                    final UserInfo info = userManager.getUserInfo(userId);
-                    if (info == null) {
-                        collapseKey = UID_REMOVED;
-                        category = AppItem.CATEGORY_APP;
-                    } else {
-                        // Add to other user item.
-                        collapseKey = UidDetailProvider.buildKeyForUser(userId);
-                        category = AppItem.CATEGORY_USER;
-                    }
-                }
-            } else if (uid == UID_REMOVED || uid == UID_TETHERING
-                    || uid == Process.OTA_UPDATE_UID) {
-                collapseKey = uid;
-                category = AppItem.CATEGORY_APP;
+        final SparseArray<AppDataUsagePreference> oldPreferences = new SparseArray<>();
+        for (int i = mApps.getPreferenceCount() - 1; i >= 0; i--) {
+            final Preference preference = mApps.getPreference(i);
+            if (preference instanceof AppDataUsagePreference) {
+                final AppDataUsagePreference appPreference = (AppDataUsagePreference) preference;
+                oldPreferences.put(appPreference.getItem().key, appPreference);
             } else {
-                collapseKey = android.os.Process.SYSTEM_UID;
-                category = AppItem.CATEGORY_APP;
+                mApps.removePreference(preference);
             }
-            largest = accumulate(collapseKey, knownItems, bucket, category, items, largest);
         }
-        stats.close();
-
-        final int restrictedUidsMax = restrictedUids.length;
-        for (int i = 0; i < restrictedUidsMax; ++i) {
-            final int uid = restrictedUids[i];
-            // Only splice in restricted state for current user or managed users
-            if (!profiles.contains(new UserHandle(UserHandle.getUserId(uid)))) {
-                continue;
-            }
 
-            AppItem item = knownItems.get(uid);
-            if (item == null) {
-                item = new AppItem(uid);
-                item.total = -1;
-                item.addUid(uid);
-                items.add(item);
-                knownItems.put(item.key, item);
-            }
-            item.restricted = true;
-        }
-
-        Collections.sort(items);
+        final List<AppItem> items = result.items;
         for (int i = 0; i < items.size(); i++) {
-            final int percentTotal = largest != 0 ? (int) (items.get(i).total * 100 / largest) : 0;
-            final AppDataUsagePreference preference = new AppDataUsagePreference(getContext(),
-                    items.get(i), percentTotal, mUidDetailProvider);
-            preference.setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
-                @Override
-                public boolean onPreferenceClick(Preference preference) {
-                    AppDataUsagePreference pref = (AppDataUsagePreference) preference;
-                    AppItem item = pref.getItem();
-                    startAppDataUsage(item);
+            final AppItem item = items.get(i);
+            final int percentTotal =
+                    result.largest != 0 ? (int) (item.total * 100 / result.largest) : 0;
+            AppDataUsagePreference preference = oldPreferences.get(item.key);
+            if (preference != null) {
+                oldPreferences.remove(item.key);
+                preference.setItem(item, percentTotal);
+            } else {
+                preference = new AppDataUsagePreference(getContext(), item, percentTotal,
+                        mUidDetailProvider);
+                preference.setOnPreferenceClickListener(pref -> {
+                    startAppDataUsage(((AppDataUsagePreference) pref).getItem());
                     return true;
-                }
-            });
-            mApps.addPreference(preference);
+                });
+                mApps.addPreference(preference);
+            }
+            preference.setOrder(i);
+        }
+        for (int i = 0; i < oldPreferences.size(); i++) {
+            mApps.removePreference(oldPreferences.valueAt(i));
         }
     }
 
@@ -523,30 +481,6 @@ public class DataUsageList extends DataUsageBaseFragment
                 .launch();
     }
 
-    /**
-     * Accumulate data usage of a network stats entry for the item mapped by the collapse key.
-     * Creates the item if needed.
-     *
-     * @param collapseKey  the collapse key used to map the item.
-     * @param knownItems   collection of known (already existing) items.
-     * @param bucket       the network stats bucket to extract data usage from.
-     * @param itemCategory the item is categorized on the list view by this category. Must be
-     */
-    private static long accumulate(int collapseKey, final SparseArray<AppItem> knownItems,
-            Bucket bucket, int itemCategory, ArrayList<AppItem> items, long largest) {
-        final int uid = bucket.getUid();
-        AppItem item = knownItems.get(collapseKey);
-        if (item == null) {
-            item = new AppItem(collapseKey);
-            item.category = itemCategory;
-            items.add(item);
-            knownItems.put(item.key, item);
-        }
-        item.addUid(uid);
-        item.total += bucket.getRxBytes() + bucket.getTxBytes();
-        return Math.max(largest, item.total);
-    }
-
     private final OnItemSelectedListener mCycleListener = new OnItemSelectedListener() {
         @Override
         public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
@@ -559,6 +493,14 @@ public class DataUsageList extends DataUsageBaseFragment
         }
     };
 
+    private void bindCycleData(List<NetworkCycleChartData> data) {
+        mLoadingViewController.showContent(false /* animate */);
+        mCycleData = data;
+        // calculate policy cycles based on available data
+        updatePolicy();
+        mCycleSpinner.setVisibility(View.VISIBLE);
+    }
+
     @VisibleForTesting
     final LoaderCallbacks<List<NetworkCycleChartData>> mNetworkCycleDataCallbacks =
             new LoaderCallbacks<List<NetworkCycleChartData>>() {
@@ -572,11 +514,17 @@ public class DataUsageList extends DataUsageBaseFragment
         @Override
         public void onLoadFinished(Loader<List<NetworkCycleChartData>> loader,
                 List<NetworkCycleChartData> data) {
-            mLoadingViewController.showContent(false /* animate */);
-            mCycleData = data;
-            // calculate policy cycles based on available data
-            updatePolicy();
-            mCycleSpinner.setVisibility(View.VISIBLE);
+            if (mTemplate != null) {
+                DataUsageCache.getInstance().putChartData(mTemplate, data);
+            }
+            // A selected cycle bound from the cached cycles keeps its app usage, only the chart
+            // and total are refreshed from the loaded cycles.
+            final CycleAdapter.CycleItem displayedCycle = mLastDisplayedCycle;
+            mCycles = null;
+            bindCycleData(data);
+            if (displayedCycle != null && displayedCycle == mLastDisplayedCycle) {
+                updateCycleUsage();
+            }
         }
 
         @Override
@@ -585,28 +533,24 @@ public class DataUsageList extends DataUsageBaseFragment
         }
     };
 
-    private final LoaderCallbacks<NetworkStats> mNetworkStatsDetailCallbacks =
-            new LoaderCallbacks<NetworkStats>() {
+    private final LoaderCallbacks<AppsDataUsageLoader.Result> mNetworkStatsDetailCallbacks =
+            new LoaderCallbacks<AppsDataUsageLoader.Result>() {
         @Override
-        public Loader<NetworkStats> onCreateLoader(int id, Bundle args) {
-            return new NetworkStatsSummaryLoader.Builder(getContext())
-                    .setStartTime(mChart.getInspectStart())
-                    .setEndTime(mChart.getInspectEnd())
-                    .setNetworkTemplate(mTemplate)
-                    .build();
+        public Loader<AppsDataUsageLoader.Result> onCreateLoader(int id, Bundle args) {
+            return new AppsDataUsageLoader(getContext(), services.mPolicyManager, mTemplate,
+                    mChart.getInspectStart(), mChart.getInspectEnd());
         }
 
         @Override
-        public void onLoadFinished(Loader<NetworkStats> loader, NetworkStats data) {
-            final int[] restrictedUids = services.mPolicyManager.getUidsWithPolicy(
-                    POLICY_REJECT_METERED_BACKGROUND);
-            bindStats(data, restrictedUids);
+        public void onLoadFinished(Loader<AppsDataUsageLoader.Result> loader,
+                AppsDataUsageLoader.Result data) {
+            bindStats(data);
             updateEmptyVisible();
         }
 
         @Override
-        public void onLoaderReset(Loader<NetworkStats> loader) {
-            bindStats(null, new int[0]);
+        public void onLoaderReset(Loader<AppsDataUsageLoader.Result> loader) {
+            bindStats(null);
             updateEmptyVisible();
         }
 
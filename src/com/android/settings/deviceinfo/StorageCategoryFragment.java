@@ -79,6 +79,8 @@ public class StorageCategoryFragment extends DashboardFragment
     private StorageEntry mSelectedStorageEntry;
     private PrivateStorageInfo mStorageInfo;
     private SparseArray<StorageAsyncLoader.StorageResult> mAppsResult;
+    // Results of the users loaded so far, until mAppsResult is loaded.
+    private SparseArray<StorageAsyncLoader.StorageResult> mPartialAppsResult;
 
     private StorageItemPreferenceController mPreferenceController;
     private List<AbstractPreferenceController> mSecondaryUsers;
@@ -116,6 +118,7 @@ public class StorageCategoryFragment extends DashboardFragment
         if (mSelectedStorageEntry.isPrivate()) {
             mStorageInfo = null;
             mAppsResult = null;
+            mPartialAppsResult = null;
             if (mStorageCacheHelper.hasCachedSizeInfo()) {
                 mPreferenceController.onLoadFinished(mAppsResult, mUserId);
             } else {
@@ -202,7 +205,7 @@ public class StorageCategoryFragment extends DashboardFragment
     }
 
     private void onReceivedSizes() {
-        if (mStorageInfo == null || mAppsResult == null) {
+        if (mStorageInfo == null || (mAppsResult == null && mPartialAppsResult == null)) {
             return;
         }
 
@@ -225,8 +228,13 @@ public class StorageCategoryFragment extends DashboardFragment
             }
         }
 
-        mPreferenceController.onLoadFinished(mAppsResult, mUserId);
-        updateSecondaryUserControllers(mSecondaryUsers, mAppsResult);
+        if (mAppsResult == null) {
+            mPreferenceController.onPartialResultLoaded(mPartialAppsResult, mUserId);
+            updateSecondaryUserControllers(mSecondaryUsers, mPartialAppsResult);
+        } else {
+            mPreferenceController.onLoadFinished(mAppsResult, mUserId);
+            updateSecondaryUserControllers(mSecondaryUsers, mAppsResult);
+        }
         setSecondaryUsersVisible(true);
     }
 
@@ -279,10 +287,21 @@ public class StorageCategoryFragment extends DashboardFragment
     public Loader<SparseArray<StorageAsyncLoader.StorageResult>> onCreateLoader(int id,
             Bundle args) {
         final Context context = getContext();
-        return new StorageAsyncLoader(context, mUserManager,
+        final StorageAsyncLoader loader = new StorageAsyncLoader(context, mUserManager,
                 mSelectedStorageEntry.getFsUuid(),
                 new StorageStatsSource(context),
                 context.getPackageManager());
+        loader.setPartialResultListener(this::onPartialStorageResult);
+        return loader;
+    }
+
+    private void onPartialStorageResult(SparseArray<StorageAsyncLoader.StorageResult> result) {
+        // Waits for the complete result if the current user is not loaded yet.
+        if (mAppsResult != null || result.get(mUserId) == null) {
+            return;
+        }
+        mPartialAppsResult = result;
+        onReceivedSizes();
     }
 
     @Override
@@ -96,6 +96,8 @@ public class StorageDashboardFragment extends DashboardFragment
     private StorageEntry mSelectedStorageEntry;
     private PrivateStorageInfo mStorageInfo;
     private SparseArray<StorageAsyncLoader.StorageResult> mAppsResult;
+    // Results of the users loaded so far, until mAppsResult is loaded.
+    private SparseArray<StorageAsyncLoader.StorageResult> mPartialAppsResult;
 
     private StorageItemPreferenceController mPreferenceController;
     private VolumeOptionMenuController mOptionMenuController;
@@ -246,6 +248,7 @@ public class StorageDashboardFragment extends DashboardFragment
         if (mSelectedStorageEntry.isPrivate()) {
             mStorageInfo = null;
             mAppsResult = null;
+            mPartialAppsResult = null;
             // Hide the loading spinner if there is cached data.
             if (mStorageCacheHelper.hasCachedSizeInfo()) {
                 //TODO(b/220259287): apply cache mechanism to secondary user
@@ -374,7 +377,7 @@ public class StorageDashboardFragment extends DashboardFragment
     }
 
     private void onReceivedSizes() {
-        if (mStorageInfo == null || mAppsResult == null) {
+        if (mStorageInfo == null || (mAppsResult == null && mPartialAppsResult == null)) {
             return;
         }
 
@@ -397,8 +400,13 @@ public class StorageDashboardFragment extends DashboardFragment
             }
         }
 
-        mPreferenceController.onLoadFinished(mAppsResult, mUserId);
-        updateSecondaryUserControllers(mSecondaryUsers, mAppsResult);
+        if (mAppsResult == null) {
+            mPreferenceController.onPartialResultLoaded(mPartialAppsResult, mUserId);
+            updateSecondaryUserControllers(mSecondaryUsers, mPartialAppsResult);
+        } else {
+            mPreferenceController.onLoadFinished(mAppsResult, mUserId);
+            updateSecondaryUserControllers(mSecondaryUsers, mAppsResult);
+        }
         setSecondaryUsersVisible(true);
     }
 
@@ -480,10 +488,21 @@ public class StorageDashboardFragment extends DashboardFragment
     public Loader<SparseArray<StorageAsyncLoader.StorageResult>> onCreateLoader(int id,
             Bundle args) {
         final Context context = getContext();
-        return new StorageAsyncLoader(context, mUserManager,
+        final StorageAsyncLoader loader = new StorageAsyncLoader(context, mUserManager,
                 mSelectedStorageEntry.getFsUuid(),
                 new StorageStatsSource(context),
                 context.getPackageManager());
+        loader.setPartialResultListener(this::onPartialStorageResult);
+        return loader;
+    }
+
+    private void onPartialStorageResult(SparseArray<StorageAsyncLoader.StorageResult> result) {
+        // Waits for the complete result if the current user is not loaded yet.
+        if (mAppsResult != null || result.get(mUserId) == null) {
+            return;
+        }
+        mPartialAppsResult = result;
+        onReceivedSizes();
     }
 
     @Override
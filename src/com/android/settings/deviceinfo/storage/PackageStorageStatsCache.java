@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.UserHandle;
+import android.text.format.DateUtils;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.applications.StorageStatsSource;
+
+import java.util.Set;
+
+/**
+ * A persistent cache of the storage stats of each package installed for a user.
+ * <p/>
+ * Entries are keyed by volume uuid and package name, and are only served for the lastUpdateTime
+ * of the package they were loaded for, so an updated or reinstalled package is always loaded
+ * again. Entries older than {@link #MAX_AGE_MS} are stale, since the data of an app keeps
+ * changing without any broadcast. {@link PackageStorageStatsCacheReceiver} drops the entries of
+ * packages whose data is cleared or which are removed.
+ * <p/>
+ * Only the stats of the user running this process are cached: the package broadcasts of another
+ * user are delivered to the Settings of that user, so its entries could never be dropped. A cache
+ * of another user caches nothing.
+ */
+public class PackageStorageStatsCache {
+    private static final String TAG = "PackageStorageStatsCache";
+    private static final String SHARED_PREFERENCE_NAME = "PackageStorageStatsCache";
+    private static final String KEY_SEPARATOR = "/";
+    private static final String VALUE_SEPARATOR = ",";
+    // lastUpdateTime, cachedTime, codeBytes, dataBytes, cacheBytes, cacheQuotaBytes.
+    private static final int VALUE_FIELD_COUNT = 6;
+
+    @VisibleForTesting
+    static final long MAX_AGE_MS = DateUtils.HOUR_IN_MILLIS;
+    /** Cache quota of an entry which is loaded without it. */
+    public static final long UNKNOWN_CACHE_QUOTA = -1L;
+
+    // Null if the stats of the user are not cached.
+    @Nullable
+    private final SharedPreferences mSharedPreferences;
+    // Guarded by this, holds the changes until apply() is called.
+    private SharedPreferences.Editor mEditor;
+
+    public PackageStorageStatsCache(Context context, int userId) {
+        mSharedPreferences = isSupported(userId)
+                ? context.getSharedPreferences(SHARED_PREFERENCE_NAME + userId,
+                        Context.MODE_PRIVATE)
+                : null;
+    }
+
+    /** Returns whether the stats of {@param userId} are cached by this process. */
+    public static boolean isSupported(int userId) {
+        return userId == UserHandle.myUserId();
+    }
+
+    /**
+     * Returns the cached stats of {@param packageName} on {@param volumeUuid}, or null if they are
+     * not cached, stale or loaded for another {@param lastUpdateTime}.
+     */
+    @Nullable
+    public synchronized Entry get(@Nullable String volumeUuid, String packageName,
+            long lastUpdateTime) {
+        if (mSharedPreferences == null) {
+            return null;
+        }
+        final String value = mSharedPreferences.getString(getKey(volumeUuid, packageName), null);
+        if (value == null) {
+            return null;
+        }
+        final Entry entry = Entry.parse(value);
+        if (entry == null || entry.mLastUpdateTime != lastUpdateTime) {
+            return null;
+        }
+        final long age = System.currentTimeMillis() - entry.mCachedTime;
+        return age >= 0 && age < MAX_AGE_MS ? entry : null;
+    }
+
+    /**
+     * Caches the stats of {@param packageName} on {@param volumeUuid}. The change is kept in
+     * memory until {@link #apply()} is called.
+     * @param cacheQuotaBytes the cache quota of the package, or {@link #UNKNOWN_CACHE_QUOTA}
+     */
+    public synchronized void put(@Nullable String volumeUuid, String packageName,
+            long lastUpdateTime, StorageStatsSource.AppStorageStats stats, long cacheQuotaBytes) {
+        if (mSharedPreferences == null) {
+            return;
+        }
+        // Re-caching an entry with a new quota doesn't make its stats any fresher.
+        final long cachedTime = stats instanceof Entry
+                ? ((Entry) stats).mCachedTime : System.currentTimeMillis();
+        final Entry entry = new Entry(lastUpdateTime, cachedTime,
+                stats.getCodeBytes(), stats.getDataBytes(), stats.getCacheBytes(), cacheQuotaBytes);
+        getEditor().putString(getKey(volumeUuid, packageName), entry.toString());
+    }
+
+    /** Drops the cached stats of {@param packageName} on all volumes. */
+    public synchronized void invalidate(String packageName) {
+        if (mSharedPreferences == null) {
+            return;
+        }
+        final String suffix = KEY_SEPARATOR + packageName;
+        for (String key : mSharedPreferences.getAll().keySet()) {
+            if (key.endsWith(suffix)) {
+                getEditor().remove(key);
+            }
+        }
+    }
+
+    /** Drops the cached stats on {@param volumeUuid} of packages not in {@param packageNames}. */
+    public synchronized void retainPackages(@Nullable String volumeUuid,
+            Set<String> packageNames) {
+        if (mSharedPreferences == null) {
+            return;
+        }
+        final String prefix = volumeUuid + KEY_SEPARATOR;
+        for (String key : mSharedPreferences.getAll().keySet()) {
+            if (key.startsWith(prefix)
+                    && !packageNames.contains(key.substring(prefix.length()))) {
+                getEditor().remove(key);
+            }
+        }
+    }
+
+    /** Drops all cached stats. */
+    public synchronized void clear() {
+        if (mSharedPreferences == null) {
+            return;
+        }
+        getEditor().clear();
+    }
+
+    /** Writes the pending changes to the disk asynchronously. */
+    public synchronized void apply() {
+        if (mEditor != null) {
+            mEditor.apply();
+            mEditor = null;
+        }
+    }
+
+    private SharedPreferences.Editor getEditor() {
+        if (mEditor == null) {
+            mEditor = mSharedPreferences.edit();
+        }
+        return mEditor;
+    }
+
+    private static String getKey(@Nullable String volumeUuid, String packageName) {
+        return volumeUuid + KEY_SEPARATOR + packageName;
+    }
+
+    /** The cached storage stats of a package. */
+    public static class Entry implements StorageStatsSource.AppStorageStats {
+        private final long mLastUpdateTime;
+        private final long mCachedTime;
+        private final long mCodeBytes;
+        private final long mDataBytes;
+        private final long mCacheBytes;
+        private final long mCacheQuotaBytes;
+
+        private Entry(long lastUpdateTime, long cachedTime, long codeBytes, long dataBytes,
+                long cacheBytes, long cacheQuotaBytes) {
+            mLastUpdateTime = lastUpdateTime;
+            mCachedTime = cachedTime;
+            mCodeBytes = codeBytes;
+            mDataBytes = dataBytes;
+            mCacheBytes = cacheBytes;
+            mCacheQuotaBytes = cacheQuotaBytes;
+        }
+
+        @Override
+        public long getCodeBytes() {
+            return mCodeBytes;
+        }
+
+        @Override
+        public long getDataBytes() {
+            return mDataBytes;
+        }
+
+        @Override
+        public long getCacheBytes() {
+            return mCacheBytes;
+        }
+
+        @Override
+        public long getTotalBytes() {
+            return mCodeBytes + mDataBytes;
+        }
+
+        /** Returns the cache quota, or {@link #UNKNOWN_CACHE_QUOTA} if it was not loaded. */
+        public long getCacheQuotaBytes() {
+            return mCacheQuotaBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.join(VALUE_SEPARATOR,
+                    String.valueOf(mLastUpdateTime),
+                    String.valueOf(mCachedTime),
+                    String.valueOf(mCodeBytes),
+                    String.valueOf(mDataBytes),
+                    String.valueOf(mCacheBytes),
+                    String.valueOf(mCacheQuotaBytes));
+        }
+
+        @Nullable
+        private static Entry parse(String value) {
+            final String[] fields = value.split(VALUE_SEPARATOR);
+            if (fields.length != VALUE_FIELD_COUNT) {
+                return null;
+            }
+            try {
+                return new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                        Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                        Long.parseLong(fields[4]), Long.parseLong(fields[5]));
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Invalid cached stats: " + value, e);
+                return null;
+            }
+        }
+    }
+}
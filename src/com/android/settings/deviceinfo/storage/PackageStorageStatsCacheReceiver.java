@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.UserHandle;
+
+/**
+ * Drops the cached storage stats of a package when its data is cleared or it is removed.
+ * Updated packages don't need it, since their stats are cached for their lastUpdateTime.
+ */
+public class PackageStorageStatsCacheReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        final String action = intent.getAction();
+        if (!Intent.ACTION_PACKAGE_DATA_CLEARED.equals(action)
+                && !Intent.ACTION_PACKAGE_FULLY_REMOVED.equals(action)) {
+            return;
+        }
+        final Uri data = intent.getData();
+        final String packageName = data == null ? null : data.getSchemeSpecificPart();
+        if (packageName == null) {
+            return;
+        }
+        final int uid = intent.getIntExtra(Intent.EXTRA_UID, -1);
+        final int userId = uid < 0 ? UserHandle.myUserId() : UserHandle.getUserId(uid);
+        final PackageStorageStatsCache cache = new PackageStorageStatsCache(context, userId);
+        cache.invalidate(packageName);
+        cache.apply();
+    }
+}
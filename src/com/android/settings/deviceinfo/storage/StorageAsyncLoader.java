@@ -24,41 +24,73 @@ import static android.content.pm.ApplicationInfo.CATEGORY_VIDEO;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.UserInfo;
 import android.database.Cursor;
-import android.net.Uri;
 import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.MediaStore;
 import android.provider.MediaStore.Files.FileColumns;
 import android.provider.MediaStore.MediaColumns;
+import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.Nullable;
+
 import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.utils.AsyncLoaderCompat;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * StorageAsyncLoader is a Loader which loads categorized app information and external stats for all
- * users
+ * users.
+ * <p/>
+ * The apps and the media files of every user are loaded in parallel. Results of the users which
+ * are finished early are passed to the {@link PartialResultListener}, so the storage categories
+ * can be filled in before the slowest user is loaded.
  */
 public class StorageAsyncLoader
         extends AsyncLoaderCompat<SparseArray<StorageAsyncLoader.StorageResult>> {
     private UserManager mUserManager;
     private static final String TAG = "StorageAsyncLoader";
 
+    // Sums the size of media files for each media type, trashed files are summed separately.
+    private static final String[] MEDIA_SIZES_PROJECTION = {
+            FileColumns.MEDIA_TYPE,
+            MediaColumns.IS_TRASHED,
+            "sum(" + MediaColumns.SIZE + ")"};
+    // Documents and other files without a mime type are not counted unless they are trashed.
+    private static final String MEDIA_SIZES_SELECTION =
+            MediaColumns.IS_TRASHED + "=1"
+            + " OR " + FileColumns.MEDIA_TYPE + " IN (" + FileColumns.MEDIA_TYPE_IMAGE
+            + "," + FileColumns.MEDIA_TYPE_VIDEO + "," + FileColumns.MEDIA_TYPE_AUDIO + ")"
+            + " OR " + FileColumns.MIME_TYPE + " IS NOT NULL";
+    private static final String MEDIA_SIZES_GROUP_BY =
+            FileColumns.MEDIA_TYPE + "," + MediaColumns.IS_TRASHED;
+
     private String mUuid;
     private StorageStatsSource mStatsManager;
     private PackageManager mPackageManager;
-    private ArraySet<String> mSeenPackages;
+    private volatile PartialResultListener mPartialResultListener;
+    private final Object mLock = new Object();
+    // Guarded by mLock.
+    private LoadSession mLoadSession;
 
     public StorageAsyncLoader(Context context, UserManager userManager,
             String uuid, StorageStatsSource source, PackageManager pm) {
@@ -69,94 +101,193 @@ public class StorageAsyncLoader
         mPackageManager = pm;
     }
 
+    /**
+     * Sets a listener which receives the results of the users loaded so far on the main thread.
+     * The complete result is still delivered through {@link #deliverResult}.
+     */
+    public void setPartialResultListener(@Nullable PartialResultListener listener) {
+        mPartialResultListener = listener;
+    }
+
     @Override
     public SparseArray<StorageResult> loadInBackground() {
-        return getStorageResultsForUsers();
+        final LoadSession session = new LoadSession();
+        synchronized (mLock) {
+            mLoadSession = session;
+        }
+        try {
+            return getStorageResultsForUsers(session);
+        } finally {
+            synchronized (mLock) {
+                if (mLoadSession == session) {
+                    mLoadSession = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+        synchronized (mLock) {
+            if (mLoadSession != null) {
+                mLoadSession.cancel();
+            }
+        }
     }
 
-    private SparseArray<StorageResult> getStorageResultsForUsers() {
-        mSeenPackages = new ArraySet<>();
-        final SparseArray<StorageResult> results = new SparseArray<>();
+    private SparseArray<StorageResult> getStorageResultsForUsers(LoadSession session) {
+        final long startTime = System.currentTimeMillis();
         final List<UserInfo> infos = mUserManager.getUsers();
 
         // Sort the users by user id ascending.
         Collections.sort(infos,
                 (userInfo, otherUser) -> Integer.compare(userInfo.id, otherUser.id));
 
+        final List<UserLoad> userLoads = new ArrayList<>(infos.size());
         for (UserInfo info : infos) {
-            final StorageResult result = getAppsAndGamesSize(info.id);
-
-            result.imagesSize = getFilesSize(info.id, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                    null /* queryArgs */);
-            result.videosSize = getFilesSize(info.id, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                    null /* queryArgs */);
-            result.audioSize = getFilesSize(info.id, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
-                    null /* queryArgs */);
-
-            final Bundle documentsAndOtherQueryArgs = new Bundle();
-            documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
-                    FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
-                    + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
-            result.documentsAndOtherSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL),
-                    documentsAndOtherQueryArgs);
-
-            final Bundle trashQueryArgs = new Bundle();
-            trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
-            result.trashSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL), trashQueryArgs);
-
-            results.put(info.id, result);
-        }
-        return results;
+            userLoads.add(new UserLoad(info.id));
+        }
+        session.setUserLoads(userLoads);
+        for (UserLoad userLoad : userLoads) {
+            session.addFuture(ThreadUtils.postOnBackgroundThread(() -> {
+                loadAppsAndGamesSize(session, userLoad);
+                onUserLoadPartFinished(session, userLoad);
+            }));
+            session.addFuture(ThreadUtils.postOnBackgroundThread(() -> {
+                loadFilesSize(session, userLoad);
+                onUserLoadPartFinished(session, userLoad);
+            }));
+        }
+        session.waitForFutures();
+        if (session.isCancelled()) {
+            // The result is dropped by the loader anyway.
+            return null;
+        }
+        Log.d(TAG, String.format("load storage results of %d users in %d/ms",
+                userLoads.size(), System.currentTimeMillis() - startTime));
+        return session.buildResults();
+    }
+
+    private void onUserLoadPartFinished(LoadSession session, UserLoad userLoad) {
+        final SparseArray<StorageResult> partialResult =
+                session.onUserLoadPartFinished(userLoad);
+        if (partialResult == null || mPartialResultListener == null) {
+            return;
+        }
+        ThreadUtils.postOnMainThread(() -> {
+            final PartialResultListener listener = mPartialResultListener;
+            if (listener == null || session.isCancelled() || isReset() || isAbandoned()) {
+                return;
+            }
+            listener.onPartialResult(partialResult);
+        });
     }
 
-    private long getFilesSize(int userId, Uri uri, Bundle queryArgs) {
+    private void loadFilesSize(LoadSession session, UserLoad userLoad) {
         final Context perUserContext;
         try {
             perUserContext = getContext().createPackageContextAsUser(
                 getContext().getApplicationContext().getPackageName(),
                 0 /* flags= */,
-                UserHandle.of(userId));
+                UserHandle.of(userLoad.mUserId));
         } catch (NameNotFoundException e) {
-            Log.e(TAG, "Not able to get Context for user ID " + userId);
-            return 0L;
+            Log.e(TAG, "Not able to get Context for user ID " + userLoad.mUserId);
+            return;
         }
 
+        // Sums the sizes of all categories in one query instead of one query for each.
+        final Bundle queryArgs = new Bundle();
+        queryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_INCLUDE);
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MEDIA_SIZES_SELECTION);
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_GROUP_BY, MEDIA_SIZES_GROUP_BY);
+        final StorageResult result = userLoad.mResult;
         try (Cursor cursor = perUserContext.getContentResolver().query(
-                uri,
-                new String[] {"sum(" + MediaColumns.SIZE + ")"},
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL),
+                MEDIA_SIZES_PROJECTION,
                 queryArgs,
-                null /* cancellationSignal */)) {
+                session.mCancellationSignal)) {
             if (cursor == null) {
-                return 0L;
+                return;
             }
-            return cursor.moveToFirst() ? cursor.getLong(0) : 0L;
+            while (cursor.moveToNext()) {
+                final long size = cursor.getLong(2);
+                if (cursor.getInt(1) != 0) {
+                    result.trashSize += size;
+                    continue;
+                }
+                switch (cursor.getInt(0)) {
+                    case FileColumns.MEDIA_TYPE_IMAGE:
+                        result.imagesSize += size;
+                        break;
+                    case FileColumns.MEDIA_TYPE_VIDEO:
+                        result.videosSize += size;
+                        break;
+                    case FileColumns.MEDIA_TYPE_AUDIO:
+                        result.audioSize += size;
+                        break;
+                    default:
+                        result.documentsAndOtherSize += size;
+                        break;
+                }
+            }
+        } catch (OperationCanceledException e) {
+            Log.d(TAG, "Loading files size is cancelled for user ID " + userLoad.mUserId);
         }
     }
 
-    private StorageResult getAppsAndGamesSize(int userId) {
+    private void loadAppsAndGamesSize(LoadSession session, UserLoad userLoad) {
         Log.d(TAG, "Loading apps");
-        final List<ApplicationInfo> applicationInfos =
-                mPackageManager.getInstalledApplicationsAsUser(0, userId);
-        final StorageResult result = new StorageResult();
+        final int userId = userLoad.mUserId;
+        final List<PackageInfo> packageInfos =
+                mPackageManager.getInstalledPackagesAsUser(0, userId);
+        final StorageResult result = userLoad.mResult;
         final UserHandle myUser = UserHandle.of(userId);
-        for (int i = 0, size = applicationInfos.size(); i < size; i++) {
-            final ApplicationInfo app = applicationInfos.get(i);
+        final PackageStorageStatsCache statsCache = new PackageStorageStatsCache(getContext(),
+                userId);
+        final ArraySet<String> installedPackages = new ArraySet<>(packageInfos.size());
+        int cachedCount = 0;
+        for (int i = 0, size = packageInfos.size(); i < size; i++) {
+            if (session.isCancelled()) {
+                // Keeps the stats loaded so far for the next load.
+                statsCache.apply();
+                return;
+            }
+            final PackageInfo packageInfo = packageInfos.get(i);
+            final ApplicationInfo app = packageInfo.applicationInfo;
+            if (app == null) {
+                continue;
+            }
+            installedPackages.add(app.packageName);
 
             StorageStatsSource.AppStorageStats stats;
-            try {
-                stats = mStatsManager.getStatsForPackage(mUuid, app.packageName, myUser);
-            } catch (NameNotFoundException | IOException e) {
-                // This may happen if the package was removed during our calculation.
-                Log.w(TAG, "App unexpectedly not found", e);
-                continue;
+            long cacheQuota;
+            final PackageStorageStatsCache.Entry cachedStats =
+                    statsCache.get(mUuid, app.packageName, packageInfo.lastUpdateTime);
+            if (cachedStats != null) {
+                stats = cachedStats;
+                cacheQuota = cachedStats.getCacheQuotaBytes();
+                // The stats may be cached by the app info screen, which doesn't need the quota.
+                if (cacheQuota == PackageStorageStatsCache.UNKNOWN_CACHE_QUOTA) {
+                    cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
+                    statsCache.put(mUuid, app.packageName, packageInfo.lastUpdateTime, stats,
+                            cacheQuota);
+                }
+                cachedCount++;
+            } else {
+                try {
+                    stats = mStatsManager.getStatsForPackage(mUuid, app.packageName, myUser);
+                } catch (NameNotFoundException | IOException e) {
+                    // This may happen if the package was removed during our calculation.
+                    Log.w(TAG, "App unexpectedly not found", e);
+                    continue;
+                }
+                cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
+                statsCache.put(mUuid, app.packageName, packageInfo.lastUpdateTime, stats,
+                        cacheQuota);
             }
 
             final long dataSize = stats.getDataBytes();
-            final long cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
             final long cacheBytes = stats.getCacheBytes();
             long blamedSize = dataSize + stats.getCodeBytes();
             // Technically, we could overages as freeable on the storage settings screen.
@@ -167,13 +298,9 @@ public class StorageAsyncLoader
                 blamedSize = blamedSize - cacheBytes + cacheQuota;
             }
 
-            // Code bytes may share between different profiles. To know all the duplicate code size
-            // and we can get a reasonable system size in StorageItemPreferenceController.
-            if (mSeenPackages.contains(app.packageName)) {
-                result.duplicateCodeSize += stats.getCodeBytes();
-            } else {
-                mSeenPackages.add(app.packageName);
-            }
+            // Code bytes may share between different profiles. They are counted as duplicate
+            // once the results of all users are collected, see LoadSession#buildResults.
+            userLoad.mCodeBytes.put(app.packageName, stats.getCodeBytes());
 
             switch (app.category) {
                 case CATEGORY_GAME:
@@ -194,6 +321,10 @@ public class StorageAsyncLoader
                     break;
             }
         }
+        statsCache.retainPackages(mUuid, installedPackages);
+        statsCache.apply();
+        Log.d(TAG, String.format("load stats of %d packages for user %d, %d from cache",
+                installedPackages.size(), userId, cachedCount));
 
         Log.d(TAG, "Loading external stats");
         try {
@@ -203,7 +334,6 @@ public class StorageAsyncLoader
             Log.w(TAG, e);
         }
         Log.d(TAG, "Obtaining result completed");
-        return result;
     }
 
     @Override
@@ -228,6 +358,144 @@ public class StorageAsyncLoader
         public StorageStatsSource.ExternalStorageStats externalStats;
     }
 
+    /** Receives the storage results of the users which are loaded so far. */
+    public interface PartialResultListener {
+        /**
+         * Called on the main thread each time a user is loaded, except for the last one whose
+         * result is delivered as the complete result.
+         */
+        void onPartialResult(SparseArray<StorageResult> result);
+    }
+
+    /** Loads the storage result of one user, its apps and files are loaded in parallel. */
+    private static class UserLoad {
+        private final int mUserId;
+        private final StorageResult mResult = new StorageResult();
+        // Code bytes of each package installed for the user.
+        private final Map<String, Long> mCodeBytes = new ArrayMap<>();
+        // Guarded by LoadSession#mLock.
+        private int mPendingParts = 2;
+
+        private UserLoad(int userId) {
+            mUserId = userId;
+        }
+    }
+
+    /** Tracks the background work of one {@link #loadInBackground} call. */
+    private static class LoadSession {
+        private final CancellationSignal mCancellationSignal = new CancellationSignal();
+        private final List<Future<?>> mFutures = new ArrayList<>();
+        private final Object mLock = new Object();
+        // Guarded by mLock.
+        private List<UserLoad> mUserLoads = Collections.emptyList();
+        private int mPendingUserLoads;
+        private volatile boolean mIsCancelled;
+
+        private void setUserLoads(List<UserLoad> userLoads) {
+            synchronized (mLock) {
+                mUserLoads = userLoads;
+                mPendingUserLoads = userLoads.size();
+            }
+        }
+
+        private void addFuture(@Nullable Future<?> future) {
+            // The future is null if the work is already done on the calling thread.
+            if (future == null) {
+                return;
+            }
+            synchronized (mLock) {
+                mFutures.add(future);
+            }
+        }
+
+        /**
+         * Returns the results of the finished users if {@param userLoad} is finished and there are
+         * other users still loading, or null otherwise.
+         */
+        @Nullable
+        private SparseArray<StorageResult> onUserLoadPartFinished(UserLoad userLoad) {
+            synchronized (mLock) {
+                if (--userLoad.mPendingParts > 0 || --mPendingUserLoads == 0 || mIsCancelled) {
+                    return null;
+                }
+                return buildResults();
+            }
+        }
+
+        private void waitForFutures() {
+            final List<Future<?>> futures;
+            synchronized (mLock) {
+                futures = new ArrayList<>(mFutures);
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (CancellationException e) {
+                    // The loading is cancelled, the result is dropped.
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                    return;
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        }
+
+        private void cancel() {
+            mIsCancelled = true;
+            mCancellationSignal.cancel();
+            synchronized (mLock) {
+                for (Future<?> future : mFutures) {
+                    future.cancel(true /* mayInterruptIfRunning */);
+                }
+            }
+        }
+
+        private boolean isCancelled() {
+            return mIsCancelled;
+        }
+
+        /**
+         * Builds the results of the finished users. Code bytes of a package installed for several
+         * users are counted as duplicate for all of them except the one with the smallest user id.
+         */
+        private SparseArray<StorageResult> buildResults() {
+            synchronized (mLock) {
+                final SparseArray<StorageResult> results = new SparseArray<>();
+                final ArraySet<String> seenPackages = new ArraySet<>();
+                for (UserLoad userLoad : mUserLoads) {
+                    if (userLoad.mPendingParts > 0) {
+                        continue;
+                    }
+                    final StorageResult result = copyOf(userLoad.mResult);
+                    for (Map.Entry<String, Long> entry : userLoad.mCodeBytes.entrySet()) {
+                        if (!seenPackages.add(entry.getKey())) {
+                            result.duplicateCodeSize += entry.getValue();
+                        }
+                    }
+                    results.put(userLoad.mUserId, result);
+                }
+                return results;
+            }
+        }
+
+        private static StorageResult copyOf(StorageResult result) {
+            final StorageResult copy = new StorageResult();
+            copy.gamesSize = result.gamesSize;
+            copy.allAppsExceptGamesSize = result.allAppsExceptGamesSize;
+            copy.audioSize = result.audioSize;
+            copy.imagesSize = result.imagesSize;
+            copy.videosSize = result.videosSize;
+            copy.documentsAndOtherSize = result.documentsAndOtherSize;
+            copy.trashSize = result.trashSize;
+            copy.cacheSize = result.cacheSize;
+            copy.duplicateCodeSize = result.duplicateCodeSize;
+            copy.externalStats = result.externalStats;
+            return copy;
+        }
+    }
+
     /**
      * ResultHandler defines a destination of data which can handle a result from
      * {@link StorageAsyncLoader}.
@@ -386,17 +386,7 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
         // Calculate the size info for each category
         StorageCacheHelper.StorageCache storageCache = getSizeInfo(result, userId);
         // Set size info to each preference
-        mImagesPreference.setStorageSize(storageCache.imagesSize, mTotalSize, animate);
-        mVideosPreference.setStorageSize(storageCache.videosSize, mTotalSize, animate);
-        mAudioPreference.setStorageSize(storageCache.audioSize, mTotalSize, animate);
-        mAppsPreference.setStorageSize(storageCache.allAppsExceptGamesSize, mTotalSize, animate);
-        mGamesPreference.setStorageSize(storageCache.gamesSize, mTotalSize, animate);
-        mDocumentsAndOtherPreference.setStorageSize(storageCache.documentsAndOtherSize, mTotalSize,
-                animate);
-        mTrashPreference.setStorageSize(storageCache.trashSize, mTotalSize, animate);
-        if (mSystemPreference != null) {
-            mSystemPreference.setStorageSize(storageCache.systemSize, mTotalSize, animate);
-        }
+        setStorageSizes(storageCache, animate);
         // Cache the size info
         if (result != null) {
             mStorageCacheHelper.cacheSizeInfo(storageCache);
@@ -410,6 +400,40 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
         setPrivateStorageCategoryPreferencesVisibility(true);
     }
 
+    /**
+     * Fragments use it to show the storage result of the users loaded so far, before
+     * {@link #onLoadFinished} is called with the complete result. Partial sizes are neither
+     * cached nor used to order the preferences, since they still grow. The system size keeps its
+     * previous value, as the users still loading would otherwise be counted as system.
+     * @param result The StorageResult of the users loaded so far, including {@param userId}.
+     * @param userId User ID to get the storage size info
+     */
+    public void onPartialResultLoaded(SparseArray<StorageAsyncLoader.StorageResult> result,
+            int userId) {
+        setStorageSizes(getSizeInfo(result, userId), false /* animate */,
+                false /* includeSystem */);
+        setPrivateStorageCategoryPreferencesVisibility(true);
+    }
+
+    private void setStorageSizes(StorageCacheHelper.StorageCache storageCache, boolean animate) {
+        setStorageSizes(storageCache, animate, true /* includeSystem */);
+    }
+
+    private void setStorageSizes(StorageCacheHelper.StorageCache storageCache, boolean animate,
+            boolean includeSystem) {
+        mImagesPreference.setStorageSize(storageCache.imagesSize, mTotalSize, animate);
+        mVideosPreference.setStorageSize(storageCache.videosSize, mTotalSize, animate);
+        mAudioPreference.setStorageSize(storageCache.audioSize, mTotalSize, animate);
+        mAppsPreference.setStorageSize(storageCache.allAppsExceptGamesSize, mTotalSize, animate);
+        mGamesPreference.setStorageSize(storageCache.gamesSize, mTotalSize, animate);
+        mDocumentsAndOtherPreference.setStorageSize(storageCache.documentsAndOtherSize, mTotalSize,
+                animate);
+        mTrashPreference.setStorageSize(storageCache.trashSize, mTotalSize, animate);
+        if (mSystemPreference != null && includeSystem) {
+            mSystemPreference.setStorageSize(storageCache.systemSize, mTotalSize, animate);
+        }
+    }
+
     private StorageCacheHelper.StorageCache getSizeInfo(
             SparseArray<StorageAsyncLoader.StorageResult> result, int userId) {
         if (result == null) {
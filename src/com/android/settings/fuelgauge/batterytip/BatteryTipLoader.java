@@ -18,12 +18,15 @@ package com.android.settings.fuelgauge.batterytip;
 
 import android.content.Context;
 import android.os.BatteryUsageStats;
+import android.os.SystemClock;
+import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.fuelgauge.BatteryInfo;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batterytip.detectors.BatteryDefenderDetector;
+import com.android.settings.fuelgauge.batterytip.detectors.BatteryTipDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.DockDefenderDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.EarlyWarningDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.HighUsageDetector;
@@ -38,16 +41,42 @@ import com.android.settingslib.utils.AsyncLoaderCompat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Loader to compute and return a battery tip list. It will always return a full length list even
  * though some tips may have state {@code BaseBatteryTip.StateType.INVISIBLE}.
+ * <p/>
+ * Detectors run concurrently on a small shared pool, one thread per detector. A single deadline of
+ * {@link #DETECTOR_TIMEOUT_MS} covers the whole load, not each detector: a detector that has not
+ * finished by then is represented by its previous result, or by an invisible tip of its type if
+ * there is none, and keeps running to refresh that result for the next load.
  */
 public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
     private static final String TAG = "BatteryTipLoader";
 
     private static final boolean USE_FAKE_DATA = false;
 
+    @VisibleForTesting
+    static final long DETECTOR_TIMEOUT_MS = 1000L;
+
+    // Number of detectors created in loadInBackground().
+    private static final int DETECTOR_COUNT = 6;
+    private static final long DETECTOR_KEEP_ALIVE_SECONDS = 30;
+
+    private static final ExecutorService sDetectorExecutor = createDetectorExecutor();
+    // Last result of each detector (key: detector class), used when a detector times out.
+    @VisibleForTesting
+    static final Map<Class<?>, BatteryTip> sLastResults = new ConcurrentHashMap<>();
+
     private BatteryUsageStats mBatteryUsageStats;
     @VisibleForTesting
     BatteryUtils mBatteryUtils;
@@ -63,21 +92,74 @@ public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
         if (USE_FAKE_DATA) {
             return getFakeData();
         }
-        final List<BatteryTip> tips = new ArrayList<>();
+        final List<BatteryTipDetector> detectors = getDetectors();
+        final List<BatteryTip> lastResults = new ArrayList<>(detectors.size());
+        final List<Future<BatteryTip>> futures = new ArrayList<>(detectors.size());
+        for (BatteryTipDetector detector : detectors) {
+            lastResults.add(sLastResults.get(detector.getClass()));
+            futures.add(sDetectorExecutor.submit(() -> detect(detector)));
+        }
+        final long deadline = SystemClock.elapsedRealtime() + DETECTOR_TIMEOUT_MS;
+        final List<BatteryTip> tips = new ArrayList<>(detectors.size());
+        for (int i = 0; i < detectors.size(); i++) {
+            tips.add(getResult(detectors.get(i), futures.get(i), lastResults.get(i), deadline));
+        }
+        Collections.sort(tips);
+        return tips;
+    }
+
+    @VisibleForTesting
+    List<BatteryTipDetector> getDetectors() {
         final BatteryTipPolicy policy = new BatteryTipPolicy(getContext());
         final BatteryInfo batteryInfo = mBatteryUtils.getBatteryInfo(TAG);
         final Context context = getContext();
 
-        tips.add(new LowBatteryDetector(context, policy, batteryInfo).detect());
-        tips.add(new HighUsageDetector(context, policy, mBatteryUsageStats, batteryInfo).detect());
-        tips.add(new SmartBatteryDetector(
-                context, policy, batteryInfo, context.getContentResolver()).detect());
-        tips.add(new EarlyWarningDetector(policy, context).detect());
-        tips.add(new BatteryDefenderDetector(
-                batteryInfo, context.getApplicationContext()).detect());
-        tips.add(new DockDefenderDetector(batteryInfo, context.getApplicationContext()).detect());
-        Collections.sort(tips);
-        return tips;
+        final List<BatteryTipDetector> detectors = new ArrayList<>(DETECTOR_COUNT);
+        detectors.add(new LowBatteryDetector(context, policy, batteryInfo));
+        detectors.add(new HighUsageDetector(context, policy, mBatteryUsageStats, batteryInfo));
+        detectors.add(new SmartBatteryDetector(
+                context, policy, batteryInfo, context.getContentResolver()));
+        detectors.add(new EarlyWarningDetector(policy, context));
+        detectors.add(new BatteryDefenderDetector(batteryInfo, context.getApplicationContext()));
+        detectors.add(new DockDefenderDetector(batteryInfo, context.getApplicationContext()));
+        return detectors;
+    }
+
+    private static BatteryTip detect(BatteryTipDetector detector) {
+        final long startTime = SystemClock.elapsedRealtime();
+        final BatteryTip tip = detector.detect();
+        sLastResults.put(detector.getClass(), tip);
+        Log.d(TAG, String.format("%s detect() in %d/ms", detector.getClass().getSimpleName(),
+                SystemClock.elapsedRealtime() - startTime));
+        return tip;
+    }
+
+    private static BatteryTip getResult(BatteryTipDetector detector, Future<BatteryTip> future,
+            BatteryTip lastResult, long deadline) {
+        try {
+            final long timeout = Math.max(0L, deadline - SystemClock.elapsedRealtime());
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (lastResult == null) {
+                Log.w(TAG, detector.getClass().getSimpleName() + " timed out, hide its tip");
+                return detector.createInvisibleTip();
+            }
+            Log.w(TAG, detector.getClass().getSimpleName() + " timed out, use previous result");
+            return lastResult;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while detecting battery tip", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to detect battery tip", e);
+        }
+    }
+
+    private static ExecutorService createDetectorExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                DETECTOR_COUNT, DETECTOR_COUNT, DETECTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     @Override
@@ -44,4 +44,9 @@ public class BatteryDefenderDetector implements BatteryTipDetector {
         }
         return new BatteryDefenderTip(BatteryTip.StateType.INVISIBLE);
     }
+
+    @Override
+    public BatteryTip createInvisibleTip() {
+        return new BatteryDefenderTip(BatteryTip.StateType.INVISIBLE);
+    }
 }
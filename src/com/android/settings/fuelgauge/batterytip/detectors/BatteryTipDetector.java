@@ -25,4 +25,10 @@ public interface BatteryTipDetector {
      * @return a not null {@link BatteryTip}
      */
     BatteryTip detect();
+
+    /**
+     * Create a {@link BatteryTip} of the type {@link #detect()} returns, with state
+     * {@code BatteryTip.StateType.INVISIBLE}. Used when {@link #detect()} takes too long.
+     */
+    BatteryTip createInvisibleTip();
 }
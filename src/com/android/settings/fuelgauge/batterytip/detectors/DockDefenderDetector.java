@@ -45,4 +45,10 @@ public class DockDefenderDetector implements BatteryTipDetector {
                 mode);
     }
 
+    @Override
+    public BatteryTip createInvisibleTip() {
+        return new DockDefenderTip(
+                BatteryTip.StateType.INVISIBLE, BatteryUtils.DockDefenderMode.DISABLED);
+    }
+
 }
@@ -114,6 +114,11 @@ public class HighUsageDetector implements BatteryTipDetector {
         return new HighUsageTip(lastFullChargeTimeMs, mHighUsageAppList);
     }
 
+    @Override
+    public BatteryTip createInvisibleTip() {
+        return new HighUsageTip(0L /* lastFullChargeTimeMs */, new ArrayList<>());
+    }
+
     @VisibleForTesting
     void parseBatteryData() {
         try {
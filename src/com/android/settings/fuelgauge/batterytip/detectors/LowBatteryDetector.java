@@ -63,4 +63,9 @@ public class LowBatteryDetector implements BatteryTipDetector {
 
         return new LowBatteryTip(state, powerSaveModeOn);
     }
+
+    @Override
+    public BatteryTip createInvisibleTip() {
+        return new LowBatteryTip(BatteryTip.StateType.INVISIBLE, false /* powerSaveModeOn */);
+    }
 }
@@ -86,6 +86,11 @@ public class RestrictAppDetector implements BatteryTipDetector {
         }
     }
 
+    @Override
+    public BatteryTip createInvisibleTip() {
+        return new RestrictAppTip(BatteryTip.StateType.INVISIBLE, new ArrayList<>());
+    }
+
     private BatteryTip getFakeData() {
         final List<AppInfo> highUsageApps = new ArrayList<>();
         highUsageApps.add(new AppInfo.Builder()
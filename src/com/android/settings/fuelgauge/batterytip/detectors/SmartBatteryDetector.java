@@ -59,4 +59,9 @@ public class SmartBatteryDetector implements BatteryTipDetector {
                 enableSmartBatteryTip ? BatteryTip.StateType.NEW : BatteryTip.StateType.INVISIBLE;
         return new SmartBatteryTip(state);
     }
+
+    @Override
+    public BatteryTip createInvisibleTip() {
+        return new SmartBatteryTip(BatteryTip.StateType.INVISIBLE);
+    }
 }
@@ -41,4 +41,9 @@ public class SummaryDetector implements BatteryTipDetector {
                 : BatteryTip.StateType.INVISIBLE;
         return new SummaryTip(state, mAverageTimeMs);
     }
+
+    @Override
+    public BatteryTip createInvisibleTip() {
+        return new SummaryTip(BatteryTip.StateType.INVISIBLE, mAverageTimeMs);
+    }
 }
@@ -105,6 +105,8 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
     int mDailyChartIndex = BatteryChartViewModel.SELECTED_INDEX_ALL;
     @VisibleForTesting
     int mHourlyChartIndex = BatteryChartViewModel.SELECTED_INDEX_ALL;
+    @VisibleForTesting
+    boolean mIsUsageMapItemsLoaded = true;
 
     private boolean mIs24HourFormat;
     private boolean mIsFooterPrefAdded = false;
@@ -123,6 +125,26 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
     private final CharSequence[] mNotAllowShowSummaryPackages;
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final DataProcessor.UsageMapAsyncResponse mUsageMapAsyncResponse =
+            new DataProcessor.UsageMapAsyncResponse() {
+                @Override
+                public void onBatteryUsageMapLoaded(
+                        Map<Integer, Map<Integer, BatteryDiffData>> batteryUsageMap) {
+                    // Shows the usage with placeholder labels and icons until they are loaded.
+                    mBatteryUsageMap = batteryUsageMap;
+                    mIsUsageMapItemsLoaded = false;
+                    refreshUi();
+                }
+
+                @Override
+                public void onBatteryUsageMapItemsLoaded(
+                        Map<Integer, Map<Integer, BatteryDiffData>> batteryUsageMap) {
+                    mBatteryUsageMap = batteryUsageMap;
+                    mIsUsageMapItemsLoaded = true;
+                    // Runs after the preferences added by the previous stage.
+                    mHandler.post(() -> rebindLoadedItems());
+                }
+            };
     private final AnimatorListenerAdapter mHourlyChartFadeInAdapter =
             createHourlyChartAnimatorListenerAdapter(/*visible=*/ true);
     private final AnimatorListenerAdapter mHourlyChartFadeOutAdapter =
@@ -205,6 +227,7 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
         if (mActivity.isChangingConfigurations()) {
             BatteryDiffEntry.clearCache();
         }
+        DataProcessor.cancelBatteryUsageMapLoading(mUsageMapAsyncResponse);
         mHandler.removeCallbacksAndMessages(/*token=*/ null);
         mPreferenceCache.clear();
         if (mAppListPrefGroup != null) {
@@ -281,10 +304,7 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
         animateBatteryChartViewGroup();
         final BatteryLevelData batteryLevelData =
                 DataProcessor.getBatteryLevelData(mContext, mHandler, batteryHistoryMap,
-                        batteryUsageMap -> {
-                            mBatteryUsageMap = batteryUsageMap;
-                            refreshUi();
-                        });
+                        mUsageMapAsyncResponse);
         Log.d(TAG, "getBatteryLevelData: " + batteryLevelData);
         mMetricsFeatureProvider.action(
                 mPrefContext,
@@ -494,9 +514,14 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
         int prefIndex = mAppListPrefGroup.getPreferenceCount();
         for (BatteryDiffEntry entry : entries) {
             boolean isAdded = false;
-            final String appLabel = entry.getAppLabel();
-            final Drawable appIcon = entry.getAppIcon();
-            if (TextUtils.isEmpty(appLabel) || appIcon == null) {
+            // Labels and icons are loaded in the background, placeholders are shown until then.
+            final boolean isPlaceholder = !mIsUsageMapItemsLoaded;
+            final String appLabel =
+                    isPlaceholder ? getPlaceholderLabel(entry) : entry.getAppLabel();
+            final Drawable appIcon = isPlaceholder
+                    ? mPrefContext.getPackageManager().getDefaultActivityIcon()
+                    : entry.getAppIcon();
+            if (!isPlaceholder && (TextUtils.isEmpty(appLabel) || appIcon == null)) {
                 Log.w(TAG, "cannot find app resource for:" + entry.getPackageName());
                 continue;
             }
@@ -514,23 +539,76 @@ public class BatteryChartPreferenceController extends AbstractPreferenceControll
                 pref.setKey(prefKey);
                 mPreferenceCache.put(prefKey, pref);
             }
-            pref.setIcon(appIcon);
-            pref.setTitle(appLabel);
+            bindLabelAndIcon(pref, appLabel, appIcon,
+                    isPlaceholder || entry.validForRestriction());
             pref.setOrder(prefIndex);
             pref.setPercent(entry.getPercentOfTotal());
             pref.setSingleLineTitle(true);
             // Sets the BatteryDiffEntry to preference for launching detailed page.
             pref.setBatteryDiffEntry(entry);
-            pref.setEnabled(entry.validForRestriction());
             setPreferenceSummary(pref, entry);
             if (!isAdded) {
                 mAppListPrefGroup.addPreference(pref);
             }
-            appIcon.setAlpha(pref.isEnabled() ? ENABLED_ICON_ALPHA : DISABLED_ICON_ALPHA);
             prefIndex++;
         }
     }
 
+    /**
+     * Binds the loaded labels and icons to the preferences which were added with placeholders,
+     * without adding them again. Entries without app resources are removed.
+     */
+    @VisibleForTesting
+    void rebindLoadedItems() {
+        if (mAppListPrefGroup == null || mBatteryUsageMap == null
+                || mBatteryUsageMap.get(mDailyChartIndex) == null) {
+            return;
+        }
+        final BatteryDiffData batteryDiffData =
+                mBatteryUsageMap.get(mDailyChartIndex).get(mHourlyChartIndex);
+        if (batteryDiffData == null) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        rebindLoadedItems(batteryDiffData.getAppDiffEntryList());
+        rebindLoadedItems(batteryDiffData.getSystemDiffEntryList());
+        Log.d(TAG, String.format("rebindLoadedItems is finished in %d/ms",
+                (System.currentTimeMillis() - start)));
+    }
+
+    private void rebindLoadedItems(List<BatteryDiffEntry> entries) {
+        for (BatteryDiffEntry entry : entries) {
+            final PowerGaugePreference pref =
+                    mAppListPrefGroup.findPreference(entry.mBatteryHistEntry.getKey());
+            if (pref == null) {
+                continue;
+            }
+            final String appLabel = entry.getAppLabel();
+            final Drawable appIcon = entry.getAppIcon();
+            if (TextUtils.isEmpty(appLabel) || appIcon == null) {
+                Log.w(TAG, "cannot find app resource for:" + entry.getPackageName());
+                mAppListPrefGroup.removePreference(pref);
+                mPreferenceCache.put(pref.getKey(), pref);
+                continue;
+            }
+            bindLabelAndIcon(pref, appLabel, appIcon, entry.validForRestriction());
+        }
+    }
+
+    private static void bindLabelAndIcon(PowerGaugePreference pref, String appLabel,
+            Drawable appIcon, boolean enabled) {
+        pref.setIcon(appIcon);
+        pref.setTitle(appLabel);
+        pref.setEnabled(enabled);
+        appIcon.setAlpha(enabled ? ENABLED_ICON_ALPHA : DISABLED_ICON_ALPHA);
+    }
+
+    private static String getPlaceholderLabel(BatteryDiffEntry entry) {
+        final BatteryHistEntry histEntry = entry.mBatteryHistEntry;
+        return TextUtils.isEmpty(histEntry.mAppLabel)
+                ? histEntry.mPackageName : histEntry.mAppLabel;
+    }
+
     private void removeAndCacheAllPrefs() {
         if (mAppListPrefGroup == null
                 || mAppListPrefGroup.getPreferenceCount() == 0) {
@@ -28,7 +28,10 @@ import android.graphics.CornerPathEffect;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
 import android.os.Bundle;
+import android.text.TextPaint;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.HapticFeedbackConstants;
@@ -70,6 +73,8 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private final Rect mIndent = new Rect();
     private final Rect[] mPercentageBounds = new Rect[]{new Rect(), new Rect(), new Rect()};
     private final List<Rect> mAxisLabelsBounds = new ArrayList<>();
+    // Records the dividers and labels, which only change with the data, size or text style.
+    private final RenderNode mStaticLayer = new RenderNode(TAG);
 
     private BatteryChartViewModel mViewModel;
     private int mHoveredIndex = BatteryChartViewModel.SELECTED_INDEX_INVALID;
@@ -86,6 +91,12 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private Paint mTextPaint;
     private AccessibilityNodeProvider mAccessibilityNodeProvider;
     private BatteryChartView.OnSelectListener mOnSelectListener;
+    // Geometry computed by updateLayout(), a null path means the trapezoid is not drawn.
+    private Path[] mTrapezoidPaths;
+    private Rect[] mAxisLabelDisplayAreas;
+    private boolean[] mIsAxisLabelVisible;
+    private boolean mIsTextBoundsValid;
+    private boolean mIsLayoutValid;
 
     @VisibleForTesting
     TrapezoidSlot[] mTrapezoidSlots;
@@ -110,17 +121,26 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     public void setViewModel(BatteryChartViewModel viewModel) {
         if (viewModel == null) {
             mViewModel = null;
+            mIsLayoutValid = false;
             invalidate();
             return;
         }
 
         Log.d(TAG, String.format("setViewModel(): size: %d, selectedIndex: %d.",
                 viewModel.size(), viewModel.selectedIndex()));
+        if (viewModel == mViewModel) {
+            // Only the selected index may change, which is drawn over the cached layer.
+            invalidate();
+            return;
+        }
         mViewModel = viewModel;
         initializeAxisLabelsBounds();
         initializeTrapezoidSlots(viewModel.size() - 1);
         setClickable(hasAnyValidTrapezoid(viewModel));
+        mIsTextBoundsValid = false;
+        mIsLayoutValid = false;
         requestLayout();
+        invalidate();
     }
 
     /** Sets the callback to monitor the selected group index. */
@@ -131,55 +151,82 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     /** Sets the companion {@link TextView} for percentage information. */
     public void setCompanionTextView(TextView textView) {
         if (textView != null) {
-            // Pre-draws the view first to load style atttributions into paint.
-            textView.draw(new Canvas());
-            mTextPaint = textView.getPaint();
+            // Copies the style attributions, the color is only applied to the paint in onDraw().
+            mTextPaint = new TextPaint(textView.getPaint());
+            mTextPaint.setColor(textView.getCurrentTextColor());
         } else {
             mTextPaint = null;
         }
+        mIsTextBoundsValid = false;
+        mIsLayoutValid = false;
         requestLayout();
     }
 
     @Override
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        // Measures text bounds and updates indent configuration.
-        if (mTextPaint != null) {
-            mTextPaint.setTextAlign(Paint.Align.LEFT);
-            for (int index = 0; index < mPercentages.length; index++) {
-                mTextPaint.getTextBounds(
-                        mPercentages[index], 0, mPercentages[index].length(),
-                        mPercentageBounds[index]);
-            }
-            // Updates the indent configurations.
-            mIndent.top = mPercentageBounds[0].height();
-            mIndent.right = mPercentageBounds[0].width() + mTextPadding;
-
-            if (mViewModel != null) {
-                int maxTop = 0;
-                for (int index = 0; index < mViewModel.size(); index++) {
-                    final String text = mViewModel.getText(index);
-                    mTextPaint.getTextBounds(text, 0, text.length(), mAxisLabelsBounds.get(index));
-                    maxTop = Math.max(maxTop, -mAxisLabelsBounds.get(index).top);
-                }
-                mIndent.bottom = maxTop + round(mTextPadding * 2f);
-            }
-            Log.d(TAG, "setIndent:" + mPercentageBounds[0]);
-        } else {
+        if (mTextPaint == null) {
             mIndent.set(0, 0, 0, 0);
+        } else if (!mIsTextBoundsValid) {
+            measureTextBounds();
+            mIsTextBoundsValid = true;
+            mIsLayoutValid = false;
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mIsLayoutValid = false;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mStaticLayer.discardDisplayList();
+    }
+
+    // Measures text bounds and updates indent configuration.
+    private void measureTextBounds() {
+        mTextPaint.setTextAlign(Paint.Align.LEFT);
+        for (int index = 0; index < mPercentages.length; index++) {
+            mTextPaint.getTextBounds(
+                    mPercentages[index], 0, mPercentages[index].length(),
+                    mPercentageBounds[index]);
         }
+        // Updates the indent configurations.
+        mIndent.top = mPercentageBounds[0].height();
+        mIndent.right = mPercentageBounds[0].width() + mTextPadding;
+
+        if (mViewModel != null) {
+            int maxTop = 0;
+            for (int index = 0; index < mViewModel.size(); index++) {
+                final String text = mViewModel.getText(index);
+                mTextPaint.getTextBounds(text, 0, text.length(), mAxisLabelsBounds.get(index));
+                maxTop = Math.max(maxTop, -mAxisLabelsBounds.get(index).top);
+            }
+            mIndent.bottom = maxTop + round(mTextPadding * 2f);
+        }
+        Log.d(TAG, "setIndent:" + mPercentageBounds[0]);
     }
 
     @Override
     public void draw(Canvas canvas) {
         super.draw(canvas);
-        // Before mLevels initialized, the count of trapezoids is unknown. Only draws the
-        // horizontal percentages and dividers.
-        drawHorizontalDividers(canvas);
+        if (!mIsLayoutValid) {
+            updateLayout();
+        }
+        if (canvas.isHardwareAccelerated()) {
+            if (!mStaticLayer.hasDisplayList()) {
+                recordStaticLayer();
+            }
+            canvas.drawRenderNode(mStaticLayer);
+        } else {
+            drawStaticLayer(canvas);
+        }
         if (mViewModel == null) {
             return;
         }
-        drawVerticalDividers(canvas);
         drawTrapezoids(canvas);
     }
 
@@ -359,51 +406,100 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         }
     }
 
-    private void drawVerticalDividers(Canvas canvas) {
+    /**
+     * Computes the trapezoid slots, trapezoid shapes and visible axis labels for the current data
+     * and size, and drops the recorded static layer so that it is recorded again.
+     */
+    private void updateLayout() {
+        mIsLayoutValid = true;
+        mStaticLayer.discardDisplayList();
+        if (mViewModel == null) {
+            mTrapezoidPaths = null;
+            mAxisLabelDisplayAreas = null;
+            mIsAxisLabelVisible = null;
+            return;
+        }
+        final float unitWidth = getTrapezoidUnitWidth();
+        final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
+        float startX = mDividerWidth * .5f;
+        for (int index = 0; index < mTrapezoidSlots.length; index++) {
+            final float nextX = startX + mDividerWidth + unitWidth;
+            mTrapezoidSlots[index].mLeft = round(startX + trapezoidSlotOffset);
+            mTrapezoidSlots[index].mRight = round(nextX - trapezoidSlotOffset);
+            startX = nextX;
+        }
+        updateTrapezoidPaths();
+        updateAxisLabels(unitWidth);
+    }
+
+    private void recordStaticLayer() {
+        mStaticLayer.setPosition(0, 0, getWidth(), getHeight());
+        final RecordingCanvas canvas = mStaticLayer.beginRecording();
+        try {
+            drawStaticLayer(canvas);
+        } finally {
+            mStaticLayer.endRecording();
+        }
+    }
+
+    private void drawStaticLayer(Canvas canvas) {
+        // Before mLevels initialized, the count of trapezoids is unknown. Only draws the
+        // horizontal percentages and dividers.
+        drawHorizontalDividers(canvas);
+        if (mViewModel == null) {
+            return;
+        }
+        drawVerticalDividers(canvas);
+        drawAxisLabels(canvas);
+    }
+
+    private float getTrapezoidUnitWidth() {
         final int width = getWidth() - mIndent.right;
+        final float dividerSpace = (mTrapezoidSlots.length + 1) * mDividerWidth;
+        return (width - dividerSpace) / (float) mTrapezoidSlots.length;
+    }
+
+    private void drawVerticalDividers(Canvas canvas) {
         final int dividerCount = mTrapezoidSlots.length + 1;
-        final float dividerSpace = dividerCount * mDividerWidth;
-        final float unitWidth = (width - dividerSpace) / (float) mTrapezoidSlots.length;
+        final float unitWidth = getTrapezoidUnitWidth();
         final float bottomY = getHeight() - mIndent.bottom;
         final float startY = bottomY - mDividerHeight;
-        final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
         // Draws each vertical dividers.
         float startX = mDividerWidth * .5f;
         for (int index = 0; index < dividerCount; index++) {
             canvas.drawLine(startX, startY, startX, bottomY, mDividerPaint);
-            final float nextX = startX + mDividerWidth + unitWidth;
-            // Updates the trapezoid slots for drawing.
-            if (index < mTrapezoidSlots.length) {
-                mTrapezoidSlots[index].mLeft = round(startX + trapezoidSlotOffset);
-                mTrapezoidSlots[index].mRight = round(nextX - trapezoidSlotOffset);
-            }
-            startX = nextX;
+            startX += mDividerWidth + unitWidth;
         }
-        // Draws the axis label slot information.
-        if (mViewModel != null) {
-            final float baselineY = getHeight() - mTextPadding;
-            Rect[] axisLabelDisplayAreas;
-            switch (mViewModel.axisLabelPosition()) {
-                case CENTER_OF_TRAPEZOIDS:
-                    axisLabelDisplayAreas = getAxisLabelDisplayAreas(
-                            /* size= */ mViewModel.size() - 1,
-                            /* baselineX= */ mDividerWidth + unitWidth * .5f,
-                            /* offsetX= */ mDividerWidth + unitWidth,
-                            baselineY,
-                            /* shiftFirstAndLast= */ false);
-                    break;
-                case BETWEEN_TRAPEZOIDS:
-                default:
-                    axisLabelDisplayAreas = getAxisLabelDisplayAreas(
-                            /* size= */ mViewModel.size(),
-                            /* baselineX= */ mDividerWidth * .5f,
-                            /* offsetX= */ mDividerWidth + unitWidth,
-                            baselineY,
-                            /* shiftFirstAndLast= */ true);
-                    break;
-            }
-            drawAxisLabels(canvas, axisLabelDisplayAreas, baselineY);
+    }
+
+    private void updateAxisLabels(final float unitWidth) {
+        // Computes the axis label slot information.
+        final float baselineY = getHeight() - mTextPadding;
+        switch (mViewModel.axisLabelPosition()) {
+            case CENTER_OF_TRAPEZOIDS:
+                mAxisLabelDisplayAreas = getAxisLabelDisplayAreas(
+                        /* size= */ mViewModel.size() - 1,
+                        /* baselineX= */ mDividerWidth + unitWidth * .5f,
+                        /* offsetX= */ mDividerWidth + unitWidth,
+                        baselineY,
+                        /* shiftFirstAndLast= */ false);
+                break;
+            case BETWEEN_TRAPEZOIDS:
+            default:
+                mAxisLabelDisplayAreas = getAxisLabelDisplayAreas(
+                        /* size= */ mViewModel.size(),
+                        /* baselineX= */ mDividerWidth * .5f,
+                        /* offsetX= */ mDividerWidth + unitWidth,
+                        baselineY,
+                        /* shiftFirstAndLast= */ true);
+                break;
         }
+        final int lastIndex = mAxisLabelDisplayAreas.length - 1;
+        mIsAxisLabelVisible = new boolean[mAxisLabelDisplayAreas.length];
+        // Suppose first and last labels are always able to draw.
+        mIsAxisLabelVisible[0] = true;
+        mIsAxisLabelVisible[lastIndex] = true;
+        updateAxisLabelsBetweenStartIndexAndEndIndex(0, lastIndex);
     }
 
     /** Gets all the axis label texts displaying area positions if they are shown. */
@@ -430,54 +526,57 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         return result;
     }
 
-    private void drawAxisLabels(Canvas canvas, final Rect[] displayAreas, final float baselineY) {
-        final int lastIndex = displayAreas.length - 1;
-        // Suppose first and last labels are always able to draw.
-        drawAxisLabelText(canvas, 0, displayAreas[0], baselineY);
-        drawAxisLabelText(canvas, lastIndex, displayAreas[lastIndex], baselineY);
-        drawAxisLabelsBetweenStartIndexAndEndIndex(canvas, displayAreas, 0, lastIndex, baselineY);
+    private void drawAxisLabels(Canvas canvas) {
+        if (mTextPaint == null) {
+            return;
+        }
+        final float baselineY = getHeight() - mTextPadding;
+        mTextPaint.setTextAlign(Paint.Align.CENTER);
+        for (int index = 0; index < mAxisLabelDisplayAreas.length; index++) {
+            if (mIsAxisLabelVisible[index]) {
+                canvas.drawText(
+                        mViewModel.getText(index),
+                        mAxisLabelDisplayAreas[index].centerX(),
+                        baselineY,
+                        mTextPaint);
+            }
+        }
     }
 
     /**
-     * Recursively draws axis labels between the start index and the end index. If the inner number
-     * can be exactly divided into 2 parts, check and draw the middle index label and then
-     * recursively draw the 2 parts. Otherwise, divide into 3 parts. Check and draw the middle two
-     * labels and then recursively draw the 3 parts. If there are any overlaps, skip drawing and go
-     * back to the uplevel of the recursion.
+     * Recursively marks axis labels between the start index and the end index as visible. If the
+     * inner number can be exactly divided into 2 parts, check and mark the middle index label and
+     * then recursively mark the 2 parts. Otherwise, divide into 3 parts. Check and mark the middle
+     * two labels and then recursively mark the 3 parts. If there are any overlaps, skip marking and
+     * go back to the uplevel of the recursion.
      */
-    private void drawAxisLabelsBetweenStartIndexAndEndIndex(Canvas canvas,
-            final Rect[] displayAreas, final int startIndex, final int endIndex,
-            final float baselineY) {
+    private void updateAxisLabelsBetweenStartIndexAndEndIndex(
+            final int startIndex, final int endIndex) {
         if (endIndex - startIndex <= 1) {
             return;
         }
         if ((endIndex - startIndex) % 2 == 0) {
             int middleIndex = (startIndex + endIndex) / 2;
-            if (hasOverlap(displayAreas, startIndex, middleIndex)
-                    || hasOverlap(displayAreas, middleIndex, endIndex)) {
+            if (hasOverlap(mAxisLabelDisplayAreas, startIndex, middleIndex)
+                    || hasOverlap(mAxisLabelDisplayAreas, middleIndex, endIndex)) {
                 return;
             }
-            drawAxisLabelText(canvas, middleIndex, displayAreas[middleIndex], baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, startIndex, middleIndex, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex, endIndex, baselineY);
+            mIsAxisLabelVisible[middleIndex] = true;
+            updateAxisLabelsBetweenStartIndexAndEndIndex(startIndex, middleIndex);
+            updateAxisLabelsBetweenStartIndexAndEndIndex(middleIndex, endIndex);
         } else {
             int middleIndex1 = startIndex + round((endIndex - startIndex) / 3f);
             int middleIndex2 = startIndex + round((endIndex - startIndex) * 2 / 3f);
-            if (hasOverlap(displayAreas, startIndex, middleIndex1)
-                    || hasOverlap(displayAreas, middleIndex1, middleIndex2)
-                    || hasOverlap(displayAreas, middleIndex2, endIndex)) {
+            if (hasOverlap(mAxisLabelDisplayAreas, startIndex, middleIndex1)
+                    || hasOverlap(mAxisLabelDisplayAreas, middleIndex1, middleIndex2)
+                    || hasOverlap(mAxisLabelDisplayAreas, middleIndex2, endIndex)) {
                 return;
             }
-            drawAxisLabelText(canvas, middleIndex1, displayAreas[middleIndex1], baselineY);
-            drawAxisLabelText(canvas, middleIndex2, displayAreas[middleIndex2], baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, startIndex, middleIndex1, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex1, middleIndex2, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex2, endIndex, baselineY);
+            mIsAxisLabelVisible[middleIndex1] = true;
+            mIsAxisLabelVisible[middleIndex2] = true;
+            updateAxisLabelsBetweenStartIndexAndEndIndex(startIndex, middleIndex1);
+            updateAxisLabelsBetweenStartIndexAndEndIndex(middleIndex1, middleIndex2);
+            updateAxisLabelsBetweenStartIndexAndEndIndex(middleIndex2, endIndex);
         }
     }
 
@@ -486,48 +585,24 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         return displayAreas[leftIndex].right + mTextPadding * 2.3f > displayAreas[rightIndex].left;
     }
 
-    private void drawAxisLabelText(
-            Canvas canvas, final int index, final Rect displayArea, final float baselineY) {
-        mTextPaint.setTextAlign(Paint.Align.CENTER);
-        canvas.drawText(
-                mViewModel.getText(index),
-                displayArea.centerX(),
-                baselineY,
-                mTextPaint);
-    }
-
-    private void drawTrapezoids(Canvas canvas) {
-        // Ignores invalid trapezoid data.
-        if (mViewModel == null) {
-            return;
-        }
+    private void updateTrapezoidPaths() {
         final float trapezoidBottom =
                 getHeight() - mIndent.bottom - mDividerHeight - mDividerWidth
                         - mTrapezoidVOffset;
         final float availableSpace =
                 trapezoidBottom - mDividerWidth * .5f - mIndent.top - mTrapezoidVOffset;
         final float unitHeight = availableSpace / 100f;
-        // Draws all trapezoid shapes into the canvas.
-        final Path trapezoidPath = new Path();
-        Path trapezoidCurvePath = null;
+        mTrapezoidPaths = new Path[mTrapezoidSlots.length];
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
             // Not draws the trapezoid for corner or not initialization cases.
             if (!isValidToDraw(mViewModel, index)) {
                 continue;
             }
-            // Configures the trapezoid paint color.
-            final int trapezoidColor = (mViewModel.selectedIndex() == index
-                    || mViewModel.selectedIndex() == BatteryChartViewModel.SELECTED_INDEX_ALL)
-                    ? mTrapezoidSolidColor : mTrapezoidColor;
-            final boolean isHoverState = mHoveredIndex == index && isValidToDraw(mViewModel,
-                    mHoveredIndex);
-            mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
-
             final float leftTop = round(
                     trapezoidBottom - requireNonNull(mViewModel.getLevel(index)) * unitHeight);
             final float rightTop = round(trapezoidBottom
                     - requireNonNull(mViewModel.getLevel(index + 1)) * unitHeight);
-            trapezoidPath.reset();
+            final Path trapezoidPath = new Path();
             trapezoidPath.moveTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
             trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
             trapezoidPath.lineTo(mTrapezoidSlots[index].mRight, rightTop);
@@ -535,8 +610,25 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             // A tricky way to make the trapezoid shape drawing the rounded corner.
             trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
             trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
+            mTrapezoidPaths[index] = trapezoidPath;
+        }
+    }
+
+    // Draws the cached trapezoid shapes with the colors of the selected and hovered states.
+    private void drawTrapezoids(Canvas canvas) {
+        for (int index = 0; index < mTrapezoidPaths.length; index++) {
+            if (mTrapezoidPaths[index] == null) {
+                continue;
+            }
+            // Configures the trapezoid paint color.
+            final int trapezoidColor = (mViewModel.selectedIndex() == index
+                    || mViewModel.selectedIndex() == BatteryChartViewModel.SELECTED_INDEX_ALL)
+                    ? mTrapezoidSolidColor : mTrapezoidColor;
+            final boolean isHoverState = mHoveredIndex == index && isValidToDraw(mViewModel,
+                    mHoveredIndex);
+            mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
             // Draws the trapezoid shape into canvas.
-            canvas.drawPath(trapezoidPath, mTrapezoidPaint);
+            canvas.drawPath(mTrapezoidPaths[index], mTrapezoidPaint);
         }
     }
 
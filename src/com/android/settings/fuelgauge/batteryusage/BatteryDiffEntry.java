@@ -33,16 +33,12 @@ import com.android.settingslib.utils.StringUtil;
 
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 
 /** A container class to carry battery data in a specific time slot. */
 public class BatteryDiffEntry {
     private static final String TAG = "BatteryDiffEntry";
 
-    static Locale sCurrentLocale = null;
-    // Caches app label and icon to improve loading performance.
-    static final Map<String, BatteryEntry.NameAndIcon> sResourceCache = new HashMap<>();
     // Whether a specific item is valid to launch restriction page?
     @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
     public static final Map<String, Boolean> sValidForRestriction = new HashMap<>();
@@ -96,6 +92,11 @@ public class BatteryDiffEntry {
                 ? 0 : (mConsumePower / mTotalConsumePower) * 100.0;
     }
 
+    /** Gets the total consumed power in a specific time slot. */
+    double getTotalConsumePower() {
+        return mTotalConsumePower;
+    }
+
     /** Gets the percentage of total consumed power. */
     public double getPercentOfTotal() {
         return mPercentOfTotal;
@@ -103,8 +104,13 @@ public class BatteryDiffEntry {
 
     /** Clones a new instance. */
     public BatteryDiffEntry clone() {
+        return clone(mContext);
+    }
+
+    /** Clones a new instance which holds {@param context} instead. */
+    BatteryDiffEntry clone(Context context) {
         return new BatteryDiffEntry(
-                this.mContext,
+                context,
                 this.mForegroundUsageTimeInMs,
                 this.mBackgroundUsageTimeInMs,
                 this.mConsumePower,
@@ -193,12 +199,13 @@ public class BatteryDiffEntry {
         if (mIsLoaded) {
             return;
         }
+        mIsLoaded = true;
         // Checks whether we have cached data or not first before fetching.
-        final BatteryEntry.NameAndIcon nameAndIcon = getCache();
+        final NameAndIconCache.Key cacheKey = getCacheKey();
+        final BatteryEntry.NameAndIcon nameAndIcon =
+                cacheKey == null ? null : NameAndIconCache.getInstance().get(cacheKey);
         if (nameAndIcon != null) {
-            mAppLabel = nameAndIcon.mName;
-            mAppIcon = nameAndIcon.mIcon;
-            mAppIconId = nameAndIcon.mIconId;
+            setNameAndIcon(nameAndIcon);
         }
         final Boolean validForRestriction = sValidForRestriction.get(getKey());
         if (validForRestriction != null) {
@@ -208,7 +215,6 @@ public class BatteryDiffEntry {
         if (nameAndIcon != null && validForRestriction != null) {
             return;
         }
-        mIsLoaded = true;
 
         // Configures whether we can launch restriction page or not.
         updateRestrictionFlagState();
@@ -223,9 +229,7 @@ public class BatteryDiffEntry {
                 if (nameAndIconForUser != null) {
                     mAppIcon = nameAndIconForUser.mIcon;
                     mAppLabel = nameAndIconForUser.mName;
-                    sResourceCache.put(
-                            getKey(),
-                            new BatteryEntry.NameAndIcon(mAppLabel, mAppIcon, /*iconId=*/ 0));
+                    NameAndIconCache.getInstance().put(cacheKey, nameAndIconForUser);
                 }
                 break;
             case ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY:
@@ -238,23 +242,17 @@ public class BatteryDiffEntry {
                         mAppIconId = nameAndIconForSystem.mIconId;
                         mAppIcon = mContext.getDrawable(nameAndIconForSystem.mIconId);
                     }
-                    sResourceCache.put(
-                            getKey(),
-                            new BatteryEntry.NameAndIcon(mAppLabel, mAppIcon, mAppIconId));
                 }
                 break;
             case ConvertUtils.CONSUMER_TYPE_UID_BATTERY:
-                loadNameAndIconForUid();
-                // Uses application default icon if we cannot find it from package.
-                if (mAppIcon == null) {
-                    mAppIcon = mContext.getPackageManager().getDefaultActivityIcon();
+                if (nameAndIcon != null) {
+                    break;
                 }
-                // Adds badge icon into app icon for work profile.
-                mAppIcon = getBadgeIconForUser(mAppIcon);
-                if (mAppLabel != null || mAppIcon != null) {
-                    sResourceCache.put(
-                            getKey(),
-                            new BatteryEntry.NameAndIcon(mAppLabel, mAppIcon, /*iconId=*/ 0));
+                final BatteryEntry.NameAndIcon nameAndIconForUid =
+                        NameAndIconCache.getInstance().getOrLoad(
+                                cacheKey, this::loadNameAndIconForUid);
+                if (nameAndIconForUid != null) {
+                    setNameAndIcon(nameAndIconForUid);
                 }
                 break;
         }
@@ -294,37 +292,61 @@ public class BatteryDiffEntry {
         }
     }
 
-    private BatteryEntry.NameAndIcon getCache() {
-        final Locale locale = Locale.getDefault();
-        if (sCurrentLocale != locale) {
-            Log.d(TAG, String.format("clearCache() locale is changed from %s to %s",
-                    sCurrentLocale, locale));
-            sCurrentLocale = locale;
-            clearCache();
+    // Returns null for power components, which load from resources and are not cached.
+    @VisibleForTesting
+    NameAndIconCache.Key getCacheKey() {
+        switch (mBatteryHistEntry.mConsumerType) {
+            case ConvertUtils.CONSUMER_TYPE_UID_BATTERY:
+                final int uid = (int) mBatteryHistEntry.mUid;
+                return NameAndIconCache.createKey(
+                        uid, mBatteryHistEntry.mPackageName, UserHandle.getUserId(uid));
+            case ConvertUtils.CONSUMER_TYPE_USER_BATTERY:
+                return NameAndIconCache.createKey(
+                        Process.INVALID_UID, /*packageName=*/ null,
+                        (int) mBatteryHistEntry.mUserId);
+            default:
+                return null;
         }
-        return sResourceCache.get(getKey());
     }
 
-    private void loadNameAndIconForUid() {
+    private void setNameAndIcon(BatteryEntry.NameAndIcon nameAndIcon) {
+        mAppLabel = nameAndIcon.mName;
+        mAppIconId = nameAndIcon.mIconId;
+        if (mBatteryHistEntry.mConsumerType != ConvertUtils.CONSUMER_TYPE_UID_BATTERY) {
+            mAppIcon = nameAndIcon.mIcon;
+            return;
+        }
+        if (nameAndIcon.mPackageName != null) {
+            mDefaultPackageName = nameAndIcon.mPackageName;
+        }
+        // Adds badge icon into app icon for work profile. The cache keeps the plain icon since
+        // it is shared with entries that badge it themselves.
+        mAppIcon = getBadgeIconForUser(nameAndIcon.mIcon);
+    }
+
+    // Runs on cache misses only, the result is shared through NameAndIconCache.
+    private BatteryEntry.NameAndIcon loadNameAndIconForUid() {
         final String packageName = getPackageName();
         final PackageManager packageManager = mContext.getPackageManager();
+        String appLabel = null;
+        Drawable appIcon = null;
         // Gets the application label from PackageManager.
         if (packageName != null && packageName.length() != 0) {
             try {
                 final ApplicationInfo appInfo =
                         packageManager.getApplicationInfo(packageName, /*no flags*/ 0);
                 if (appInfo != null) {
-                    mAppLabel = packageManager.getApplicationLabel(appInfo).toString();
-                    mAppIcon = packageManager.getApplicationIcon(appInfo);
+                    appLabel = packageManager.getApplicationLabel(appInfo).toString();
+                    appIcon = packageManager.getApplicationIcon(appInfo);
                 }
             } catch (NameNotFoundException e) {
                 Log.e(TAG, "failed to retrieve ApplicationInfo for: " + packageName);
-                mAppLabel = packageName;
+                appLabel = packageName;
             }
         }
         // Early return if we found the app label and icon resource.
-        if (mAppLabel != null && mAppIcon != null) {
-            return;
+        if (appLabel != null && appIcon != null) {
+            return new BatteryEntry.NameAndIcon(appLabel, appIcon, /*iconId=*/ 0);
         }
 
         final int uid = (int) mBatteryHistEntry.mUid;
@@ -332,27 +354,21 @@ public class BatteryDiffEntry {
         // Loads special defined application label and icon if available.
         if (packages == null || packages.length == 0) {
             final BatteryEntry.NameAndIcon nameAndIcon =
-                    BatteryEntry.getNameAndIconFromUid(mContext, mAppLabel, uid);
-            mAppLabel = nameAndIcon.mName;
-            mAppIcon = nameAndIcon.mIcon;
+                    BatteryEntry.getNameAndIconFromUid(mContext, appLabel, uid);
+            appLabel = nameAndIcon.mName;
+            appIcon = nameAndIcon.mIcon;
         }
 
         final BatteryEntry.NameAndIcon nameAndIcon =
-                BatteryEntry.loadNameAndIcon(
-                        mContext, uid, /*handler=*/ null, /*batteryEntry=*/ null,
-                        packageName, mAppLabel, mAppIcon);
-        // Clears BatteryEntry internal cache since we will have another one.
-        BatteryEntry.clearUidCache();
+                BatteryEntry.loadNameAndIcon(mContext, uid, packageName, appLabel, appIcon);
         if (nameAndIcon != null) {
-            mAppLabel = nameAndIcon.mName;
-            mAppIcon = nameAndIcon.mIcon;
-            mDefaultPackageName = nameAndIcon.mPackageName;
-            if (mDefaultPackageName != null
-                    && !mDefaultPackageName.equals(nameAndIcon.mPackageName)) {
-                Log.w(TAG, String.format("found different package: %s | %s",
-                        mDefaultPackageName, nameAndIcon.mPackageName));
-            }
+            return nameAndIcon;
         }
+        // Uses application default icon if we cannot find it from package.
+        return new BatteryEntry.NameAndIcon(
+                appLabel,
+                appIcon != null ? appIcon : packageManager.getDefaultActivityIcon(),
+                /*iconId=*/ 0);
     }
 
     @Override
@@ -376,7 +392,7 @@ public class BatteryDiffEntry {
 
     /** Clears app icon and label cache data. */
     public static void clearCache() {
-        sResourceCache.clear();
+        NameAndIconCache.getInstance().clear();
         sValidForRestriction.clear();
     }
 
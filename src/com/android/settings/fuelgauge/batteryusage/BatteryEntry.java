@@ -42,8 +42,8 @@ import com.android.settingslib.Utils;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Locale;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Wraps the power usage data of a BatterySipper with information about package name
@@ -77,84 +77,68 @@ public class BatteryEntry {
     private static final String TAG = "BatteryEntry";
     private static final String PACKAGE_SYSTEM = "android";
 
-    static final HashMap<String, UidToDetail> sUidCache = new HashMap<>();
-
+    // Entries waiting for startRequestQueue() to load their labels and icons.
     static final ArrayList<BatteryEntry> sRequestQueue = new ArrayList<BatteryEntry>();
+    // Guarded by sRequestQueue.
     static Handler sHandler;
 
-    static Locale sCurrentLocale = null;
-
-    private static class NameAndIconLoader extends Thread {
-        private boolean mAbort = false;
-
-        NameAndIconLoader() {
-            super("BatteryUsage Icon Loader");
-        }
-
-        public void abort() {
-            mAbort = true;
-        }
-
-        @Override
-        public void run() {
-            while (true) {
-                BatteryEntry be;
-                synchronized (sRequestQueue) {
-                    if (sRequestQueue.isEmpty() || mAbort) {
-                        if (sHandler != null) {
-                            sHandler.sendEmptyMessage(MSG_REPORT_FULLY_DRAWN);
-                        }
-                        return;
-                    }
-                    be = sRequestQueue.remove(0);
-                }
-                final NameAndIcon nameAndIcon =
-                        BatteryEntry.loadNameAndIcon(
-                                be.mContext, be.getUid(), sHandler, be,
-                                be.mDefaultPackageName, be.mName, be.mIcon);
-                if (nameAndIcon != null) {
-                    be.mIcon = nameAndIcon.mIcon;
-                    be.mName = nameAndIcon.mName;
-                    be.mDefaultPackageName = nameAndIcon.mPackageName;
-                }
-            }
-        }
-    }
-
-    private static NameAndIconLoader sRequestThread;
-
-    /** Starts the request queue. */
+    /**
+     * Starts loading the labels and icons of the queued entries. They load in parallel through
+     * {@link NameAndIconCache}, and {@link #MSG_REPORT_FULLY_DRAWN} is sent once all of them are
+     * loaded.
+     */
     public static void startRequestQueue() {
-        if (sHandler != null) {
-            synchronized (sRequestQueue) {
-                if (!sRequestQueue.isEmpty()) {
-                    if (sRequestThread != null) {
-                        sRequestThread.abort();
-                    }
-                    sRequestThread = new NameAndIconLoader();
-                    sRequestThread.setPriority(Thread.MIN_PRIORITY);
-                    sRequestThread.start();
-                    sRequestQueue.notify();
-                }
+        final List<BatteryEntry> requests;
+        final Handler handler;
+        synchronized (sRequestQueue) {
+            if (sHandler == null || sRequestQueue.isEmpty()) {
+                return;
             }
+            requests = new ArrayList<>(sRequestQueue);
+            sRequestQueue.clear();
+            handler = sHandler;
+        }
+        final AtomicInteger pendingRequestCount = new AtomicInteger(requests.size());
+        for (BatteryEntry entry : requests) {
+            final String defaultPackageName = entry.mDefaultPackageName;
+            final String name = entry.mName;
+            final Drawable icon = entry.mIcon;
+            NameAndIconCache.getInstance().loadInBackground(
+                    entry.getNameAndIconKey(),
+                    () -> loadNameAndIcon(
+                            entry.mContext, entry.getUid(), defaultPackageName, name, icon),
+                    nameAndIcon -> {
+                        synchronized (sRequestQueue) {
+                            // Drops the result if the queue was stopped in the meantime.
+                            if (sHandler != handler) {
+                                return;
+                            }
+                            if (nameAndIcon != null) {
+                                entry.mIcon = nameAndIcon.mIcon;
+                                entry.mName = nameAndIcon.mName;
+                                entry.mDefaultPackageName = nameAndIcon.mPackageName;
+                                handler.sendMessage(
+                                        handler.obtainMessage(MSG_UPDATE_NAME_ICON, entry));
+                            }
+                            if (pendingRequestCount.decrementAndGet() == 0) {
+                                handler.sendEmptyMessage(MSG_REPORT_FULLY_DRAWN);
+                            }
+                        }
+                    });
         }
     }
 
     /** Stops the request queue. */
     public static void stopRequestQueue() {
         synchronized (sRequestQueue) {
-            if (sRequestThread != null) {
-                sRequestThread.abort();
-                sRequestThread = null;
-                sRequestQueue.clear();
-                sHandler = null;
-            }
+            sRequestQueue.clear();
+            sHandler = null;
         }
     }
 
     /** Clears the UID cache. */
     public static void clearUidCache() {
-        sUidCache.clear();
+        NameAndIconCache.getInstance().clear();
     }
 
     public static final Comparator<BatteryEntry> COMPARATOR =
@@ -179,12 +163,6 @@ public class BatteryEntry {
     private String mDefaultPackageName;
     private double mConsumedPower;
 
-    static class UidToDetail {
-        String mName;
-        String mPackageName;
-        Drawable mIcon;
-    }
-
     public BatteryEntry(Context context, Handler handler, UserManager um,
             BatteryConsumer batteryConsumer, boolean isHidden, int uid, String[] packages,
             String packageName) {
@@ -194,7 +172,9 @@ public class BatteryEntry {
     public BatteryEntry(Context context, Handler handler, UserManager um,
             BatteryConsumer batteryConsumer, boolean isHidden, int uid, String[] packages,
             String packageName, boolean loadDataInBackground) {
-        sHandler = handler;
+        synchronized (sRequestQueue) {
+            sHandler = handler;
+        }
         mContext = context;
         mBatteryConsumer = batteryConsumer;
         mIsHidden = isHidden;
@@ -309,19 +289,12 @@ public class BatteryEntry {
 
     void getQuickNameIconForUid(
             final int uid, final String[] packages, final boolean loadDataInBackground) {
-        // Locale sync to system config in Settings
-        final Locale locale = Locale.getDefault();
-        if (sCurrentLocale != locale) {
-            clearUidCache();
-            sCurrentLocale = locale;
-        }
-
-        final String uidString = Integer.toString(uid);
-        if (sUidCache.containsKey(uidString)) {
-            UidToDetail utd = sUidCache.get(uidString);
-            mDefaultPackageName = utd.mPackageName;
-            mName = utd.mName;
-            mIcon = utd.mIcon;
+        final NameAndIcon cachedNameAndIcon =
+                NameAndIconCache.getInstance().get(getNameAndIconKey());
+        if (cachedNameAndIcon != null) {
+            mDefaultPackageName = cachedNameAndIcon.mPackageName;
+            mName = cachedNameAndIcon.mName;
+            mIcon = cachedNameAndIcon.mIcon;
             return;
         }
 
@@ -334,19 +307,22 @@ public class BatteryEntry {
         }
 
         // Avoids post the loading icon and label in the background request.
-        if (sHandler != null && loadDataInBackground) {
+        if (loadDataInBackground) {
             synchronized (sRequestQueue) {
-                sRequestQueue.add(this);
+                if (sHandler != null) {
+                    sRequestQueue.add(this);
+                }
             }
         }
     }
 
-    /** Loads the app label and icon image and stores into the cache. */
+    /**
+     * Loads the app label and icon image of {@param uid}. Callers are expected to cache the result
+     * in {@link NameAndIconCache}.
+     */
     public static NameAndIcon loadNameAndIcon(
             Context context,
             int uid,
-            Handler handler,
-            BatteryEntry batteryEntry,
             String defaultPackageName,
             String name,
             Drawable icon) {
@@ -421,23 +397,16 @@ public class BatteryEntry {
             }
         }
 
-        final String uidString = Integer.toString(uid);
         if (icon == null) {
             icon = pm.getDefaultActivityIcon();
         }
-
-        UidToDetail utd = new UidToDetail();
-        utd.mName = name;
-        utd.mIcon = icon;
-        utd.mPackageName = defaultPackageName;
-
-        sUidCache.put(uidString, utd);
-        if (handler != null) {
-            handler.sendMessage(handler.obtainMessage(MSG_UPDATE_NAME_ICON, batteryEntry));
-        }
         return new NameAndIcon(name, defaultPackageName, icon, /*iconId=*/ 0);
     }
 
+    private NameAndIconCache.Key getNameAndIconKey() {
+        return NameAndIconCache.createKey(mUid, mDefaultPackageName, UserHandle.getUserId(mUid));
+    }
+
     /** Returns a string that uniquely identifies this battery consumer. */
     public String getKey() {
         if (mBatteryConsumer instanceof UidBatteryConsumer) {
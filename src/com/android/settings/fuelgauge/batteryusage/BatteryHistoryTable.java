@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A columnar copy of a processed battery history map, used to compute usage diffs per time slot.
+ * <p/>
+ * Every distinct {@link BatteryHistEntry} key gets a dense id, and each timestamp gets a row.
+ * Usage times and consumed power are kept in primitive arrays indexed by [row][id], so computing
+ * a slot only reads arrays instead of building key sets and doing boxed map lookups.
+ */
+final class BatteryHistoryTable {
+
+    // Sorted ascending.
+    private final long[] mTimestamps;
+    // Number of entries present in each row.
+    private final int[] mRowSizes;
+    private final String[] mKeys;
+    private final BatteryHistEntry[][] mEntries;
+    private final long[][] mForegroundUsageTimeInMs;
+    private final long[][] mBackgroundUsageTimeInMs;
+    private final double[][] mConsumePower;
+
+    private BatteryHistoryTable(long[] timestamps, String[] keys) {
+        mTimestamps = timestamps;
+        mKeys = keys;
+        mRowSizes = new int[timestamps.length];
+        mEntries = new BatteryHistEntry[timestamps.length][keys.length];
+        mForegroundUsageTimeInMs = new long[timestamps.length][keys.length];
+        mBackgroundUsageTimeInMs = new long[timestamps.length][keys.length];
+        mConsumePower = new double[timestamps.length][keys.length];
+    }
+
+    /** Builds a table holding all entries of {@param batteryHistoryMap}. */
+    static BatteryHistoryTable from(Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap) {
+        final long[] timestamps = new long[batteryHistoryMap.size()];
+        int row = 0;
+        for (long timestamp : batteryHistoryMap.keySet()) {
+            timestamps[row++] = timestamp;
+        }
+        Arrays.sort(timestamps);
+
+        final Map<String, Integer> keyIds = new HashMap<>();
+        for (Map<String, BatteryHistEntry> entryMap : batteryHistoryMap.values()) {
+            if (entryMap == null) {
+                continue;
+            }
+            for (String key : entryMap.keySet()) {
+                if (!keyIds.containsKey(key)) {
+                    keyIds.put(key, keyIds.size());
+                }
+            }
+        }
+        final String[] keys = new String[keyIds.size()];
+        keyIds.forEach((key, id) -> keys[id] = key);
+
+        final BatteryHistoryTable table = new BatteryHistoryTable(timestamps, keys);
+        for (row = 0; row < timestamps.length; row++) {
+            final Map<String, BatteryHistEntry> entryMap = batteryHistoryMap.get(timestamps[row]);
+            if (entryMap == null) {
+                continue;
+            }
+            for (Map.Entry<String, BatteryHistEntry> entry : entryMap.entrySet()) {
+                table.set(row, keyIds.get(entry.getKey()), entry.getValue());
+            }
+        }
+        return table;
+    }
+
+    /** Returns the row of {@param timestamp}, or -1 if the table has no such timestamp. */
+    int indexOf(long timestamp) {
+        final int row = Arrays.binarySearch(mTimestamps, timestamp);
+        return row < 0 ? -1 : row;
+    }
+
+    /** Returns whether {@param row} exists and holds at least one entry. */
+    boolean hasEntries(int row) {
+        return row >= 0 && mRowSizes[row] > 0;
+    }
+
+    int getKeyCount() {
+        return mKeys.length;
+    }
+
+    String getKey(int id) {
+        return mKeys[id];
+    }
+
+    @Nullable
+    BatteryHistEntry getEntry(int row, int id) {
+        return mEntries[row][id];
+    }
+
+    long getForegroundUsageTimeInMs(int row, int id) {
+        return mForegroundUsageTimeInMs[row][id];
+    }
+
+    long getBackgroundUsageTimeInMs(int row, int id) {
+        return mBackgroundUsageTimeInMs[row][id];
+    }
+
+    double getConsumePower(int row, int id) {
+        return mConsumePower[row][id];
+    }
+
+    /**
+     * Returns a fingerprint of the values in {@param rows}. Rows holding the same entries and
+     * values give the same fingerprint regardless of the table they belong to, since entries are
+     * combined independently of their id. Rows that don't exist (-1) are fingerprinted as empty.
+     */
+    long getFingerprint(int... rows) {
+        long result = 1;
+        for (int row : rows) {
+            result = 31 * result + (row < 0 ? -1 : mRowSizes[row]);
+        }
+        long entriesHash = 0;
+        for (int id = 0; id < mKeys.length; id++) {
+            for (int i = 0; i < rows.length; i++) {
+                final int row = rows[i];
+                if (row < 0 || mEntries[row][id] == null) {
+                    continue;
+                }
+                long hash = i;
+                hash = 31 * hash + mKeys[id].hashCode();
+                hash = 31 * hash + Objects.hashCode(mEntries[row][id].mPackageName);
+                hash = 31 * hash + mForegroundUsageTimeInMs[row][id];
+                hash = 31 * hash + mBackgroundUsageTimeInMs[row][id];
+                hash = 31 * hash + Double.doubleToLongBits(mConsumePower[row][id]);
+                // Spreads the bits so that summing stays sensitive to every entry.
+                entriesHash += hash * 0x9E3779B97F4A7C15L;
+            }
+        }
+        return 31 * result + entriesHash;
+    }
+
+    private void set(int row, int id, BatteryHistEntry entry) {
+        if (mEntries[row][id] == null) {
+            mRowSizes[row]++;
+        }
+        mEntries[row][id] = entry;
+        mForegroundUsageTimeInMs[row][id] = entry.mForegroundUsageTimeInMs;
+        mBackgroundUsageTimeInMs[row][id] = entry.mBackgroundUsageTimeInMs;
+        mConsumePower[row][id] = entry.mConsumePower;
+    }
+}
@@ -21,7 +21,6 @@ import static com.android.settings.fuelgauge.batteryusage.ConvertUtils.utcToLoca
 import android.app.settings.SettingsEnums;
 import android.content.ContentValues;
 import android.content.Context;
-import android.os.AsyncTask;
 import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
 import android.os.BatteryUsageStatsQuery;
@@ -31,7 +30,7 @@ import android.os.UserHandle;
 import android.os.UserManager;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
-import android.util.ArraySet;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
@@ -42,6 +41,7 @@ import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.fuelgauge.BatteryStatus;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.time.Duration;
 import java.util.ArrayList;
@@ -49,10 +49,18 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -68,25 +76,47 @@ public final class DataProcessor {
     // Maximum total time value for each hourly slot cumulative data at most 2 hours.
     private static final float TOTAL_HOURLY_TIME_THRESHOLD = DateUtils.HOUR_IN_MILLIS * 2;
     private static final long MIN_TIME_SLOT = DateUtils.HOUR_IN_MILLIS * 2;
-    private static final Map<String, BatteryHistEntry> EMPTY_BATTERY_MAP = new HashMap<>();
-    private static final BatteryHistEntry EMPTY_BATTERY_HIST_ENTRY =
-            new BatteryHistEntry(new ContentValues());
 
     @VisibleForTesting
     static final double PERCENTAGE_OF_TOTAL_THRESHOLD = 1f;
     @VisibleForTesting
     static final int SELECTED_INDEX_ALL = BatteryChartViewModel.SELECTED_INDEX_ALL;
 
+    // Hourly usage diff data per time slot (key: slot start timestamp), kept across reloads so
+    // that only slots whose history changed since the last load are computed again.
+    private static final Map<Long, HourlySlotCacheEntry> sHourlySlotCache = new HashMap<>();
+
     /** A fake package name to represent no BatteryEntry data. */
     public static final String FAKE_PACKAGE_NAME = "fake_package";
 
-    /** A callback listener when battery usage loading async task is executed. */
+    /**
+     * A callback listener when battery usage loading async task is executed. The result of each
+     * loading stage is delivered on the handler passed to {@link #getBatteryLevelData}.
+     */
     public interface UsageMapAsyncResponse {
         /** The callback function when batteryUsageMap is loaded. */
         void onBatteryUsageMapLoaded(
                 Map<Integer, Map<Integer, BatteryDiffData>> batteryUsageMap);
+
+        /**
+         * The callback function when the labels and icons of the entries in batteryUsageMap are
+         * loaded, so they can be shown without loading them on the calling thread.
+         */
+        default void onBatteryUsageMapItemsLoaded(
+                Map<Integer, Map<Integer, BatteryDiffData>> batteryUsageMap) {
+        }
     }
 
+    private static final long USAGE_MAP_ITEMS_KEEP_ALIVE_SECONDS = 30;
+
+    // Labels and icons are loaded on their own thread, off the shared ThreadUtils pool.
+    @VisibleForTesting
+    static ExecutorService sUsageMapItemsExecutor = createUsageMapItemsExecutor();
+
+    // Pipelines in flight, keyed by the delegate they report to.
+    private static final Map<UsageMapAsyncResponse, UsageMapLoadingPipeline> sPendingPipelines =
+            new ArrayMap<>();
+
     private DataProcessor() {
     }
 
@@ -121,13 +151,16 @@ public final class DataProcessor {
             return null;
         }
 
-        // Start the async task to compute diff usage data and load labels and icons.
-        new ComputeUsageMapAndLoadItemsTask(
-                context,
+        // Start the async pipeline to compute diff usage data and load labels and icons.
+        final Context applicationContext = context.getApplicationContext();
+        final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay =
+                batteryLevelData.getHourlyBatteryLevelsPerDay();
+        startUsageMapLoadingPipeline(
                 handler,
                 asyncResponseDelegate,
-                batteryLevelData.getHourlyBatteryLevelsPerDay(),
-                processedBatteryHistoryMap).execute();
+                () -> getBatteryUsageMap(
+                        applicationContext, hourlyBatteryLevelsPerDay,
+                        processedBatteryHistoryMap));
 
         return batteryLevelData;
     }
@@ -455,6 +488,22 @@ public final class DataProcessor {
         return new BatteryDiffData(appEntries, systemEntries, totalConsumePower);
     }
 
+    /**
+     * Cancels the async loading started by {@link #getBatteryLevelData} for
+     * {@param asyncResponseDelegate}. Stages that have not finished yet are skipped and no further
+     * results are delivered to it.
+     */
+    public static void cancelBatteryUsageMapLoading(
+            @Nullable final UsageMapAsyncResponse asyncResponseDelegate) {
+        final UsageMapLoadingPipeline pipeline;
+        synchronized (sPendingPipelines) {
+            pipeline = sPendingPipelines.remove(asyncResponseDelegate);
+        }
+        if (pipeline != null) {
+            pipeline.cancel();
+        }
+    }
+
     /**
      * Starts the async task to load battery diff usage data and load app labels + icons.
      */
@@ -462,10 +511,34 @@ public final class DataProcessor {
             Context context,
             @Nullable Handler handler,
             final UsageMapAsyncResponse asyncResponseDelegate) {
-        new LoadUsageMapFromBatteryStatsServiceTask(
-                context,
+        final Context applicationContext = context.getApplicationContext();
+        startUsageMapLoadingPipeline(
                 handler,
-                asyncResponseDelegate).execute();
+                asyncResponseDelegate,
+                () -> getBatteryUsageMapFromStatsService(applicationContext));
+    }
+
+    private static void startUsageMapLoadingPipeline(
+            @Nullable Handler handler,
+            final UsageMapAsyncResponse asyncResponseDelegate,
+            final Supplier<Map<Integer, Map<Integer, BatteryDiffData>>> usageMapSupplier) {
+        if (asyncResponseDelegate == null) {
+            Log.e(TAG, "invalid input for startUsageMapLoadingPipeline()");
+            return;
+        }
+        final UsageMapLoadingPipeline pipeline = new UsageMapLoadingPipeline(
+                handler != null ? handler : new Handler(Looper.getMainLooper()),
+                asyncResponseDelegate,
+                usageMapSupplier);
+        final UsageMapLoadingPipeline stalePipeline;
+        synchronized (sPendingPipelines) {
+            stalePipeline = sPendingPipelines.put(asyncResponseDelegate, pipeline);
+        }
+        // The result of an earlier loading would be overridden by this one anyway.
+        if (stalePipeline != null) {
+            stalePipeline.cancel();
+        }
+        pipeline.start();
     }
 
     /**
@@ -804,6 +877,8 @@ public final class DataProcessor {
         //     Math.abs(timestamp[i+2] data - timestamp[i+1] data) +
         //     Math.abs(timestamp[i+1] data - timestamp[i] data);
         // since we want to aggregate every two hours data into a single time slot.
+        final BatteryHistoryTable historyTable = BatteryHistoryTable.from(batteryHistoryMap);
+        final Set<Long> slotTimestamps = new HashSet<>();
         for (int dailyIndex = 0; dailyIndex < hourlyBatteryLevelsPerDay.size(); dailyIndex++) {
             final Map<Integer, BatteryDiffData> dailyDiffMap = new HashMap<>();
             resultMap.put(dailyIndex, dailyDiffMap);
@@ -813,16 +888,68 @@ public final class DataProcessor {
             final List<Long> timestamps = hourlyBatteryLevelsPerDay.get(dailyIndex).getTimestamps();
             for (int hourlyIndex = 0; hourlyIndex < timestamps.size() - 1; hourlyIndex++) {
                 final BatteryDiffData hourlyBatteryDiffData =
-                        insertHourlyUsageDiffDataPerSlot(
+                        getHourlyUsageDiffDataPerSlot(
                                 context,
                                 currentUserId,
                                 workProfileUserId,
                                 hourlyIndex,
                                 timestamps,
-                                batteryHistoryMap);
+                                historyTable);
                 dailyDiffMap.put(hourlyIndex, hourlyBatteryDiffData);
+                slotTimestamps.add(timestamps.get(hourlyIndex));
             }
         }
+        // Drops slots which are out of the history range now.
+        synchronized (sHourlySlotCache) {
+            sHourlySlotCache.keySet().retainAll(slotTimestamps);
+        }
+    }
+
+    /**
+     * Returns the usage diff data of a time slot, reusing the result of the previous load when
+     * the slot's history has not changed since. Closed slots are therefore computed only once;
+     * in practice only the latest, still open slot is computed on each reload.
+     */
+    @Nullable
+    private static BatteryDiffData getHourlyUsageDiffDataPerSlot(
+            Context context,
+            final int currentUserId,
+            final int workProfileUserId,
+            final int currentIndex,
+            final List<Long> timestamps,
+            final BatteryHistoryTable historyTable) {
+        final long currentTimestamp = timestamps.get(currentIndex);
+        final long nextTimestamp = currentTimestamp + DateUtils.HOUR_IN_MILLIS;
+        final long nextTwoTimestamp = nextTimestamp + DateUtils.HOUR_IN_MILLIS;
+        long fingerprint = historyTable.getFingerprint(
+                historyTable.indexOf(currentTimestamp),
+                historyTable.indexOf(nextTimestamp),
+                historyTable.indexOf(nextTwoTimestamp));
+        fingerprint = 31 * fingerprint + currentUserId;
+        fingerprint = 31 * fingerprint + workProfileUserId;
+
+        final HourlySlotCacheEntry cacheEntry;
+        synchronized (sHourlySlotCache) {
+            cacheEntry = sHourlySlotCache.get(currentTimestamp);
+        }
+        if (cacheEntry != null && cacheEntry.mFingerprint == fingerprint) {
+            return cacheEntry.copyDiffData(context);
+        }
+        final BatteryDiffData diffData = insertHourlyUsageDiffDataPerSlot(
+                context, currentUserId, workProfileUserId, currentIndex, timestamps,
+                historyTable);
+        synchronized (sHourlySlotCache) {
+            sHourlySlotCache.put(currentTimestamp, new HourlySlotCacheEntry(
+                    context.getApplicationContext(), fingerprint, diffData));
+        }
+        return diffData;
+    }
+
+    @VisibleForTesting
+    static void clearHourlySlotCache() {
+        synchronized (sHourlySlotCache) {
+            sHourlySlotCache.clear();
+        }
     }
 
     private static void insertDailyUsageDiffData(
@@ -857,61 +984,53 @@ public final class DataProcessor {
             final int workProfileUserId,
             final int currentIndex,
             final List<Long> timestamps,
-            final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap) {
+            final BatteryHistoryTable historyTable) {
         final List<BatteryDiffEntry> appEntries = new ArrayList<>();
         final List<BatteryDiffEntry> systemEntries = new ArrayList<>();
 
-        final Long currentTimestamp = timestamps.get(currentIndex);
-        final Long nextTimestamp = currentTimestamp + DateUtils.HOUR_IN_MILLIS;
-        final Long nextTwoTimestamp = nextTimestamp + DateUtils.HOUR_IN_MILLIS;
-        // Fetches BatteryHistEntry data from corresponding time slot.
-        final Map<String, BatteryHistEntry> currentBatteryHistMap =
-                batteryHistoryMap.getOrDefault(currentTimestamp, EMPTY_BATTERY_MAP);
-        final Map<String, BatteryHistEntry> nextBatteryHistMap =
-                batteryHistoryMap.getOrDefault(nextTimestamp, EMPTY_BATTERY_MAP);
-        final Map<String, BatteryHistEntry> nextTwoBatteryHistMap =
-                batteryHistoryMap.getOrDefault(nextTwoTimestamp, EMPTY_BATTERY_MAP);
+        final long currentTimestamp = timestamps.get(currentIndex);
+        final long nextTimestamp = currentTimestamp + DateUtils.HOUR_IN_MILLIS;
+        final long nextTwoTimestamp = nextTimestamp + DateUtils.HOUR_IN_MILLIS;
+        // Fetches BatteryHistEntry data rows from corresponding time slot.
+        final int currentRow = historyTable.indexOf(currentTimestamp);
+        final int nextRow = historyTable.indexOf(nextTimestamp);
+        final int nextTwoRow = historyTable.indexOf(nextTwoTimestamp);
         // We should not get the empty list since we have at least one fake data to record
         // the battery level and status in each time slot, the empty list is used to
         // represent there is no enough data to apply interpolation arithmetic.
-        if (currentBatteryHistMap.isEmpty()
-                || nextBatteryHistMap.isEmpty()
-                || nextTwoBatteryHistMap.isEmpty()) {
+        if (!historyTable.hasEntries(currentRow)
+                || !historyTable.hasEntries(nextRow)
+                || !historyTable.hasEntries(nextTwoRow)) {
             return null;
         }
 
-        // Collects all keys in these three time slot records as all populations.
-        final Set<String> allBatteryHistEntryKeys = new ArraySet<>();
-        allBatteryHistEntryKeys.addAll(currentBatteryHistMap.keySet());
-        allBatteryHistEntryKeys.addAll(nextBatteryHistMap.keySet());
-        allBatteryHistEntryKeys.addAll(nextTwoBatteryHistMap.keySet());
-
         double totalConsumePower = 0.0;
         double consumePowerFromOtherUsers = 0f;
-        // Calculates all packages diff usage data in a specific time slot.
-        for (String key : allBatteryHistEntryKeys) {
-            final BatteryHistEntry currentEntry =
-                    currentBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
-            final BatteryHistEntry nextEntry =
-                    nextBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
-            final BatteryHistEntry nextTwoEntry =
-                    nextTwoBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
+        // Calculates all packages diff usage data in a specific time slot. Keys absent from all
+        // three rows are skipped; absent values read as zero.
+        for (int id = 0; id < historyTable.getKeyCount(); id++) {
+            final BatteryHistEntry currentEntry = historyTable.getEntry(currentRow, id);
+            final BatteryHistEntry nextEntry = historyTable.getEntry(nextRow, id);
+            final BatteryHistEntry nextTwoEntry = historyTable.getEntry(nextTwoRow, id);
+            if (currentEntry == null && nextEntry == null && nextTwoEntry == null) {
+                continue;
+            }
             // Cumulative values is a specific time slot for a specific app.
             long foregroundUsageTimeInMs =
                     getDiffValue(
-                            currentEntry.mForegroundUsageTimeInMs,
-                            nextEntry.mForegroundUsageTimeInMs,
-                            nextTwoEntry.mForegroundUsageTimeInMs);
+                            historyTable.getForegroundUsageTimeInMs(currentRow, id),
+                            historyTable.getForegroundUsageTimeInMs(nextRow, id),
+                            historyTable.getForegroundUsageTimeInMs(nextTwoRow, id));
             long backgroundUsageTimeInMs =
                     getDiffValue(
-                            currentEntry.mBackgroundUsageTimeInMs,
-                            nextEntry.mBackgroundUsageTimeInMs,
-                            nextTwoEntry.mBackgroundUsageTimeInMs);
+                            historyTable.getBackgroundUsageTimeInMs(currentRow, id),
+                            historyTable.getBackgroundUsageTimeInMs(nextRow, id),
+                            historyTable.getBackgroundUsageTimeInMs(nextTwoRow, id));
             double consumePower =
                     getDiffValue(
-                            currentEntry.mConsumePower,
-                            nextEntry.mConsumePower,
-                            nextTwoEntry.mConsumePower);
+                            historyTable.getConsumePower(currentRow, id),
+                            historyTable.getConsumePower(nextRow, id),
+                            historyTable.getConsumePower(nextTwoRow, id));
             // Excludes entry since we don't have enough data to calculate.
             if (foregroundUsageTimeInMs == 0
                     && backgroundUsageTimeInMs == 0
@@ -933,7 +1052,7 @@ public final class DataProcessor {
                     Log.w(TAG, String.format("abnormal usage time %d|%d for:\n%s",
                             Duration.ofMillis(foregroundUsageTimeInMs).getSeconds(),
                             Duration.ofMillis(backgroundUsageTimeInMs).getSeconds(),
-                            currentEntry));
+                            historyTable.getKey(id)));
                 }
                 foregroundUsageTimeInMs =
                         Math.round(foregroundUsageTimeInMs * ratio);
@@ -1118,6 +1237,13 @@ public final class DataProcessor {
         return true;
     }
 
+    private static ExecutorService createUsageMapItemsExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                USAGE_MAP_ITEMS_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private static void loadLabelAndIcon(
             @Nullable final Map<Integer, Map<Integer, BatteryDiffData>> batteryUsageMap) {
         if (batteryUsageMap == null) {
@@ -1176,7 +1302,7 @@ public final class DataProcessor {
     private static BatteryHistEntry selectBatteryHistEntry(
             final BatteryHistEntry... batteryHistEntries) {
         for (BatteryHistEntry entry : batteryHistEntries) {
-            if (entry != null && entry != EMPTY_BATTERY_HIST_ENTRY) {
+            if (entry != null) {
                 return entry;
             }
         }
@@ -1223,92 +1349,138 @@ public final class DataProcessor {
         }
     }
 
-    // Compute diff map and loads all items (icon and label) in the background.
-    private static class ComputeUsageMapAndLoadItemsTask
-            extends AsyncTask<Void, Void, Map<Integer, Map<Integer, BatteryDiffData>>> {
+    /**
+     * Computes the battery usage map and then loads all its items (icon and label) in the
+     * background. The map is computed on the ThreadUtils pool and the items are loaded on
+     * {@link #sUsageMapItemsExecutor}. Both stages publish their result as soon as they finish, so
+     * the usage data can be shown before the items are loaded. Once cancelled, the remaining stages
+     * are skipped and pending results are dropped.
+     */
+    private static final class UsageMapLoadingPipeline {
+        private final Handler mHandler;
+        private final UsageMapAsyncResponse mAsyncResponseDelegate;
+        private final Supplier<Map<Integer, Map<Integer, BatteryDiffData>>> mUsageMapSupplier;
 
-        Context mApplicationContext;
-        final Handler mHandler;
-        final UsageMapAsyncResponse mAsyncResponseDelegate;
-        private List<BatteryLevelData.PeriodBatteryLevelData> mHourlyBatteryLevelsPerDay;
-        private Map<Long, Map<String, BatteryHistEntry>> mBatteryHistoryMap;
+        // Background tasks of the posted stages, guarded by this.
+        private final List<Future<?>> mFutures = new ArrayList<>();
+        private volatile boolean mIsCancelled;
 
-        private ComputeUsageMapAndLoadItemsTask(
-                Context context,
+        private UsageMapLoadingPipeline(
                 Handler handler,
                 final UsageMapAsyncResponse asyncResponseDelegate,
-                final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay,
-                final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap) {
-            mApplicationContext = context.getApplicationContext();
+                final Supplier<Map<Integer, Map<Integer, BatteryDiffData>>> usageMapSupplier) {
             mHandler = handler;
             mAsyncResponseDelegate = asyncResponseDelegate;
-            mHourlyBatteryLevelsPerDay = hourlyBatteryLevelsPerDay;
-            mBatteryHistoryMap = batteryHistoryMap;
-        }
-
-        @Override
-        protected Map<Integer, Map<Integer, BatteryDiffData>> doInBackground(Void... voids) {
-            if (mApplicationContext == null
-                    || mHandler == null
-                    || mAsyncResponseDelegate == null
-                    || mBatteryHistoryMap == null
-                    || mHourlyBatteryLevelsPerDay == null) {
-                Log.e(TAG, "invalid input for ComputeUsageMapAndLoadItemsTask()");
-                return null;
+            mUsageMapSupplier = usageMapSupplier;
+        }
+
+        private void start() {
+            postStage(ThreadUtils::postOnBackgroundThread, this::computeUsageMap);
+        }
+
+        private void cancel() {
+            mIsCancelled = true;
+            synchronized (this) {
+                mFutures.forEach(future -> future.cancel(/*mayInterruptIfRunning=*/ false));
+                mFutures.clear();
+            }
+        }
+
+        private void computeUsageMap() {
+            if (mIsCancelled) {
+                return;
             }
             final long startTime = System.currentTimeMillis();
             final Map<Integer, Map<Integer, BatteryDiffData>> batteryUsageMap =
-                    getBatteryUsageMap(
-                            mApplicationContext, mHourlyBatteryLevelsPerDay, mBatteryHistoryMap);
-            loadLabelAndIcon(batteryUsageMap);
-            Log.d(TAG, String.format("execute ComputeUsageMapAndLoadItemsTask in %d/ms",
+                    mUsageMapSupplier.get();
+            Log.d(TAG, String.format("compute battery usage map in %d/ms",
                     (System.currentTimeMillis() - startTime)));
-            return batteryUsageMap;
+            publish(() -> mAsyncResponseDelegate.onBatteryUsageMapLoaded(batteryUsageMap));
+            postStage(sUsageMapItemsExecutor::submit, () -> loadUsageMapItems(batteryUsageMap));
         }
 
-        @Override
-        protected void onPostExecute(
+        private void loadUsageMapItems(
                 final Map<Integer, Map<Integer, BatteryDiffData>> batteryUsageMap) {
-            mApplicationContext = null;
-            mHourlyBatteryLevelsPerDay = null;
-            mBatteryHistoryMap = null;
-            // Post results back to main thread to refresh UI.
-            if (mHandler != null && mAsyncResponseDelegate != null) {
-                mHandler.post(() -> {
-                    mAsyncResponseDelegate.onBatteryUsageMapLoaded(batteryUsageMap);
-                });
+            if (mIsCancelled) {
+                return;
             }
+            final long startTime = System.currentTimeMillis();
+            loadLabelAndIcon(batteryUsageMap);
+            Log.d(TAG, String.format("load battery usage items in %d/ms",
+                    (System.currentTimeMillis() - startTime)));
+            publish(() -> {
+                // Stays cancellable until the last result is delivered.
+                synchronized (sPendingPipelines) {
+                    sPendingPipelines.remove(mAsyncResponseDelegate, this);
+                }
+                mAsyncResponseDelegate.onBatteryUsageMapItemsLoaded(batteryUsageMap);
+            });
+        }
+
+        private void postStage(Function<Runnable, Future<?>> lane, Runnable stage) {
+            if (mIsCancelled) {
+                return;
+            }
+            final Future<?> future = lane.apply(stage);
+            if (future == null) {
+                return;
+            }
+            synchronized (this) {
+                mFutures.removeIf(Future::isDone);
+                mFutures.add(future);
+            }
+        }
+
+        // Posts results back to main thread to refresh UI.
+        private void publish(Runnable result) {
+            if (mIsCancelled) {
+                return;
+            }
+            mHandler.post(() -> {
+                if (!mIsCancelled) {
+                    result.run();
+                }
+            });
         }
     }
 
-    // Loads battery usage data from battery stats service directly and loads all items (icon and
-    // label) in the background.
-    private static final class LoadUsageMapFromBatteryStatsServiceTask
-            extends ComputeUsageMapAndLoadItemsTask {
+    /**
+     * A memoized hourly slot result. Holds its own copy of the entries, since the entries handed
+     * out are purged and decorated in place. The copy holds the application context, so that a
+     * cached slot doesn't keep the Activity which loaded it.
+     */
+    private static final class HourlySlotCacheEntry {
+        final long mFingerprint;
+        @Nullable
+        private final BatteryDiffData mDiffData;
+
+        HourlySlotCacheEntry(Context appContext, long fingerprint,
+                @Nullable BatteryDiffData diffData) {
+            mFingerprint = fingerprint;
+            mDiffData = diffData == null ? null : copy(appContext, diffData);
+        }
 
-        private LoadUsageMapFromBatteryStatsServiceTask(
-                Context context,
-                Handler handler,
-                final UsageMapAsyncResponse asyncResponseDelegate) {
-            super(context, handler, asyncResponseDelegate, /*hourlyBatteryLevelsPerDay=*/ null,
-                    /*batteryHistoryMap=*/ null);
+        /** Returns a copy of the cached result whose entries hold {@param context}. */
+        @Nullable
+        BatteryDiffData copyDiffData(Context context) {
+            return mDiffData == null ? null : copy(context, mDiffData);
         }
 
-        @Override
-        protected Map<Integer, Map<Integer, BatteryDiffData>> doInBackground(Void... voids) {
-            if (mApplicationContext == null
-                    || mHandler == null
-                    || mAsyncResponseDelegate == null) {
-                Log.e(TAG, "invalid input for ComputeUsageMapAndLoadItemsTask()");
-                return null;
+        private static BatteryDiffData copy(Context context, BatteryDiffData diffData) {
+            return new BatteryDiffData(
+                    copy(context, diffData.getAppDiffEntryList()),
+                    copy(context, diffData.getSystemDiffEntryList()));
+        }
+
+        private static List<BatteryDiffEntry> copy(Context context,
+                List<BatteryDiffEntry> entries) {
+            final List<BatteryDiffEntry> result = new ArrayList<>(entries.size());
+            for (BatteryDiffEntry entry : entries) {
+                final BatteryDiffEntry copiedEntry = entry.clone(context);
+                copiedEntry.setTotalConsumePower(entry.getTotalConsumePower());
+                result.add(copiedEntry);
             }
-            final long startTime = System.currentTimeMillis();
-            final Map<Integer, Map<Integer, BatteryDiffData>> batteryUsageMap =
-                    getBatteryUsageMapFromStatsService(mApplicationContext);
-            loadLabelAndIcon(batteryUsageMap);
-            Log.d(TAG, String.format("execute LoadUsageMapFromBatteryStatsServiceTask in %d/ms",
-                    (System.currentTimeMillis() - startTime)));
-            return batteryUsageMap;
+            return result;
         }
     }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A size-bounded cache of app labels and icons, shared by {@link BatteryEntry},
+ * {@link BatteryDiffEntry} and the battery usage screens built on them.
+ * <p/>
+ * Entries are keyed by uid, package, user and locale, so a label loaded for one locale is never
+ * served for another. Concurrent loads of the same key are de-duplicated: the first caller loads
+ * it and the others wait for its result.
+ */
+final class NameAndIconCache {
+    private static final String TAG = "NameAndIconCache";
+
+    @VisibleForTesting
+    static final int MAX_SIZE = 256;
+
+    private static final NameAndIconCache sInstance = new NameAndIconCache(MAX_SIZE);
+
+    /** Loads the label and icon for a {@link Key} that is not cached. */
+    interface Loader {
+        @Nullable
+        BatteryEntry.NameAndIcon load();
+    }
+
+    /** Receives the result of {@link #loadInBackground}. */
+    interface Callback {
+        void onLoaded(@Nullable BatteryEntry.NameAndIcon nameAndIcon);
+    }
+
+    private final LruCache<Key, BatteryEntry.NameAndIcon> mCache;
+    private final Map<Key, CompletableFuture<BatteryEntry.NameAndIcon>> mPendingLoads =
+            new ConcurrentHashMap<>();
+    // Guarded by this.
+    private Locale mCurrentLocale;
+
+    @VisibleForTesting
+    NameAndIconCache(int maxSize) {
+        mCache = new LruCache<>(maxSize);
+    }
+
+    static NameAndIconCache getInstance() {
+        return sInstance;
+    }
+
+    /** Creates the key of an app or user for the current locale. */
+    static Key createKey(int uid, @Nullable String packageName, int userId) {
+        return new Key(uid, packageName, userId, Locale.getDefault());
+    }
+
+    /** Returns the cached label and icon of {@param key}, or null if it is not loaded yet. */
+    @Nullable
+    BatteryEntry.NameAndIcon get(Key key) {
+        evictIfLocaleChanged();
+        return mCache.get(key);
+    }
+
+    void put(Key key, @Nullable BatteryEntry.NameAndIcon nameAndIcon) {
+        if (nameAndIcon == null) {
+            return;
+        }
+        // Drops a result loaded while the locale was changing.
+        if (key.mLocale.equals(evictIfLocaleChanged())) {
+            mCache.put(key, nameAndIcon);
+        }
+    }
+
+    /**
+     * Returns the label and icon of {@param key}, loading it with {@param loader} on a cache miss.
+     * Runs on the calling thread, which waits if another thread is already loading the same key.
+     */
+    @Nullable
+    BatteryEntry.NameAndIcon getOrLoad(Key key, Loader loader) {
+        final BatteryEntry.NameAndIcon cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final CompletableFuture<BatteryEntry.NameAndIcon> future = new CompletableFuture<>();
+        final CompletableFuture<BatteryEntry.NameAndIcon> pendingLoad =
+                mPendingLoads.putIfAbsent(key, future);
+        if (pendingLoad != null) {
+            try {
+                return pendingLoad.join();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "pending load failed for " + key, e);
+                return null;
+            }
+        }
+        try {
+            final BatteryEntry.NameAndIcon nameAndIcon = loader.load();
+            put(key, nameAndIcon);
+            future.complete(nameAndIcon);
+            return nameAndIcon;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            mPendingLoads.remove(key, future);
+        }
+    }
+
+    /**
+     * Loads the label and icon of {@param key} on a background thread and passes it to
+     * {@param callback} on that thread. Several keys may load in parallel.
+     */
+    void loadInBackground(Key key, Loader loader, Callback callback) {
+        ThreadUtils.postOnBackgroundThread(() -> callback.onLoaded(getOrLoad(key, loader)));
+    }
+
+    void clear() {
+        mCache.evictAll();
+    }
+
+    @VisibleForTesting
+    int size() {
+        return mCache.size();
+    }
+
+    // Returns the current locale.
+    private synchronized Locale evictIfLocaleChanged() {
+        final Locale locale = Locale.getDefault();
+        if (!locale.equals(mCurrentLocale)) {
+            // Entries of other locales can't be served anymore, frees them at once.
+            if (mCurrentLocale != null) {
+                Log.d(TAG, String.format("clear() locale is changed from %s to %s",
+                        mCurrentLocale, locale));
+                mCache.evictAll();
+            }
+            mCurrentLocale = locale;
+        }
+        return locale;
+    }
+
+    /** Identifies the label and icon of an app or a user in a locale. */
+    static final class Key {
+        final int mUid;
+        @Nullable
+        final String mPackageName;
+        final int mUserId;
+        final Locale mLocale;
+
+        Key(int uid, @Nullable String packageName, int userId, Locale locale) {
+            mUid = uid;
+            mPackageName = packageName;
+            mUserId = userId;
+            mLocale = locale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return mUid == other.mUid
+                    && mUserId == other.mUserId
+                    && Objects.equals(mPackageName, other.mPackageName)
+                    && mLocale.equals(other.mLocale);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mUid, mPackageName, mUserId, mLocale);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Key{uid=%d package=%s userId=%d locale=%s}",
+                    mUid, mPackageName, mUserId, mLocale);
+        }
+    }
+}
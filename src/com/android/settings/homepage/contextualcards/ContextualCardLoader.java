@@ -27,10 +27,12 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.Settings;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
@@ -38,14 +40,17 @@ import com.android.settings.homepage.contextualcards.logging.ContextualCardLogUt
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.utils.AsyncLoaderCompat;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>> {
 
@@ -57,6 +62,11 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
 
     private static final String TAG = "ContextualCardLoader";
     private static final long ELIGIBILITY_CHECKER_TIMEOUT_MS = 400;
+    private static final int ELIGIBILITY_CHECKER_THREAD_COUNT = 8;
+    private static final long ELIGIBILITY_CHECKER_KEEP_ALIVE_SECONDS = 30;
+
+    // Shared by all loads, its threads are only kept alive for a while after a load.
+    private static final ExecutorService sEligibilityExecutor = createEligibilityExecutor();
 
     private final ContentObserver mObserver = new ContentObserver(
             new Handler(Looper.getMainLooper())) {
@@ -64,6 +74,10 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
         public void onChange(boolean selfChange, Uri uri) {
             if (isStarted()) {
                 mNotifyUri = uri;
+                if (CardContentProvider.REFRESH_CARD_URI.equals(uri)) {
+                    // A card failed to show its slice, so all of them are checked again.
+                    EligibleCardCache.getInstance(mContext).clear();
+                }
                 forceLoad();
             }
         }
@@ -73,12 +87,24 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
     Uri mNotifyUri;
 
     private final Context mContext;
+    // Identifies the latest load, partial results of an older load are dropped.
+    private final AtomicInteger mLoadGeneration = new AtomicInteger();
+    private volatile PartialResultListener mPartialResultListener;
 
     ContextualCardLoader(Context context) {
         super(context);
         mContext = context.getApplicationContext();
     }
 
+    /**
+     * Sets a listener which receives the cards which are sure to be displayed on the main thread,
+     * as soon as they are checked. The complete result is still delivered through
+     * {@link #deliverResult}.
+     */
+    void setPartialResultListener(@Nullable PartialResultListener listener) {
+        mPartialResultListener = listener;
+    }
+
     @Override
     protected void onStartLoading() {
         super.onStartLoading();
@@ -188,42 +214,113 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             return candidates;
         }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(candidates.size());
-        final List<ContextualCard> cards = new ArrayList<>();
-        List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
-
-        final List<EligibleCardChecker> checkers = candidates.stream()
-                .map(card -> new EligibleCardChecker(mContext, card))
-                .collect(Collectors.toList());
-        try {
-            eligibleCards = executor.invokeAll(checkers, ELIGIBILITY_CHECKER_TIMEOUT_MS,
-                    TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            Log.w(TAG, "Failed to get eligible states for all cards", e);
+        final int generation = mLoadGeneration.incrementAndGet();
+        final List<Future<ContextualCard>> eligibleCards = new ArrayList<>(candidates.size());
+        for (ContextualCard candidate : candidates) {
+            eligibleCards.add(
+                    sEligibilityExecutor.submit(new EligibleCardChecker(mContext, candidate)));
         }
-        executor.shutdown();
 
-        // Collect future and eligible cards
+        // Collect eligible cards in the order of candidates, so that the cards of the candidates
+        // checked so far can be published while the slower ones are still checked.
+        final long deadline = SystemClock.elapsedRealtime() + ELIGIBILITY_CHECKER_TIMEOUT_MS;
+        final List<ContextualCard> cards = new ArrayList<>();
+        int publishedCount = 0;
         for (int i = 0; i < eligibleCards.size(); i++) {
             final Future<ContextualCard> cardFuture = eligibleCards.get(i);
-            if (cardFuture.isCancelled()) {
-                Log.w(TAG, "Timeout getting eligible state for card: "
-                        + candidates.get(i).getSliceUri());
-                continue;
-            }
-
             try {
-                final ContextualCard card = cardFuture.get();
+                final ContextualCard card = cardFuture.get(
+                        Math.max(0L, deadline - SystemClock.elapsedRealtime()),
+                        TimeUnit.MILLISECONDS);
                 if (card != null) {
                     cards.add(card);
                 }
+            } catch (TimeoutException e) {
+                cardFuture.cancel(true /* mayInterruptIfRunning */);
+                Log.w(TAG, "Timeout getting eligible state for card: "
+                        + candidates.get(i).getSliceUri());
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Failed to get eligible states for all cards", e);
+                eligibleCards.forEach(future -> future.cancel(true /* mayInterruptIfRunning */));
+                break;
             } catch (Exception e) {
                 Log.w(TAG, "Failed to get eligible state for card", e);
             }
+            publishedCount = publishSettledCards(generation, candidates, i + 1, cards,
+                    publishedCount);
         }
         return cards;
     }
 
+    /**
+     * Returns the cards which are displayed whatever the eligibility of the candidates which are
+     * not checked yet turns out to be. Cards are only ever added to this list as more candidates
+     * are checked, so publishing it doesn't make displayed cards disappear.
+     *
+     * @param checkedCount the number of leading candidates which are checked
+     * @param eligibleCards the eligible cards among the checked candidates, in the same order
+     */
+    @VisibleForTesting
+    static List<ContextualCard> getSettledCards(List<ContextualCard> candidates,
+            int checkedCount, List<ContextualCard> eligibleCards, int maxCardCount) {
+        final List<ContextualCard> stickyCards = new ArrayList<>();
+        for (ContextualCard card : eligibleCards) {
+            if (card.getCategory() == STICKY_VALUE && stickyCards.size() < maxCardCount) {
+                stickyCards.add(card);
+            }
+        }
+        // Assume every unchecked sticky candidate is eligible, as they take slots away from
+        // non-sticky cards.
+        int possibleStickyCount = stickyCards.size();
+        for (int i = checkedCount; i < candidates.size(); i++) {
+            if (candidates.get(i).getCategory() == STICKY_VALUE) {
+                possibleStickyCount++;
+            }
+        }
+        final int nonStickyCardCount = maxCardCount - Math.min(maxCardCount, possibleStickyCount);
+
+        final List<ContextualCard> settledCards = new ArrayList<>();
+        for (ContextualCard card : eligibleCards) {
+            if (card.getCategory() != STICKY_VALUE && settledCards.size() < nonStickyCardCount) {
+                settledCards.add(card);
+            }
+        }
+        settledCards.addAll(stickyCards);
+        return settledCards;
+    }
+
+    // Returns the number of cards published so far.
+    private int publishSettledCards(int generation, List<ContextualCard> candidates,
+            int checkedCount, List<ContextualCard> eligibleCards, int publishedCount) {
+        // The complete result is delivered right after the last candidate is checked.
+        if (mPartialResultListener == null || checkedCount == candidates.size()) {
+            return publishedCount;
+        }
+        final List<ContextualCard> settledCards =
+                getSettledCards(candidates, checkedCount, eligibleCards, getCardCount());
+        if (settledCards.size() <= publishedCount) {
+            return publishedCount;
+        }
+        ThreadUtils.postOnMainThread(() -> {
+            final PartialResultListener listener = mPartialResultListener;
+            if (listener == null || generation != mLoadGeneration.get() || !isStarted()
+                    || isAbandoned()) {
+                return;
+            }
+            listener.onPartialResult(settledCards);
+        });
+        return settledCards.size();
+    }
+
+    private static ExecutorService createEligibilityExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                ELIGIBILITY_CHECKER_THREAD_COUNT, ELIGIBILITY_CHECKER_THREAD_COUNT,
+                ELIGIBILITY_CHECKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private boolean isLargeCard(ContextualCard card) {
         return card.getSliceUri().equals(CONTEXTUAL_WIFI_SLICE_URI)
                 || card.getSliceUri().equals(BLUETOOTH_DEVICES_SLICE_URI);
@@ -231,5 +328,16 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
 
     public interface CardContentLoaderListener {
         void onFinishCardLoading(List<ContextualCard> contextualCards);
+
+        /**
+         * Called with the cards which are sure to be displayed before the load finishes, which
+         * are then part of the cards passed to {@link #onFinishCardLoading}.
+         */
+        void onPartialCardLoading(List<ContextualCard> contextualCards);
+    }
+
+    /** Receives the cards which are sure to be displayed before the load finishes. */
+    interface PartialResultListener {
+        void onPartialResult(List<ContextualCard> contextualCards);
     }
 }
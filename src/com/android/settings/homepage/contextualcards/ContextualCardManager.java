@@ -97,6 +97,9 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
     boolean mIsFirstLaunch;
     @VisibleForTesting
     List<String> mSavedCards;
+    // The cards shown before the first launch load finishes, or null.
+    @VisibleForTesting
+    List<ContextualCard> mPartialCards;
 
     public ContextualCardManager(Context context, Lifecycle lifecycle, Bundle savedInstanceState) {
         mContext = context;
@@ -123,6 +126,7 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
             return;
         }
         mStartTime = System.currentTimeMillis();
+        mPartialCards = null;
         final CardContentLoaderCallbacks cardContentLoaderCallbacks =
                 new CardContentLoaderCallbacks(mContext);
         cardContentLoaderCallbacks.setListener(this);
@@ -229,6 +233,21 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
         }
     }
 
+    @Override
+    public void onPartialCardLoading(List<ContextualCard> cards) {
+        // Cards of a reload are only filtered once all of them are loaded.
+        if (!mIsFirstLaunch) {
+            return;
+        }
+        // Cards checked after the timeout are deferred to the next load, instead of popping up
+        // in a homepage which has already settled.
+        if (System.currentTimeMillis() - mStartTime > getCardLoaderTimeout()) {
+            return;
+        }
+        mPartialCards = cards;
+        onContextualCardUpdated(cards.stream().collect(groupingBy(ContextualCard::getCardType)));
+    }
+
     @Override
     public void onFinishCardLoading(List<ContextualCard> cards) {
         final long loadTime = System.currentTimeMillis() - mStartTime;
@@ -257,12 +276,19 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
                     SettingsEnums.ACTION_CONTEXTUAL_CARD_SHOW,
                     ContextualCardLogUtils.buildCardListLog(cards));
         } else {
+            // Keep the cards shown before the timeout, the slower ones are deferred.
+            if (mPartialCards != null && !mPartialCards.isEmpty()) {
+                metricsFeatureProvider.action(mContext,
+                        SettingsEnums.ACTION_CONTEXTUAL_CARD_SHOW,
+                        ContextualCardLogUtils.buildCardListLog(mPartialCards));
+            }
             // log timeout occurrence
             metricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
                     SettingsEnums.ACTION_CONTEXTUAL_CARD_LOAD_TIMEOUT,
                     SettingsEnums.SETTINGS_HOMEPAGE,
                     null /* key */, (int) loadTime /* value */);
         }
+        mPartialCards = null;
         //only log homepage display upon a fresh launch
         final long totalTime = System.currentTimeMillis() - mStartTime;
         metricsFeatureProvider.action(mContext,
@@ -403,7 +429,13 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
         @Override
         public Loader<List<ContextualCard>> onCreateLoader(int id, @Nullable Bundle bundle) {
             if (id == CARD_CONTENT_LOADER_ID) {
-                return new ContextualCardLoader(mContext);
+                final ContextualCardLoader loader = new ContextualCardLoader(mContext);
+                loader.setPartialResultListener(cards -> {
+                    if (mListener != null) {
+                        mListener.onPartialCardLoading(cards);
+                    }
+                });
+                return loader;
             } else {
                 throw new IllegalArgumentException("Unknown loader id: " + id);
             }
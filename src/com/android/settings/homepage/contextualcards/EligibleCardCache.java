@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.slice.Slice;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches the slices bound by {@link EligibleCardChecker} for a short time, so that loading the
+ * homepage again soon doesn't pin and bind every slice again.
+ * <p/>
+ * A slice is dropped once it is older than {@link #TTL_MS}, or as soon as its uri is notified as
+ * changed. A slice which failed to bind is cached as null, so the card stays ineligible.
+ */
+final class EligibleCardCache {
+    private static final String TAG = "EligibleCardCache";
+
+    @VisibleForTesting
+    static final long TTL_MS = 30000L;
+
+    private static EligibleCardCache sInstance;
+
+    private final Context mContext;
+    // Guarded by this.
+    private final Map<Uri, Entry> mEntries = new ArrayMap<>();
+    // Guarded by this. The uris which are observed for changes, observers are kept registered as
+    // there is only a handful of cards.
+    private final Set<Uri> mObservedUris = new ArraySet<>();
+
+    private final ContentObserver mObserver = new ContentObserver(null /* handler */) {
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            invalidate(uri);
+        }
+    };
+
+    @VisibleForTesting
+    EligibleCardCache(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    static synchronized EligibleCardCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new EligibleCardCache(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the cached binding of {@param uri}, or null if it is not cached or has expired.
+     */
+    @Nullable
+    synchronized Entry get(Uri uri) {
+        final Entry entry = mEntries.get(uri);
+        if (entry != null && SystemClock.elapsedRealtime() - entry.mBindTime >= TTL_MS) {
+            mEntries.remove(uri);
+            return null;
+        }
+        return entry;
+    }
+
+    /** Caches the slice bound for {@param uri}, or null if it failed to bind. */
+    void put(Uri uri, @Nullable Slice slice) {
+        final boolean observe;
+        synchronized (this) {
+            mEntries.put(uri, new Entry(slice, SystemClock.elapsedRealtime()));
+            observe = mObservedUris.add(uri);
+        }
+        if (observe) {
+            try {
+                mContext.getContentResolver().registerContentObserver(uri,
+                        false /* notifyForDescendants */, mObserver);
+            } catch (SecurityException e) {
+                // The slice is still dropped once it expires.
+                Log.w(TAG, "Failed to observe " + uri, e);
+                synchronized (this) {
+                    mObservedUris.remove(uri);
+                }
+            }
+        }
+    }
+
+    synchronized void invalidate(Uri uri) {
+        mEntries.remove(uri);
+    }
+
+    synchronized void clear() {
+        mEntries.clear();
+    }
+
+    /** A slice bound for a card. */
+    static final class Entry {
+        @Nullable
+        private final Slice mSlice;
+        private final long mBindTime;
+
+        private Entry(@Nullable Slice slice, long bindTime) {
+            mSlice = slice;
+            mBindTime = bindTime;
+        }
+
+        /** Returns the bound slice, or null if it failed to bind. */
+        @Nullable
+        Slice getSlice() {
+            return mSlice;
+        }
+    }
+}
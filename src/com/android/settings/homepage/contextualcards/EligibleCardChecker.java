@@ -43,13 +43,20 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
     private static final String TAG = "EligibleCardChecker";
 
     private final Context mContext;
+    private final EligibleCardCache mCache;
 
     @VisibleForTesting
     ContextualCard mCard;
 
     EligibleCardChecker(Context context, ContextualCard card) {
+        this(context, card, EligibleCardCache.getInstance(context));
+    }
+
+    @VisibleForTesting
+    EligibleCardChecker(Context context, ContextualCard card, EligibleCardCache cache) {
         mContext = context;
         mCard = card;
+        mCache = cache;
     }
 
     @Override
@@ -93,7 +100,14 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
             return false;
         }
 
-        final Slice slice = bindSlice(uri);
+        final Slice slice;
+        final EligibleCardCache.Entry cached = mCache.get(uri);
+        if (cached != null) {
+            slice = cached.getSlice();
+        } else {
+            slice = bindSlice(uri);
+            mCache.put(uri, slice);
+        }
 
         if (slice == null || slice.hasHint(HINT_ERROR)) {
             Log.w(TAG, "Failed to bind slice, not eligible for display " + uri);
@@ -142,6 +142,8 @@ public abstract class ActiveSubscriptionsListener
     public void onSubscriptionsChanged() {
         // clear value in cache
         clearCache();
+        // Starts fetching before the listeners, which likely read the configs while notified.
+        prefetchCarrierConfigs();
         listenerNotify();
     }
 
@@ -329,6 +331,22 @@ public abstract class ActiveSubscriptionsListener
         onChanged();
     }
 
+    private void prefetchCarrierConfigs() {
+        if (mCacheState.get() < STATE_LISTENING) {
+            return;
+        }
+        // Caches the list, so the listeners notified next are served from it.
+        final List<SubscriptionInfo> subInfoList = getActiveSubscriptionsInfo();
+        if (subInfoList == null || subInfoList.isEmpty()) {
+            return;
+        }
+        final int[] subIds = new int[subInfoList.size()];
+        for (int i = 0; i < subIds.length; i++) {
+            subIds[i] = subInfoList.get(i).getSubscriptionId();
+        }
+        CarrierConfigCache.getInstance(mContext).prefetchConfigs(subIds);
+    }
+
     private boolean clearCachedSubId(int subId) {
         if (mCacheState.get() < STATE_DATA_CACHED) {
             return false;
@@ -34,7 +34,10 @@ import android.util.Log;
 import androidx.annotation.GuardedBy;
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settingslib.utils.ThreadUtils;
+
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -54,13 +57,15 @@ public class CarrierConfigCache {
     private static Map<Context, CarrierConfigCache> sTestInstances;
 
     /**
-     * Manages mapping data from the subscription ID to the Carrier-Configuration
+     * Manages mapping data from the subscription ID to the future of the Carrier-Configuration
      * {@link PersistableBundle} object.
      *
-     * The Carrier-Configurations are used to share with all sub-settings.
+     * The Carrier-Configurations are used to share with all sub-settings. Callers asking for a
+     * subscription which is being fetched wait for the same fetch, while other subscriptions can
+     * be fetched at the same time.
      */
     @VisibleForTesting
-    protected static final Map<Integer, PersistableBundle> sCarrierConfigs =
+    protected static final Map<Integer, CompletableFuture<PersistableBundle>> sCarrierConfigs =
             new ConcurrentHashMap<>();
     @VisibleForTesting
     protected static CarrierConfigManager sCarrierConfigManager;
@@ -139,17 +144,50 @@ public class CarrierConfigCache {
     public PersistableBundle getConfigForSubId(int subId) {
         if (sCarrierConfigManager == null) return null;
 
-        synchronized (sCarrierConfigs) {
-            if (sCarrierConfigs.containsKey(subId)) {
-                return sCarrierConfigs.get(subId);
-            }
-            final PersistableBundle config = sCarrierConfigManager.getConfigForSubId(subId);
-            if (config == null) {
-                Log.e(TAG, "Could not get carrier config, subId:" + subId);
+        final CompletableFuture<PersistableBundle> future = new CompletableFuture<>();
+        final CompletableFuture<PersistableBundle> cachedFuture =
+                sCarrierConfigs.putIfAbsent(subId, future);
+        if (cachedFuture != null) {
+            try {
+                return cachedFuture.join();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Could not get carrier config, subId:" + subId, e);
                 return null;
             }
-            sCarrierConfigs.put(subId, config);
-            return config;
+        }
+        // Fetches without holding any lock, so other subscriptions are never blocked.
+        final PersistableBundle config;
+        try {
+            config = sCarrierConfigManager.getConfigForSubId(subId);
+        } catch (RuntimeException e) {
+            sCarrierConfigs.remove(subId, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        if (config == null) {
+            Log.e(TAG, "Could not get carrier config, subId:" + subId);
+            // Not cached, so the next caller tries again.
+            sCarrierConfigs.remove(subId, future);
+        }
+        future.complete(config);
+        return config;
+    }
+
+    /**
+     * Fetches the Carrier-Configurations of the given subscriptions on background threads, when
+     * they are not cached yet.
+     *
+     * @param subIds the subscription IDs, normally of the active subscriptions.
+     */
+    public void prefetchConfigs(@NonNull int[] subIds) {
+        if (sCarrierConfigManager == null) return;
+
+        for (int subId : subIds) {
+            if (!SubscriptionManager.isValidSubscriptionId(subId)
+                    || sCarrierConfigs.containsKey(subId)) {
+                continue;
+            }
+            ThreadUtils.postOnBackgroundThread(() -> getConfigForSubId(subId));
         }
     }
 
@@ -170,12 +208,10 @@ public class CarrierConfigCache {
             if (!ACTION_CARRIER_CONFIG_CHANGED.equals(intent.getAction())) return;
 
             final int subId = intent.getIntExtra(EXTRA_SUBSCRIPTION_INDEX, INVALID_SUBSCRIPTION_ID);
-            synchronized (sCarrierConfigs) {
-                if (SubscriptionManager.isValidSubscriptionId(subId)) {
-                    sCarrierConfigs.remove(subId);
-                } else {
-                    sCarrierConfigs.clear();
-                }
+            if (SubscriptionManager.isValidSubscriptionId(subId)) {
+                sCarrierConfigs.remove(subId);
+            } else {
+                sCarrierConfigs.clear();
             }
         }
     }
@@ -16,29 +16,49 @@
 
 package com.android.settings.network.telephony;
 
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.android.settings.core.BasePreferenceController;
 import com.android.settingslib.core.AbstractPreferenceController;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Session for controlling the status of TelephonyPreferenceController(s).
  *
  * Within this session, result of {@link BasePreferenceController#availabilityStatus()}
  * would be under control.
+ *
+ * The availability of the controllers is evaluated on a few threads shared by all sessions,
+ * instead of one background task for each controller, so a page with many controllers doesn't
+ * flood TelephonyManager and ImsManager with parallel queries. A controller which is not
+ * evaluated before the deadline of the session is left to evaluate its own availability.
  */
 public class TelephonyStatusControlSession implements AutoCloseable {
 
     private static final String LOG_TAG = "TelephonyStatusControlSS";
 
-    private Collection<AbstractPreferenceController> mControllers;
-    private Collection<Future<Boolean>> mResult = new ArrayList<>();
+    private static final int EVALUATION_THREAD_COUNT = 4;
+    private static final long EVALUATION_KEEP_ALIVE_SECONDS = 30;
+    private static final long EVALUATION_TIMEOUT_MS = 2000;
+    private static final long SLOW_EVALUATION_MS = 100;
+
+    private static final ExecutorService sEvaluationExecutor = createEvaluationExecutor();
+
+    private final List<Evaluation> mEvaluations = new ArrayList<>();
+    private final long mStartTime;
+    private final long mDeadline;
 
     /**
      * Buider of session
@@ -67,10 +87,16 @@ public class TelephonyStatusControlSession implements AutoCloseable {
     }
 
     private TelephonyStatusControlSession(Collection<AbstractPreferenceController> controllers) {
-        mControllers = controllers;
-        controllers.forEach(prefCtrl -> mResult
-                .add(ThreadUtils.postOnBackgroundThread(() -> setupAvailabilityStatus(prefCtrl))));
-
+        mStartTime = SystemClock.elapsedRealtime();
+        mDeadline = mStartTime + EVALUATION_TIMEOUT_MS;
+        controllers.stream()
+                .filter(controller -> controller instanceof TelephonyAvailabilityHandler)
+                .forEach(controller -> {
+                    final Evaluation evaluation = new Evaluation(controller);
+                    evaluation.mFuture = sEvaluationExecutor.submit(
+                            () -> setupAvailabilityStatus(evaluation));
+                    mEvaluations.add(evaluation);
+                });
     }
 
     /**
@@ -79,39 +105,94 @@ public class TelephonyStatusControlSession implements AutoCloseable {
      * No longer control the status.
      */
     public void close() {
-        //check the background thread is finished then unset the status of availability.
-
-        for (Future<Boolean> result : mResult) {
+        // Waits for the evaluations until the deadline, then unsets the status of availability.
+        for (Evaluation evaluation : mEvaluations) {
+            final long remainingMs = mDeadline - SystemClock.elapsedRealtime();
             try {
-                result.get();
-            } catch (ExecutionException | InterruptedException exception) {
+                evaluation.mFuture.get(Math.max(remainingMs, 0), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException exception) {
+                // Frees the lane if it is not started yet.
+                evaluation.mFuture.cancel(false /* mayInterruptIfRunning */);
+            } catch (ExecutionException | InterruptedException | CancellationException exception) {
                 Log.e(LOG_TAG, "setup availability status failed!", exception);
             }
+            evaluation.close();
         }
-        unsetAvailabilityStatus(mControllers);
+        logEvaluationTimes();
     }
 
-    private Boolean setupAvailabilityStatus(AbstractPreferenceController controller) {
+    private void setupAvailabilityStatus(Evaluation evaluation) {
+        final long startTime = SystemClock.elapsedRealtime();
         try {
-            if (controller instanceof TelephonyAvailabilityHandler) {
-                int status = ((BasePreferenceController) controller)
-                        .getAvailabilityStatus();
-                ((TelephonyAvailabilityHandler) controller).setAvailabilityStatus(status);
-            }
-            return true;
+            final int status =
+                    ((BasePreferenceController) evaluation.mController).getAvailabilityStatus();
+            evaluation.setAvailabilityStatus(status, SystemClock.elapsedRealtime() - startTime);
         } catch (Exception exception) {
             Log.e(LOG_TAG, "Setup availability status failed!", exception);
-            return false;
         }
     }
 
-    private void unsetAvailabilityStatus(
-            Collection<AbstractPreferenceController> controllerLists) {
-        controllerLists.stream()
-                .filter(controller -> controller instanceof TelephonyAvailabilityHandler)
-                .map(TelephonyAvailabilityHandler.class::cast)
-                .forEach(controller -> {
-                    controller.unsetAvailabilityStatus();
-                });
+    private void logEvaluationTimes() {
+        int evaluatedCount = 0;
+        for (Evaluation evaluation : mEvaluations) {
+            final long durationMs = evaluation.getDurationMs();
+            if (durationMs < 0) {
+                Log.w(LOG_TAG, "Not evaluated: "
+                        + evaluation.mController.getPreferenceKey());
+                continue;
+            }
+            evaluatedCount++;
+            if (durationMs >= SLOW_EVALUATION_MS) {
+                Log.w(LOG_TAG, "Slow evaluation: " + evaluation.mController.getPreferenceKey()
+                        + " took " + durationMs + " ms");
+            }
+        }
+        Log.d(LOG_TAG, "Evaluated " + evaluatedCount + " of " + mEvaluations.size()
+                + " controllers in " + (SystemClock.elapsedRealtime() - mStartTime) + " ms");
+    }
+
+    private static ExecutorService createEvaluationExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                EVALUATION_THREAD_COUNT, EVALUATION_THREAD_COUNT,
+                EVALUATION_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /** The availability evaluation of a controller within a session. */
+    private static final class Evaluation {
+        private final AbstractPreferenceController mController;
+        private Future<?> mFuture;
+        // Guarded by this.
+        private long mDurationMs = -1;
+        private boolean mIsStatusSet;
+        private boolean mIsClosed;
+
+        private Evaluation(AbstractPreferenceController controller) {
+            mController = controller;
+        }
+
+        synchronized void setAvailabilityStatus(int status, long durationMs) {
+            mDurationMs = durationMs;
+            // An evaluation finishing after the deadline must not control the status anymore.
+            if (mIsClosed) {
+                return;
+            }
+            ((TelephonyAvailabilityHandler) mController).setAvailabilityStatus(status);
+            mIsStatusSet = true;
+        }
+
+        synchronized long getDurationMs() {
+            return mDurationMs;
+        }
+
+        synchronized void close() {
+            mIsClosed = true;
+            if (mIsStatusSet) {
+                ((TelephonyAvailabilityHandler) mController).unsetAvailabilityStatus();
+                mIsStatusSet = false;
+            }
+        }
     }
 }
@@ -61,6 +61,7 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.internal.util.CollectionUtils;
+import com.android.settings.applications.AppStateNotificationBridge;
 import com.android.settingslib.R;
 import com.android.settingslib.Utils;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
@@ -199,6 +200,7 @@ public class NotificationBackend {
                 updateChannel(pkg, uid, defaultChannel);
             }
             sINM.setNotificationsEnabledForPackage(pkg, uid, enabled);
+            AppStateNotificationBridge.onNotificationsBannedChanged(uid, pkg);
             return true;
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
@@ -29,11 +29,14 @@ import android.os.SystemClock;
 import android.util.ArrayMap;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -54,7 +57,15 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
 
     private static final String TAG = "SliceBackgroundWorker";
 
-    private static final long SLICE_UPDATE_THROTTLE_INTERVAL = 300L;
+    @VisibleForTesting
+    static final long SLICE_UPDATE_THROTTLE_INTERVAL = 300L;
+
+    /**
+     * Updates are only emitted on multiples of this interval, so every slice that becomes dirty
+     * within the same window is notified in a single batch.
+     */
+    @VisibleForTesting
+    static final long SLICE_UPDATE_BATCH_WINDOW = 100L;
 
     private static final Map<Uri, SliceBackgroundWorker> LIVE_WORKERS = new ArrayMap<>();
 
@@ -62,6 +73,7 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
     private final Uri mUri;
 
     private List<E> mCachedResults;
+    private int mCachedResultsHash;
 
     protected SliceBackgroundWorker(Context context, Uri uri) {
         mContext = context;
@@ -113,6 +125,13 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
         }
     }
 
+    /**
+     * Prints how many updates were emitted and coalesced for each pinned slice {@link Uri}.
+     */
+    static void dumpUpdateStats(PrintWriter writer) {
+        NotifySliceChangeHandler.getInstance().dump(writer);
+    }
+
     static void shutdown() {
         for (SliceBackgroundWorker worker : LIVE_WORKERS.values()) {
             try {
@@ -146,7 +165,7 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
     }
 
     /**
-     * Update the results when data changes
+     * Update the results when data changes.
      */
     protected final void updateResults(List<E> results) {
         boolean needNotify = false;
@@ -156,17 +175,25 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
                 needNotify = true;
             }
         } else {
-            needNotify = !areListsTheSame(results, mCachedResults);
+            needNotify = mCachedResults == null || !areListsTheSame(results, mCachedResults);
         }
 
         if (needNotify) {
             mCachedResults = results;
+            mCachedResultsHash = results == null ? 0 : results.hashCode();
             notifySliceChange();
         }
     }
 
+    /**
+     * Returns whether {@param a} holds the same results as the cached results {@param b}.
+     * <p>
+     * By default only the size and {@link List#hashCode()} are compared, against the hash kept
+     * for the cached results, so large lists are not compared element by element. Workers whose
+     * results may collide in hash should override this to compare them exactly.
+     */
     protected boolean areListsTheSame(List<E> a, List<E> b) {
-        return a.equals(b);
+        return a.size() == b.size() && a.hashCode() == mCachedResultsHash;
     }
 
     /**
@@ -185,64 +212,146 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
         NotifySliceChangeHandler.getInstance().cancelSliceUpdate(this);
     }
 
-    private static class NotifySliceChangeHandler extends Handler {
+    /**
+     * Collects slice update requests from all workers and notifies their {@link Uri Uris} in
+     * batches, at most once per {@link #SLICE_UPDATE_THROTTLE_INTERVAL} for each {@link Uri}.
+     */
+    @VisibleForTesting
+    static class NotifySliceChangeHandler extends Handler {
 
-        private static final int MSG_UPDATE_SLICE = 1000;
+        private static final int MSG_FLUSH_UPDATES = 1000;
 
-        private static NotifySliceChangeHandler sHandler;
+        private final Object mLock = new Object();
 
-        private final Map<Uri, Long> mLastUpdateTimeLookup = Collections.synchronizedMap(
-                new ArrayMap<>());
+        // Workers waiting to be notified, mapped to the uptime at which they may be.
+        private final Map<SliceBackgroundWorker, Long> mPendingUpdates = new ArrayMap<>();
+        private final Map<Uri, Long> mLastUpdateTimeLookup = new ArrayMap<>();
+        private final Map<Uri, UpdateStats> mUpdateStats = new ArrayMap<>();
 
-        private static NotifySliceChangeHandler getInstance() {
-            if (sHandler == null) {
+        private static class Holder {
+            private static final NotifySliceChangeHandler INSTANCE = create();
+
+            private static NotifySliceChangeHandler create() {
                 final HandlerThread workerThread = new HandlerThread("NotifySliceChangeHandler",
                         Process.THREAD_PRIORITY_BACKGROUND);
                 workerThread.start();
-                sHandler = new NotifySliceChangeHandler(workerThread.getLooper());
+                return new NotifySliceChangeHandler(workerThread.getLooper());
             }
-            return sHandler;
         }
 
-        private NotifySliceChangeHandler(Looper looper) {
+        private static NotifySliceChangeHandler getInstance() {
+            return Holder.INSTANCE;
+        }
+
+        @VisibleForTesting
+        NotifySliceChangeHandler(Looper looper) {
             super(looper);
         }
 
         @Override
         public void handleMessage(Message msg) {
-            if (msg.what != MSG_UPDATE_SLICE) {
+            if (msg.what != MSG_FLUSH_UPDATES) {
                 return;
             }
 
-            final SliceBackgroundWorker worker = (SliceBackgroundWorker) msg.obj;
-            final Uri uri = worker.getUri();
-            final Context context = worker.getContext();
-            mLastUpdateTimeLookup.put(uri, SystemClock.uptimeMillis());
-            context.getContentResolver().notifyChange(uri, null);
+            Context context = null;
+            final List<Uri> uris = new ArrayList<>();
+            synchronized (mLock) {
+                final long now = SystemClock.uptimeMillis();
+                final Iterator<Map.Entry<SliceBackgroundWorker, Long>> iterator =
+                        mPendingUpdates.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    final Map.Entry<SliceBackgroundWorker, Long> entry = iterator.next();
+                    if (entry.getValue() > now) {
+                        continue;
+                    }
+                    final SliceBackgroundWorker worker = entry.getKey();
+                    final Uri uri = worker.getUri();
+                    iterator.remove();
+                    mLastUpdateTimeLookup.put(uri, now);
+                    getUpdateStatsLocked(uri).mEmitted++;
+                    uris.add(uri);
+                    context = worker.getContext();
+                }
+                scheduleFlushLocked();
+            }
+            if (!uris.isEmpty()) {
+                context.getContentResolver().notifyChange(uris, null /* observer */,
+                        0 /* flags */);
+            }
+        }
+
+        void updateSlice(SliceBackgroundWorker worker) {
+            synchronized (mLock) {
+                final Uri uri = worker.getUri();
+                if (mPendingUpdates.containsKey(worker)) {
+                    getUpdateStatsLocked(uri).mDropped++;
+                    return;
+                }
+
+                final long now = SystemClock.uptimeMillis();
+                final long lastUpdateTime = mLastUpdateTimeLookup.getOrDefault(uri, 0L);
+                final long dueTime;
+                if (lastUpdateTime == 0L) {
+                    // Postpone the first update triggering by onSlicePinned() to avoid being too
+                    // close to the first Slice bind.
+                    dueTime = now + SLICE_UPDATE_THROTTLE_INTERVAL;
+                } else {
+                    dueTime = Math.max(now, lastUpdateTime + SLICE_UPDATE_THROTTLE_INTERVAL);
+                }
+                mPendingUpdates.put(worker, alignToBatchWindow(dueTime));
+                scheduleFlushLocked();
+            }
+        }
+
+        void cancelSliceUpdate(SliceBackgroundWorker worker) {
+            synchronized (mLock) {
+                mPendingUpdates.remove(worker);
+                mLastUpdateTimeLookup.remove(worker.getUri());
+                mUpdateStats.remove(worker.getUri());
+                scheduleFlushLocked();
+            }
         }
 
-        private void updateSlice(SliceBackgroundWorker worker) {
-            if (hasMessages(MSG_UPDATE_SLICE, worker)) {
+        void dump(PrintWriter writer) {
+            synchronized (mLock) {
+                writer.println("Slice update stats (emitted/dropped):");
+                for (Map.Entry<Uri, UpdateStats> entry : mUpdateStats.entrySet()) {
+                    writer.println("  " + entry.getValue().mEmitted + "/"
+                            + entry.getValue().mDropped + " " + entry.getKey());
+                }
+            }
+        }
+
+        private void scheduleFlushLocked() {
+            removeMessages(MSG_FLUSH_UPDATES);
+            if (mPendingUpdates.isEmpty()) {
                 return;
             }
+            long nextFlushTime = Long.MAX_VALUE;
+            for (long dueTime : mPendingUpdates.values()) {
+                nextFlushTime = Math.min(nextFlushTime, dueTime);
+            }
+            sendEmptyMessageAtTime(MSG_FLUSH_UPDATES, nextFlushTime);
+        }
 
-            final Message message = obtainMessage(MSG_UPDATE_SLICE, worker);
-            final long lastUpdateTime = mLastUpdateTimeLookup.getOrDefault(worker.getUri(), 0L);
-            if (lastUpdateTime == 0L) {
-                // Postpone the first update triggering by onSlicePinned() to avoid being too close
-                // to the first Slice bind.
-                sendMessageDelayed(message, SLICE_UPDATE_THROTTLE_INTERVAL);
-            } else if (SystemClock.uptimeMillis() - lastUpdateTime
-                    > SLICE_UPDATE_THROTTLE_INTERVAL) {
-                sendMessage(message);
-            } else {
-                sendMessageAtTime(message, lastUpdateTime + SLICE_UPDATE_THROTTLE_INTERVAL);
+        private UpdateStats getUpdateStatsLocked(Uri uri) {
+            UpdateStats stats = mUpdateStats.get(uri);
+            if (stats == null) {
+                stats = new UpdateStats();
+                mUpdateStats.put(uri, stats);
             }
+            return stats;
         }
 
-        private void cancelSliceUpdate(SliceBackgroundWorker worker) {
-            removeMessages(MSG_UPDATE_SLICE, worker);
-            mLastUpdateTimeLookup.remove(worker.getUri());
+        private static long alignToBatchWindow(long time) {
+            final long remainder = time % SLICE_UPDATE_BATCH_WINDOW;
+            return remainder == 0 ? time : time + SLICE_UPDATE_BATCH_WINDOW - remainder;
         }
-    };
+    }
+
+    private static class UpdateStats {
+        int mEmitted;
+        int mDropped;
+    }
 }
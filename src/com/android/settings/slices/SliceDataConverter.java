@@ -35,11 +35,13 @@ import android.content.res.Resources;
 import android.content.res.XmlResourceParser;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.provider.SearchIndexableResource;
 import android.provider.SettingsSlicesContract;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.Pair;
 import android.util.Xml;
 import android.view.accessibility.AccessibilityManager;
 
@@ -62,12 +64,17 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Converts all Slice sources into {@link SliceData}.
@@ -81,6 +88,13 @@ class SliceDataConverter {
 
     private static final String NODE_NAME_PREFERENCE_SCREEN = "PreferenceScreen";
 
+    /**
+     * Upper bound on the threads used to walk {@link SearchIndexProvider SearchIndexProviders}.
+     */
+    private static final int MAX_INDEXING_THREADS = 4;
+
+    private static volatile List<Pair<String, Long>> sProviderTimings = Collections.emptyList();
+
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private Context mContext;
 
@@ -90,7 +104,8 @@ class SliceDataConverter {
     }
 
     /**
-     * @return a list of {@link SliceData} to be indexed and later referenced as a Slice.
+     * @return a list of {@link SliceData} to be indexed and later referenced as a Slice, or
+     * {@code null} if interrupted before every provider was collected.
      *
      * The collection works as follows:
      * - Collects a list of Fragments from
@@ -105,20 +120,56 @@ class SliceDataConverter {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(mContext)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
-        for (SearchIndexableData bundle : bundles) {
-            final String fragmentName = bundle.getTargetClass().getName();
+        final List<String> fragmentNames = new ArrayList<>(bundles.size());
+        final List<Future<ProviderResult>> results = new ArrayList<>(bundles.size());
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(MAX_INDEXING_THREADS,
+                        Runtime.getRuntime().availableProcessors())));
+        try {
+            for (SearchIndexableData bundle : bundles) {
+                final String fragmentName = bundle.getTargetClass().getName();
 
-            final SearchIndexProvider provider = bundle.getSearchIndexProvider();
+                final SearchIndexProvider provider = bundle.getSearchIndexProvider();
 
-            // CodeInspection test guards against the null check. Keep check in case of bad actors.
-            if (provider == null) {
-                Log.e(TAG, fragmentName + " dose not implement Search Index Provider");
-                continue;
+                // CodeInspection test guards against the null check. Keep check in case of bad
+                // actors.
+                if (provider == null) {
+                    Log.e(TAG, fragmentName + " dose not implement Search Index Provider");
+                    continue;
+                }
+
+                fragmentNames.add(fragmentName);
+                results.add(executor.submit(() -> {
+                    final long startTime = SystemClock.elapsedRealtime();
+                    final List<SliceData> providerSliceData =
+                            getSliceDataFromProvider(provider, fragmentName);
+                    return new ProviderResult(providerSliceData,
+                            SystemClock.elapsedRealtime() - startTime);
+                }));
             }
 
-            final List<SliceData> providerSliceData = getSliceDataFromProvider(provider,
-                    fragmentName);
-            sliceData.addAll(providerSliceData);
+            // Merge in submission order so the index is identical to a sequential walk.
+            final List<Pair<String, Long>> timings = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                final String fragmentName = fragmentNames.get(i);
+                try {
+                    final ProviderResult result = results.get(i).get();
+                    sliceData.addAll(result.mSliceData);
+                    timings.add(Pair.create(fragmentName, result.mDurationMillis));
+                } catch (ExecutionException e) {
+                    Log.w(TAG, "Get slice data from provider failed: " + fragmentName,
+                            e.getCause());
+                } catch (InterruptedException e) {
+                    // A partial list would drop the slices of the missing fragments.
+                    Log.w(TAG, "Interrupted while collecting slice data", e);
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            timings.sort((a, b) -> Long.compare(b.second, a.second));
+            sProviderTimings = Collections.unmodifiableList(timings);
+        } finally {
+            executor.shutdownNow();
         }
 
         final List<SliceData> a11ySliceData = getAccessibilitySliceData();
@@ -126,6 +177,28 @@ class SliceDataConverter {
         return sliceData;
     }
 
+    /**
+     * Prints how long each {@link SearchIndexProvider} took during the last
+     * {@link #getSliceData()}, slowest first.
+     */
+    static void dumpProviderTimings(PrintWriter writer) {
+        final List<Pair<String, Long>> timings = sProviderTimings;
+        writer.println("Slice data provider timings (ms):");
+        for (Pair<String, Long> timing : timings) {
+            writer.println("  " + timing.second + " " + timing.first);
+        }
+    }
+
+    private static class ProviderResult {
+        final List<SliceData> mSliceData;
+        final long mDurationMillis;
+
+        ProviderResult(List<SliceData> sliceData, long durationMillis) {
+            mSliceData = sliceData;
+            mDurationMillis = durationMillis;
+        }
+    }
+
     private List<SliceData> getSliceDataFromProvider(SearchIndexProvider provider,
             String fragmentName) {
         final List<SliceData> sliceData = new ArrayList<>();
@@ -36,10 +36,23 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "slices_index.db";
     private static final String SHARED_PREFS_TAG = "slices_shared_prefs";
 
-    private static final int DATABASE_VERSION = 9;
+    private static final int DATABASE_VERSION = 10;
 
     public interface Tables {
         String TABLE_SLICES_INDEX = "slices_index";
+        String TABLE_SLICES_INDEX_HASHES = "slices_index_hashes";
+    }
+
+    public interface HashColumns {
+        /**
+         * Class name of the fragment whose slices were indexed.
+         */
+        String FRAGMENT = "fragment";
+
+        /**
+         * Hash of all {@link SliceData} rows indexed for the fragment.
+         */
+        String HASH = "hash";
     }
 
     public interface IndexColumns {
@@ -141,6 +154,15 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
                     + " INTEGER DEFAULT 0 "
                     + ");";
 
+    private static final String CREATE_SLICES_HASHES_TABLE =
+            "CREATE TABLE " + Tables.TABLE_SLICES_INDEX_HASHES
+                    + "("
+                    + HashColumns.FRAGMENT
+                    + " TEXT PRIMARY KEY, "
+                    + HashColumns.HASH
+                    + " INTEGER NOT NULL"
+                    + ");";
+
     private final Context mContext;
 
     private static SlicesDatabaseHelper sSingleton;
@@ -176,12 +198,20 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
      * {@link#isNewIndexingState(Context)} will return {@code true}.
      */
     void reconstruct(SQLiteDatabase db) {
+        clearIndexedState();
+        dropTables(db);
+        createDatabases(db);
+    }
+
+    /**
+     * Un-marks the state of the data without touching the stored tables, such that any
+     * subsequent call to {@link #isSliceDataIndexed()} will return {@code false}.
+     */
+    void clearIndexedState() {
         mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE)
                 .edit()
                 .clear()
                 .apply();
-        dropTables(db);
-        createDatabases(db);
     }
 
     /**
@@ -204,11 +234,13 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
 
     private void createDatabases(SQLiteDatabase db) {
         db.execSQL(CREATE_SLICES_TABLE);
+        db.execSQL(CREATE_SLICES_HASHES_TABLE);
         Log.d(TAG, "Created databases");
     }
 
     private void dropTables(SQLiteDatabase db) {
         db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_SLICES_INDEX);
+        db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_SLICES_INDEX_HASHES);
     }
 
     private void setBuildIndexed() {
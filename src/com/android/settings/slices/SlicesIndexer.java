@@ -18,18 +18,28 @@ package com.android.settings.slices;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.EventLogTags;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.overlay.FeatureFactory;
+import com.android.settings.slices.SlicesDatabaseHelper.HashColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.Tables;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * Manages the conversion of {@link DashboardFragment} and {@link BasePreferenceController} to
@@ -58,7 +68,11 @@ class SlicesIndexer implements Runnable {
 
     /**
      * Synchronously takes data obtained from {@link SliceDataConverter} and indexes it into a
-     * SQLite database
+     * SQLite database.
+     * <p/>
+     * Rows are grouped by fragment and a hash of each group is stored alongside the index. Only
+     * fragments whose hash changed since the last index are rewritten; if no hashes are stored
+     * the table is rebuilt from scratch.
      */
     protected void indexSliceData() {
         if (mHelper.isSliceDataIndexed()) {
@@ -68,18 +82,58 @@ class SlicesIndexer implements Runnable {
 
         final SQLiteDatabase database = mHelper.getWritableDatabase();
 
-        long startTime = System.currentTimeMillis();
+        final long startTime = SystemClock.elapsedRealtime();
         database.beginTransaction();
         try {
-            mHelper.reconstruct(database);
-            List<SliceData> indexData = getSliceData();
-            insertSliceData(database, indexData);
+            final Map<String, Long> indexedHashes = getIndexedHashes(database);
+            if (indexedHashes.isEmpty()) {
+                mHelper.reconstruct(database);
+            } else {
+                mHelper.clearIndexedState();
+            }
+            final List<SliceData> sliceData = getSliceData();
+            if (sliceData == null) {
+                // Rolls back, the previous index is kept and indexed again next time.
+                Log.w(TAG, "Slice data collection was interrupted - not indexing.");
+                return;
+            }
+            final Map<String, List<SliceData>> indexData = groupByFragment(sliceData);
+
+            int fragmentsChanged = 0;
+            int rowsWritten = 0;
+            final SQLiteStatement insertStatement = compileInsertStatement(database);
+            try {
+                for (Map.Entry<String, List<SliceData>> entry : indexData.entrySet()) {
+                    final String fragment = entry.getKey();
+                    final List<SliceData> rows = entry.getValue();
+                    final long hash = computeHash(rows);
+                    final Long indexedHash = indexedHashes.remove(fragment);
+                    if (indexedHash != null && indexedHash == hash) {
+                        continue;
+                    }
+                    if (indexedHash != null) {
+                        deleteFragment(database, fragment);
+                    }
+                    insertSliceData(insertStatement, rows);
+                    putHash(database, fragment, hash);
+                    fragmentsChanged++;
+                    rowsWritten += rows.size();
+                }
+            } finally {
+                insertStatement.close();
+            }
+            // Whatever is left was indexed before but no longer produces slices.
+            for (String fragment : indexedHashes.keySet()) {
+                deleteFragment(database, fragment);
+                fragmentsChanged++;
+            }
 
             mHelper.setIndexedState();
 
-            // TODO (b/71503044) Log indexing time.
-            Log.d(TAG,
-                    "Indexing slices database took: " + (System.currentTimeMillis() - startTime));
+            final long duration = SystemClock.elapsedRealtime() - startTime;
+            EventLogTags.writeSettingsSlicesIndex(duration, fragmentsChanged, rowsWritten);
+            Log.d(TAG, "Indexing slices database took: " + duration + "ms, rewrote "
+                    + fragmentsChanged + " fragments");
             database.setTransactionSuccessful();
         } finally {
             database.endTransaction();
@@ -96,30 +150,120 @@ class SlicesIndexer implements Runnable {
 
     @VisibleForTesting
     void insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
-        ContentValues values;
+        final SQLiteStatement insertStatement = compileInsertStatement(database);
+        try {
+            insertSliceData(insertStatement, indexData);
+        } finally {
+            insertStatement.close();
+        }
+    }
 
-        for (SliceData dataRow : indexData) {
-            values = new ContentValues();
-            values.put(IndexColumns.KEY, dataRow.getKey());
-            values.put(IndexColumns.SLICE_URI, dataRow.getUri().toString());
-            values.put(IndexColumns.TITLE, dataRow.getTitle());
-            values.put(IndexColumns.SUMMARY, dataRow.getSummary());
+    /**
+     * Hash of every indexed column of {@param rows}, in order. Stable across processes so it can
+     * be compared against the value stored by a previous index.
+     */
+    @VisibleForTesting
+    static long computeHash(List<SliceData> rows) {
+        long hash = 1;
+        for (SliceData dataRow : rows) {
+            hash = 31 * hash + Objects.hashCode(dataRow.getKey());
+            hash = 31 * hash + Objects.hashCode(dataRow.getUri());
+            hash = 31 * hash + Objects.hashCode(dataRow.getTitle());
+            hash = 31 * hash + Objects.hashCode(dataRow.getSummary());
             final CharSequence screenTitle = dataRow.getScreenTitle();
-            if (screenTitle != null) {
-                values.put(IndexColumns.SCREENTITLE, screenTitle.toString());
+            hash = 31 * hash + (screenTitle != null ? screenTitle.toString().hashCode() : 0);
+            hash = 31 * hash + Objects.hashCode(dataRow.getKeywords());
+            hash = 31 * hash + dataRow.getIconResource();
+            hash = 31 * hash + Objects.hashCode(dataRow.getPreferenceController());
+            hash = 31 * hash + dataRow.getSliceType();
+            hash = 31 * hash + Objects.hashCode(dataRow.getUnavailableSliceSubtitle());
+            hash = 31 * hash + (dataRow.isPublicSlice() ? 1 : 0);
+            hash = 31 * hash + dataRow.getHighlightMenuRes();
+        }
+        return hash;
+    }
+
+    private static Map<String, List<SliceData>> groupByFragment(List<SliceData> indexData) {
+        final Map<String, List<SliceData>> grouped = new LinkedHashMap<>();
+        for (SliceData dataRow : indexData) {
+            grouped.computeIfAbsent(dataRow.getFragmentClassName(), k -> new ArrayList<>())
+                    .add(dataRow);
+        }
+        return grouped;
+    }
+
+    private static Map<String, Long> getIndexedHashes(SQLiteDatabase database) {
+        final Map<String, Long> hashes = new ArrayMap<>();
+        try (Cursor cursor = database.query(Tables.TABLE_SLICES_INDEX_HASHES,
+                new String[]{HashColumns.FRAGMENT, HashColumns.HASH},
+                null /* selection */, null /* selectionArgs */, null /* groupBy */,
+                null /* having */, null /* orderBy */)) {
+            while (cursor.moveToNext()) {
+                hashes.put(cursor.getString(0), cursor.getLong(1));
             }
-            values.put(IndexColumns.KEYWORDS, dataRow.getKeywords());
-            values.put(IndexColumns.ICON_RESOURCE, dataRow.getIconResource());
-            values.put(IndexColumns.FRAGMENT, dataRow.getFragmentClassName());
-            values.put(IndexColumns.CONTROLLER, dataRow.getPreferenceController());
-            values.put(IndexColumns.SLICE_TYPE, dataRow.getSliceType());
-            values.put(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
-                    dataRow.getUnavailableSliceSubtitle());
-            values.put(IndexColumns.PUBLIC_SLICE, dataRow.isPublicSlice());
-            values.put(IndexColumns.HIGHLIGHT_MENU_RESOURCE, dataRow.getHighlightMenuRes());
-
-            database.replaceOrThrow(Tables.TABLE_SLICES_INDEX, null /* nullColumnHack */,
-                    values);
+        }
+        return hashes;
+    }
+
+    private static void putHash(SQLiteDatabase database, String fragment, long hash) {
+        final ContentValues values = new ContentValues();
+        values.put(HashColumns.FRAGMENT, fragment);
+        values.put(HashColumns.HASH, hash);
+        database.replaceOrThrow(Tables.TABLE_SLICES_INDEX_HASHES, null /* nullColumnHack */,
+                values);
+    }
+
+    private static void deleteFragment(SQLiteDatabase database, String fragment) {
+        final String[] whereArgs = new String[]{fragment};
+        database.delete(Tables.TABLE_SLICES_INDEX, IndexColumns.FRAGMENT + " = ?", whereArgs);
+        database.delete(Tables.TABLE_SLICES_INDEX_HASHES, HashColumns.FRAGMENT + " = ?",
+                whereArgs);
+    }
+
+    private static SQLiteStatement compileInsertStatement(SQLiteDatabase database) {
+        return database.compileStatement("INSERT INTO " + Tables.TABLE_SLICES_INDEX + " ("
+                + IndexColumns.KEY + ", "
+                + IndexColumns.SLICE_URI + ", "
+                + IndexColumns.TITLE + ", "
+                + IndexColumns.SUMMARY + ", "
+                + IndexColumns.SCREENTITLE + ", "
+                + IndexColumns.KEYWORDS + ", "
+                + IndexColumns.ICON_RESOURCE + ", "
+                + IndexColumns.FRAGMENT + ", "
+                + IndexColumns.CONTROLLER + ", "
+                + IndexColumns.SLICE_TYPE + ", "
+                + IndexColumns.UNAVAILABLE_SLICE_SUBTITLE + ", "
+                + IndexColumns.PUBLIC_SLICE + ", "
+                + IndexColumns.HIGHLIGHT_MENU_RESOURCE
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    }
+
+    private static void insertSliceData(SQLiteStatement statement, List<SliceData> indexData) {
+        for (SliceData dataRow : indexData) {
+            statement.clearBindings();
+            bindString(statement, 1, dataRow.getKey());
+            bindString(statement, 2, dataRow.getUri().toString());
+            bindString(statement, 3, dataRow.getTitle());
+            bindString(statement, 4, dataRow.getSummary());
+            final CharSequence screenTitle = dataRow.getScreenTitle();
+            bindString(statement, 5, screenTitle != null ? screenTitle.toString() : null);
+            bindString(statement, 6, dataRow.getKeywords());
+            statement.bindLong(7, dataRow.getIconResource());
+            bindString(statement, 8, dataRow.getFragmentClassName());
+            bindString(statement, 9, dataRow.getPreferenceController());
+            statement.bindLong(10, dataRow.getSliceType());
+            bindString(statement, 11, dataRow.getUnavailableSliceSubtitle());
+            statement.bindLong(12, dataRow.isPublicSlice() ? 1 : 0);
+            statement.bindLong(13, dataRow.getHighlightMenuRes());
+            statement.executeInsert();
+        }
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, CharSequence value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value.toString());
         }
     }
 }
@@ -93,6 +93,26 @@ public class WifiEntryPreference extends Preference implements WifiEntry.WifiEnt
         return mWifiEntry;
     }
 
+    /**
+     * Displays {@param wifiEntry} instead of the current WifiEntry of the same network, so that
+     * the preference is rebound in place rather than removed and inserted again.
+     */
+    public void setWifiEntry(@NonNull WifiEntry wifiEntry) {
+        if (mWifiEntry == wifiEntry) {
+            return;
+        }
+        final boolean showHelpButton = shouldShowHelpButton();
+        final int security = mWifiEntry.getSecurity();
+        mWifiEntry.setListener(null);
+        mWifiEntry = wifiEntry;
+        mWifiEntry.setListener(this);
+        refresh();
+        // The help button and friction icon are only updated when the view is bound.
+        if (shouldShowHelpButton() != showHelpButton || mWifiEntry.getSecurity() != security) {
+            notifyChanged();
+        }
+    }
+
     @Override
     public void onBindViewHolder(final PreferenceViewHolder view) {
         super.onBindViewHolder(view);
@@ -116,8 +136,7 @@ public class WifiEntryPreference extends Preference implements WifiEntry.WifiEnt
         final ImageButton imageButton = (ImageButton) view.findViewById(R.id.icon_button);
         final ImageView frictionImageView = (ImageView) view.findViewById(
                 R.id.friction_icon);
-        if (mWifiEntry.getHelpUriString() != null
-                && mWifiEntry.getConnectedState() == WifiEntry.CONNECTED_STATE_DISCONNECTED) {
+        if (shouldShowHelpButton()) {
             final Drawable drawablehelp = getDrawable(R.drawable.ic_help);
             drawablehelp.setTintList(
                     Utils.getColorAttr(getContext(), android.R.attr.colorControlNormal));
@@ -140,6 +159,11 @@ public class WifiEntryPreference extends Preference implements WifiEntry.WifiEnt
         }
     }
 
+    private boolean shouldShowHelpButton() {
+        return mWifiEntry.getHelpUriString() != null
+                && mWifiEntry.getConnectedState() == WifiEntry.CONNECTED_STATE_DISCONNECTED;
+    }
+
     /**
      * Updates the title and summary; may indirectly call notifyChanged().
      */
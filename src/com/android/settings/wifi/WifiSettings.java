@@ -772,7 +772,7 @@ public class WifiSettings extends RestrictedSettingsFragment
         if (connectedEntry != null) {
             final LongPressWifiEntryPreference connectedPref =
                     mConnectedWifiEntryPreferenceCategory.findPreference(connectedEntry.getKey());
-            if (connectedPref == null || connectedPref.getWifiEntry() != connectedEntry) {
+            if (connectedPref == null) {
                 mConnectedWifiEntryPreferenceCategory.removeAll();
                 final ConnectedWifiEntryPreference pref =
                         new ConnectedWifiEntryPreference(getPrefContext(), connectedEntry, this);
@@ -780,8 +780,9 @@ public class WifiSettings extends RestrictedSettingsFragment
                 pref.refresh();
                 mConnectedWifiEntryPreferenceCategory.addPreference(pref);
                 pref.setOnPreferenceClickListener(preference -> {
-                    if (connectedEntry.canSignIn()) {
-                        connectedEntry.signIn(null /* callback */);
+                    final WifiEntry wifiEntry = pref.getWifiEntry();
+                    if (wifiEntry.canSignIn()) {
+                        wifiEntry.signIn(null /* callback */);
                     } else {
                         launchNetworkDetailsFragment(pref);
                     }
@@ -795,6 +796,9 @@ public class WifiSettings extends RestrictedSettingsFragment
                     mClickedConnect = false;
                     scrollToPreference(mConnectedWifiEntryPreferenceCategory);
                 }
+            } else {
+                // Rebinds the same network in place if its WifiEntry object has changed
+                connectedPref.setWifiEntry(connectedEntry);
             }
         } else {
             mConnectedWifiEntryPreferenceCategory.removeAll();
@@ -810,13 +814,11 @@ public class WifiSettings extends RestrictedSettingsFragment
             LongPressWifiEntryPreference pref =
                     (LongPressWifiEntryPreference) getCachedPreference(key);
             if (pref != null) {
-                if (pref.getWifiEntry() == wifiEntry) {
-                    pref.setOrder(index++);
-                    continue;
-                } else {
-                    // Create a new preference if the underlying WifiEntry object has changed
-                    removePreference(key);
-                }
+                // Keeps the preference of the same network, so only a changed order, signal level
+                // or summary is updated instead of removing and inserting the preference again.
+                pref.setWifiEntry(wifiEntry);
+                pref.setOrder(index++);
+                continue;
             }
 
             pref = createLongPressWifiEntryPreference(wifiEntry);
@@ -824,11 +826,10 @@ public class WifiSettings extends RestrictedSettingsFragment
             pref.setOrder(index++);
             pref.refresh();
 
-            if (wifiEntry.getHelpUriString() != null) {
-                pref.setOnButtonClickListener(preference -> {
-                    openSubscriptionHelpPage(wifiEntry);
-                });
-            }
+            // The button is only shown for a WifiEntry with a help uri.
+            pref.setOnButtonClickListener(preference -> {
+                openSubscriptionHelpPage(preference.getWifiEntry());
+            });
             mWifiEntryPreferenceCategory.addPreference(pref);
         }
         removeCachedPrefs(mWifiEntryPreferenceCategory);
@@ -843,6 +844,7 @@ public class WifiSettings extends RestrictedSettingsFragment
             mWifiEntryPreferenceCategory.addPreference(pref);
         } else {
             // Continuing showing progress bar for an additional delay to overlap with animation
+            getView().removeCallbacks(mHideProgressBarRunnable);
             getView().postDelayed(mHideProgressBarRunnable, 1700 /* delay millis */);
         }
 
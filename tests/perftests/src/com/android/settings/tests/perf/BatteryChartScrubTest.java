@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.tests.perf;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static junit.framework.TestCase.assertNotNull;
+
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.support.test.uiautomator.By;
+import android.support.test.uiautomator.BySelector;
+import android.support.test.uiautomator.UiDevice;
+import android.support.test.uiautomator.UiObject2;
+import android.support.test.uiautomator.Until;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the frame times of the battery usage chart while scrubbing through its hourly slots.
+ * Results are reported from the gfxinfo of the Settings process.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatteryChartScrubTest {
+    private static final String TAG = "BatteryChartScrubTest";
+    private static final String SETTINGS_PACKAGE = "com.android.settings";
+    private static final String BATTERY_USAGE_TITLE = "Battery usage";
+    private static final BySelector DAILY_CHART =
+            By.res(SETTINGS_PACKAGE, "daily_battery_chart");
+    private static final BySelector HOURLY_CHART =
+            By.res(SETTINGS_PACKAGE, "hourly_battery_chart");
+    private static final int TIME_OUT = 5000;
+    private static final int HOURLY_SLOT_COUNT = 12;
+    private static final int TEST_TIME = 10;
+    private static final String[] GFXINFO_METRICS = {
+            "Total frames rendered",
+            "Janky frames",
+            "50th percentile",
+            "90th percentile",
+            "95th percentile",
+            "99th percentile",
+    };
+
+    private Bundle mBundle;
+    private UiDevice mDevice;
+
+    @Before
+    public void setUp() throws Exception {
+        mBundle = new Bundle();
+        mDevice = UiDevice.getInstance(getInstrumentation());
+        mDevice.executeShellCommand("am force-stop " + SETTINGS_PACKAGE);
+        mDevice.executeShellCommand("am start -W -a android.intent.action.POWER_USAGE_SUMMARY");
+        final UiObject2 batteryUsage =
+                mDevice.wait(Until.findObject(By.text(BATTERY_USAGE_TITLE)), TIME_OUT);
+        assertNotNull("Not found " + BATTERY_USAGE_TITLE, batteryUsage);
+        batteryUsage.click();
+        mDevice.wait(Until.hasObject(HOURLY_CHART), TIME_OUT);
+        mDevice.waitForIdle(TIME_OUT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        getInstrumentation().sendStatus(0, mBundle);
+        mDevice.executeShellCommand("am force-stop " + SETTINGS_PACKAGE);
+    }
+
+    @Test
+    public void scrubHourlySlots() throws Exception {
+        // The hourly chart is only shown once a day is selected on a multiple days chart.
+        final UiObject2 dailyChart = mDevice.findObject(DAILY_CHART);
+        if (dailyChart != null) {
+            final Rect bounds = dailyChart.getVisibleBounds();
+            mDevice.click(bounds.right - bounds.width() / 10, bounds.centerY());
+            mDevice.wait(Until.hasObject(HOURLY_CHART), TIME_OUT);
+            mDevice.waitForIdle(TIME_OUT);
+        }
+        final UiObject2 hourlyChart = mDevice.findObject(HOURLY_CHART);
+        assertNotNull("Not found the hourly battery chart", hourlyChart);
+        final Rect bounds = hourlyChart.getVisibleBounds();
+        final int slotWidth = bounds.width() / HOURLY_SLOT_COUNT;
+
+        mDevice.executeShellCommand("dumpsys gfxinfo " + SETTINGS_PACKAGE + " reset");
+        for (int i = 0; i < TEST_TIME; i++) {
+            for (int slot = 0; slot < HOURLY_SLOT_COUNT; slot++) {
+                mDevice.click(bounds.left + slotWidth * slot + slotWidth / 2, bounds.centerY());
+                mDevice.waitForIdle(TIME_OUT);
+            }
+        }
+        putResultToBundle(mDevice.executeShellCommand("dumpsys gfxinfo " + SETTINGS_PACKAGE));
+    }
+
+    private void putResultToBundle(String gfxinfo) {
+        for (String metric : GFXINFO_METRICS) {
+            final Matcher matcher =
+                    Pattern.compile(Pattern.quote(metric) + ":\\s*([0-9.]+)").matcher(gfxinfo);
+            mBundle.putString(String.format("%s_%s", TAG, metric),
+                    matcher.find() ? matcher.group(1) : "0");
+        }
+    }
+}
@@ -39,6 +39,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -103,6 +104,7 @@ public class AppStateNotificationBridgeTest {
         // most tests assume no work profile
         when(mUserManager.getProfileIdsWithDisabled(anyInt())).thenReturn(new int[]{});
         mContext = RuntimeEnvironment.application.getApplicationContext();
+        AppStateNotificationBridge.clearBlockStates();
 
         mBridge = new AppStateNotificationBridge(mContext, mState,
                 mock(AppStateBaseBridge.Callback.class), mUsageStats, mUserManager, mBackend);
@@ -129,7 +131,7 @@ public class AppStateNotificationBridgeTest {
         when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
                 .thenReturn(mock(UsageEvents.class));
 
-        assertThat(mBridge.getAggregatedUsageEvents()).isEmpty();
+        assertThat(mBridge.getAggregatedUsageEvents().size()).isEqualTo(0);
     }
 
     @Test
@@ -150,8 +152,8 @@ public class AppStateNotificationBridgeTest {
         when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
                 .thenReturn(usageEvents);
 
-        Map<String, NotificationsSentState> map = mBridge.getAggregatedUsageEvents();
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).sentCount).isEqualTo(1);
+        Map<String, NotificationsSentState> map = mBridge.getAggregatedUsageEvents().get(0);
+        assertThat(map.get(PKG1).sentCount).isEqualTo(1);
     }
 
     @Test
@@ -172,9 +174,9 @@ public class AppStateNotificationBridgeTest {
         when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
                 .thenReturn(usageEvents);
 
-        Map<String, NotificationsSentState> map  = mBridge.getAggregatedUsageEvents();
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).sentCount).isEqualTo(2);
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).lastSent).isEqualTo(6);
+        Map<String, NotificationsSentState> map = mBridge.getAggregatedUsageEvents().get(0);
+        assertThat(map.get(PKG1).sentCount).isEqualTo(2);
+        assertThat(map.get(PKG1).lastSent).isEqualTo(6);
     }
 
     @Test
@@ -195,12 +197,11 @@ public class AppStateNotificationBridgeTest {
         when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
                 .thenReturn(usageEvents);
 
-        Map<String, NotificationsSentState> map
-                = mBridge.getAggregatedUsageEvents();
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).sentCount).isEqualTo(1);
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG2)).sentCount).isEqualTo(1);
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).lastSent).isEqualTo(6);
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG2)).lastSent).isEqualTo(1);
+        Map<String, NotificationsSentState> map = mBridge.getAggregatedUsageEvents().get(0);
+        assertThat(map.get(PKG1).sentCount).isEqualTo(1);
+        assertThat(map.get(PKG2).sentCount).isEqualTo(1);
+        assertThat(map.get(PKG1).lastSent).isEqualTo(6);
+        assertThat(map.get(PKG2).lastSent).isEqualTo(1);
     }
 
     @Test
@@ -341,6 +342,92 @@ public class AppStateNotificationBridgeTest {
         assertThat(((NotificationsSentState) apps.get(1).extraInfo).avgSentDaily).isEqualTo(1);
     }
 
+    @Test
+    public void testLoadAllExtraInfo_loadedTwice_blockStatusQueriedOnce() throws RemoteException {
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        ArrayList<AppEntry> apps = new ArrayList<>();
+        apps.add(getMockAppEntry(PKG1));
+        when(mSession.getAllApps()).thenReturn(apps);
+
+        mBridge.loadAllExtraInfo();
+        mBridge.loadAllExtraInfo();
+
+        verify(mBackend).getNotificationsBanned(PKG1, 0);
+        verify(mBackend).enableSwitch(any(), any());
+        assertThat(((NotificationsSentState) apps.get(0).extraInfo).blocked).isTrue();
+        assertThat(((NotificationsSentState) apps.get(0).extraInfo).blockable).isTrue();
+    }
+
+    @Test
+    public void testLoadAllExtraInfo_newBridge_blockStatusNotQueriedAgain() throws RemoteException {
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        ArrayList<AppEntry> apps = new ArrayList<>();
+        apps.add(getMockAppEntry(PKG1));
+        when(mSession.getAllApps()).thenReturn(apps);
+
+        mBridge.loadAllExtraInfo();
+        mBridge.resume(false /* forceLoadAllApps */);
+        new AppStateNotificationBridge(mContext, mState, mock(AppStateBaseBridge.Callback.class),
+                mUsageStats, mUserManager, mBackend).loadAllExtraInfo();
+
+        verify(mBackend).getNotificationsBanned(PKG1, 0);
+        verify(mBackend).enableSwitch(any(), any());
+    }
+
+    @Test
+    public void testLoadAllExtraInfo_afterPackageListChanged_blockStatusQueriedAgain()
+            throws RemoteException {
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        ArrayList<AppEntry> apps = new ArrayList<>();
+        apps.add(getMockAppEntry(PKG1));
+        when(mSession.getAllApps()).thenReturn(apps);
+
+        mBridge.loadAllExtraInfo();
+        mBridge.onPackageListChanged();
+        mBridge.loadAllExtraInfo();
+
+        verify(mBackend, times(2)).getNotificationsBanned(PKG1, 0);
+        verify(mBackend, times(2)).enableSwitch(any(), any());
+    }
+
+    @Test
+    public void testLoadAllExtraInfo_afterBannedChanged_bannedQueriedAgain()
+            throws RemoteException {
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        ArrayList<AppEntry> apps = new ArrayList<>();
+        apps.add(getMockAppEntry(PKG1));
+        when(mSession.getAllApps()).thenReturn(apps);
+
+        mBridge.loadAllExtraInfo();
+        AppStateNotificationBridge.onNotificationsBannedChanged(0, PKG1);
+        mBridge.loadAllExtraInfo();
+
+        verify(mBackend, times(2)).getNotificationsBanned(PKG1, 0);
+        verify(mBackend).enableSwitch(any(), any());
+    }
+
+    @Test
+    public void testLoadAllExtraInfo_afterSwitchToggled_bannedNotQueriedAgain()
+            throws RemoteException {
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(mock(UsageEvents.class));
+        ArrayList<AppEntry> apps = new ArrayList<>();
+        AppEntry entry = getMockAppEntry(PKG1);
+        apps.add(entry);
+        when(mSession.getAllApps()).thenReturn(apps);
+
+        mBridge.loadAllExtraInfo();
+        mBridge.getSwitchOnCheckedListener(entry).onCheckedChanged(null, true);
+        mBridge.loadAllExtraInfo();
+
+        verify(mBackend).getNotificationsBanned(PKG1, 0);
+        assertThat(((NotificationsSentState) entry.extraInfo).blocked).isFalse();
+    }
+
     @Test
     public void testUpdateExtraInfo_noEvents() throws RemoteException {
         when(mUsageStats.queryEventsForPackageForUser(
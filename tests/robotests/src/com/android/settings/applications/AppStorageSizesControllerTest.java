@@ -89,6 +89,23 @@ public class AppStorageSizesControllerTest {
         assertThat(mTotalPreference.getSummary()).isEqualTo("101 B");
     }
 
+    @Test
+    public void cachedResultShownUntilResultIsSet() {
+        AppStorageStats cachedResult = mock(AppStorageStats.class);
+        when(cachedResult.getCodeBytes()).thenReturn(1L);
+        when(cachedResult.getCacheBytes()).thenReturn(10L);
+        when(cachedResult.getDataBytes()).thenReturn(100L);
+        mController.setCachedResult(cachedResult);
+        mController.updateUi(mContext);
+
+        assertThat(mTotalPreference.getSummary()).isEqualTo("101 B");
+
+        mController.setResult(null);
+        mController.updateUi(mContext);
+
+        assertThat(mTotalPreference.getSummary()).isEqualTo(INVALID_SIZE);
+    }
+
     @Test
     public void fakeCacheFlagSetsCacheToZero() {
         AppStorageStats result = mock(AppStorageStats.class);
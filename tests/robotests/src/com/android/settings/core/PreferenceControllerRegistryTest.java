@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import com.android.settings.slices.FakeContextOnlyPreferenceController;
+import com.android.settings.slices.FakePreferenceController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceControllerRegistryTest {
+
+    private static final String KEY = "key";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        PreferenceControllerRegistry.clear();
+    }
+
+    @After
+    public void tearDown() {
+        PreferenceControllerRegistry.clear();
+    }
+
+    @Test
+    public void createInstance_keyedController_shouldUseKey() {
+        final BasePreferenceController controller = PreferenceControllerRegistry.createInstance(
+                mContext, FakePreferenceController.class.getName(), KEY,
+                false /* isWorkProfile */);
+
+        assertThat(controller).isInstanceOf(FakePreferenceController.class);
+        assertThat(controller.getPreferenceKey()).isEqualTo(KEY);
+    }
+
+    @Test
+    public void createInstance_contextOnlyController_shouldPreferContextOnlyConstructor() {
+        final BasePreferenceController controller = PreferenceControllerRegistry.createInstance(
+                mContext, FakeContextOnlyPreferenceController.class.getName(), null /* key */,
+                false /* isWorkProfile */);
+
+        assertThat(controller).isInstanceOf(FakeContextOnlyPreferenceController.class);
+    }
+
+    @Test
+    public void createInstance_shouldCacheResolvedConstructor() {
+        final String name = FakePreferenceController.class.getName();
+        assertThat(PreferenceControllerRegistry.isRegistered(name)).isFalse();
+
+        PreferenceControllerRegistry.createInstance(mContext, name, KEY,
+                false /* isWorkProfile */);
+
+        assertThat(PreferenceControllerRegistry.isRegistered(name)).isTrue();
+        assertThat(PreferenceControllerRegistry.getConstructor(name))
+                .isSameInstanceAs(PreferenceControllerRegistry.getConstructor(name));
+    }
+
+    @Test
+    public void createInstance_registeredConstructor_shouldNotUseReflection() {
+        final String name = "com.android.settings.NotARealController";
+        PreferenceControllerRegistry.register(name,
+                new PreferenceControllerRegistry.ControllerConstructor() {
+                    @Override
+                    public BasePreferenceController newInstance(Context context, String key) {
+                        return new FakePreferenceController(context, key);
+                    }
+
+                    @Override
+                    public boolean requiresKey() {
+                        return true;
+                    }
+                });
+
+        final BasePreferenceController controller = PreferenceControllerRegistry.createInstance(
+                mContext, name, KEY, false /* isWorkProfile */);
+
+        assertThat(controller).isInstanceOf(FakePreferenceController.class);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void createInstance_keyedControllerWithoutKey_shouldThrow() {
+        PreferenceControllerRegistry.createInstance(mContext,
+                FakePreferenceController.class.getName(), null /* key */,
+                false /* isWorkProfile */);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void createInstance_unknownClass_shouldThrow() {
+        PreferenceControllerRegistry.createInstance(mContext,
+                "com.android.settings.NotARealController", KEY, false /* isWorkProfile */);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void createInstance_constructorThrows_shouldThrow() {
+        PreferenceControllerRegistry.createInstance(mContext,
+                BadPreferenceController.class.getName(), KEY, false /* isWorkProfile */);
+    }
+}
@@ -63,6 +63,7 @@ public class PreferenceXmlParserUtilsTest {
     @Before
     public void setUp() {
         mContext = getApplicationContext();
+        PreferenceXmlParserUtils.MetadataCache.clear();
     }
 
     @Test
@@ -378,6 +379,38 @@ public class PreferenceXmlParserUtilsTest {
         assertThat(bundleWithKey2Found).isTrue();
     }
 
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void extractMetadata_calledTwice_shouldParseOnceAndReturnFreshBundles()
+            throws Exception {
+        final List<Bundle> first = PreferenceXmlParserUtils.extractMetadata(mContext,
+                R.xml.night_display_settings, MetadataFlag.FLAG_NEED_KEY);
+        assertThat(PreferenceXmlParserUtils.MetadataCache.contains(R.xml.night_display_settings))
+                .isTrue();
+        first.get(0).putString(METADATA_KEY, "modified");
+
+        final List<Bundle> second = PreferenceXmlParserUtils.extractMetadata(mContext,
+                R.xml.night_display_settings, MetadataFlag.FLAG_NEED_KEY);
+
+        assertThat(second).hasSize(first.size());
+        assertThat(second.get(0).getString(METADATA_KEY)).isNotEqualTo("modified");
+    }
+
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void extractMetadata_differentFlags_shouldOnlyReturnRequestedMetadata()
+            throws Exception {
+        PreferenceXmlParserUtils.extractMetadata(mContext, R.xml.night_display_settings,
+                MetadataFlag.FLAG_NEED_KEY | MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE);
+
+        final List<Bundle> metadata = PreferenceXmlParserUtils.extractMetadata(mContext,
+                R.xml.night_display_settings, MetadataFlag.FLAG_NEED_KEY);
+
+        for (Bundle bundle : metadata) {
+            assertThat(bundle.containsKey(METADATA_UNAVAILABLE_SLICE_SUBTITLE)).isFalse();
+        }
+    }
+
     /**
      * @param resId the ID for the XML preference
      * @return an XML resource parser that points to the start tag
@@ -66,6 +66,7 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
@@ -73,6 +74,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(RobolectricTestRunner.class)
 public class DashboardFragmentTest {
@@ -356,6 +358,58 @@ public class DashboardFragmentTest {
         assertThat(pref).isInstanceOf(PrimarySwitchPreference.class);
     }
 
+    @Test
+    public void applyObserversWhenReady_allReady_shouldApplyOnce() {
+        final CountingDynamicDataObserver observer1 = new CountingDynamicDataObserver();
+        final CountingDynamicDataObserver observer2 = new CountingDynamicDataObserver();
+
+        mTestFragment.applyObserversWhenReady("TAG", Arrays.asList(observer1, observer2));
+        observer1.load();
+        observer2.load();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(observer1.mUpdateCount).isEqualTo(1);
+        assertThat(observer2.mUpdateCount).isEqualTo(1);
+
+        ShadowLooper.idleMainLooper(DashboardFragment.TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertThat(observer1.mUpdateCount).isEqualTo(1);
+        assertThat(observer2.mUpdateCount).isEqualTo(1);
+    }
+
+    @Test
+    public void applyObserversWhenReady_timeout_shouldApplyReadyObserversOnce() {
+        final CountingDynamicDataObserver readyObserver = new CountingDynamicDataObserver();
+        final CountingDynamicDataObserver slowObserver = new CountingDynamicDataObserver();
+
+        mTestFragment.applyObserversWhenReady("TAG", Arrays.asList(readyObserver, slowObserver));
+        readyObserver.load();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(readyObserver.mUpdateCount).isEqualTo(0);
+
+        ShadowLooper.idleMainLooper(DashboardFragment.TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        ShadowLooper.idleMainLooper(DashboardFragment.TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertThat(readyObserver.mUpdateCount).isEqualTo(1);
+        assertThat(slowObserver.mUpdateCount).isEqualTo(0);
+    }
+
+    @Test
+    public void applyObserversWhenReady_observerReadyAfterTimeout_shouldUpdateOnItsOwn() {
+        final CountingDynamicDataObserver readyObserver = new CountingDynamicDataObserver();
+        final CountingDynamicDataObserver slowObserver = new CountingDynamicDataObserver();
+        mTestFragment.applyObserversWhenReady("TAG", Arrays.asList(readyObserver, slowObserver));
+        readyObserver.load();
+        ShadowLooper.idleMainLooper(DashboardFragment.TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        slowObserver.load();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(readyObserver.mUpdateCount).isEqualTo(1);
+        assertThat(slowObserver.mUpdateCount).isEqualTo(1);
+    }
+
     public static class TestPreferenceController extends AbstractPreferenceController
             implements PreferenceControllerMixin {
 
@@ -465,6 +519,25 @@ public class DashboardFragmentTest {
         }
     }
 
+    private static class CountingDynamicDataObserver extends DynamicDataObserver {
+
+        private int mUpdateCount;
+
+        @Override
+        public Uri getUri() {
+            return Uri.parse("content://abc");
+        }
+
+        @Override
+        public void onDataChanged() {
+        }
+
+        /** Finishes loading the data, as {@link #onDataChanged()} would. */
+        void load() {
+            post(() -> mUpdateCount++);
+        }
+    }
+
     @Implements(PreferenceFragmentCompat.class)
     public static class ShadowPreferenceFragmentCompat {
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.IContentProvider;
+import android.net.Uri;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class DynamicDataLoaderTest {
+
+    private static final Uri TITLE_URI =
+            Uri.parse("content://com.android.settings/tile_title/getDynamicTitle");
+    private static final Uri SUMMARY_URI =
+            Uri.parse("content://com.android.settings/tile_summary/getDynamicSummary");
+
+    private DynamicDataLoader mLoader;
+    private List<Uri> mFetchedUris;
+    private List<Map<String, IContentProvider>> mProviderMaps;
+
+    @Before
+    public void setUp() {
+        mLoader = new DynamicDataLoader(RuntimeEnvironment.application);
+        mFetchedUris = new ArrayList<>();
+        mProviderMaps = new ArrayList<>();
+    }
+
+    @Test
+    public void load_sameUriTwice_shouldFetchOnce() {
+        final List<String> results = new ArrayList<>();
+
+        mLoader.load(TITLE_URI, this::fetch, results::add);
+        mLoader.load(TITLE_URI, this::fetch, results::add);
+
+        assertThat(mFetchedUris).containsExactly(TITLE_URI);
+        assertThat(results).containsExactly(TITLE_URI.toString(), TITLE_URI.toString());
+    }
+
+    @Test
+    public void load_afterInvalidate_shouldFetchAgain() {
+        mLoader.load(TITLE_URI, this::fetch, result -> {});
+
+        mLoader.invalidate(TITLE_URI);
+        mLoader.load(TITLE_URI, this::fetch, result -> {});
+
+        assertThat(mFetchedUris).containsExactly(TITLE_URI, TITLE_URI);
+    }
+
+    @Test
+    public void load_cacheExpired_shouldFetchAgain() {
+        mLoader.load(TITLE_URI, this::fetch, result -> {});
+
+        ShadowLooper.idleMainLooper(DynamicDataLoader.CACHE_TTL_MS + 1, TimeUnit.MILLISECONDS);
+
+        assertThat(mLoader.isCached(TITLE_URI)).isFalse();
+    }
+
+    @Test
+    public void load_sameAuthorityInOneBatch_shouldShareProviderMap() {
+        mLoader.load(TITLE_URI, (context, uri, providerMap) -> {
+            // Joins the batch that is currently running.
+            mLoader.load(SUMMARY_URI, this::fetch, result -> {});
+            return fetch(context, uri, providerMap);
+        }, result -> {});
+
+        assertThat(mFetchedUris).containsExactly(TITLE_URI, SUMMARY_URI);
+        assertThat(mProviderMaps.get(0)).isSameInstanceAs(mProviderMaps.get(1));
+    }
+
+    @Test
+    public void call_shouldNotCache() {
+        mLoader.call(TITLE_URI, this::fetch, result -> {});
+
+        assertThat(mLoader.isCached(TITLE_URI)).isFalse();
+    }
+
+    @Test
+    public void load_fetcherThrows_laterRequestForSameAuthorityShouldComplete() {
+        mLoader.load(TITLE_URI, (context, uri, providerMap) -> {
+            throw new IllegalArgumentException("Unknown method");
+        }, result -> {});
+
+        final List<String> results = new ArrayList<>();
+        mLoader.load(SUMMARY_URI, this::fetch, results::add);
+
+        assertThat(results).containsExactly(SUMMARY_URI.toString());
+    }
+
+    @Test
+    public void load_fetcherThrowsInBatch_restOfBatchShouldComplete() {
+        final List<String> results = new ArrayList<>();
+        mLoader.load(TITLE_URI, (context, uri, providerMap) -> {
+            // Joins the batch that is currently running.
+            mLoader.load(SUMMARY_URI, this::fetch, results::add);
+            throw new SecurityException("Permission denied");
+        }, result -> {});
+
+        assertThat(results).containsExactly(SUMMARY_URI.toString());
+    }
+
+    private String fetch(Context context, Uri uri,
+            Map<String, IContentProvider> providerMap) {
+        mFetchedUris.add(uri);
+        mProviderMaps.add(providerMap);
+        return uri.toString();
+    }
+}
@@ -84,6 +84,24 @@ public class AppDataUsagePreferenceTest {
         assertThat(mPreference.getIcon()).isEqualTo(mUidDetail.icon);
     }
 
+    @Test
+    public void setItem_sameKey_keepAppInfoAndUpdateSummary() {
+        when(mUidDetailProvider.getUidDetail(mAppItem.key, false /* blocking */))
+                .thenReturn(mUidDetail);
+        mPreference = new AppDataUsagePreference(RuntimeEnvironment.application, mAppItem,
+                50 /* percent */, mUidDetailProvider);
+        final AppItem newItem = new AppItem(mAppItem.key);
+        newItem.restricted = true;
+        newItem.total = -1;
+
+        mPreference.setItem(newItem, 0 /* percent */);
+
+        assertThat(mPreference.getItem()).isSameInstanceAs(newItem);
+        assertThat(mPreference.getTitle()).isEqualTo(mUidDetail.label);
+        assertThat(mPreference.getSummary()).isEqualTo(RuntimeEnvironment.application.getString(
+                com.android.settings.R.string.data_usage_app_restricted));
+    }
+
     @Test
     public void createPref_progressBarShouldSetPercentageContentDescription() {
         when(mUidDetailProvider.getUidDetail(mAppItem.key, true /* blocking */))
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.usage.NetworkStatsManager;
+import android.content.Context;
+import android.content.pm.UserInfo;
+import android.net.NetworkPolicyManager;
+import android.net.NetworkTemplate;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.SparseLongArray;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowApplication;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppsDataUsageLoaderTest {
+    private static final int CURRENT_USER_ID = 0;
+    private static final int PROFILE_USER_ID = 10;
+    private static final int OTHER_USER_ID = 11;
+    private static final int REMOVED_USER_ID = 12;
+    private static final int APP_ID_1 = 10001;
+    private static final int APP_ID_2 = 10002;
+
+    @Mock
+    private UserManager mUserManager;
+    @Mock
+    private NetworkStatsManager mNetworkStatsManager;
+    @Mock
+    private NetworkPolicyManager mPolicyManager;
+
+    private AppsDataUsageLoader.Aggregator mAggregator;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mUserManager.getUserProfiles()).thenReturn(
+                Arrays.asList(UserHandle.of(CURRENT_USER_ID), UserHandle.of(PROFILE_USER_ID)));
+        when(mUserManager.getUserInfo(OTHER_USER_ID)).thenReturn(new UserInfo());
+        mAggregator = new AppsDataUsageLoader.Aggregator(mUserManager, CURRENT_USER_ID);
+    }
+
+    @Test
+    public void build_appsOfCurrentUser_sortedByUsage() {
+        mAggregator.add(UserHandle.getUid(CURRENT_USER_ID, APP_ID_1), 10L);
+        mAggregator.add(UserHandle.getUid(CURRENT_USER_ID, APP_ID_2), 50L);
+        mAggregator.add(UserHandle.getUid(CURRENT_USER_ID, APP_ID_1), 20L);
+
+        final AppsDataUsageLoader.Result result = mAggregator.build();
+
+        assertThat(result.items).hasSize(2);
+        assertThat(result.items.get(0).key).isEqualTo(APP_ID_2);
+        assertThat(result.items.get(1).key).isEqualTo(APP_ID_1);
+        assertThat(result.items.get(1).total).isEqualTo(30L);
+        assertThat(result.largest).isEqualTo(50L);
+    }
+
+    @Test
+    public void build_appOfProfile_alsoAccumulatedToProfileItem() {
+        final int uid = UserHandle.getUid(PROFILE_USER_ID, APP_ID_1);
+
+        mAggregator.add(uid, 10L);
+
+        final AppsDataUsageLoader.Result result = mAggregator.build();
+        assertThat(result.items).hasSize(2);
+        final AppItem profileItem = findItem(result,
+                UidDetailProvider.buildKeyForUser(PROFILE_USER_ID));
+        assertThat(profileItem.category).isEqualTo(AppItem.CATEGORY_USER);
+        assertThat(profileItem.total).isEqualTo(10L);
+        assertThat(findItem(result, uid).uids.get(uid)).isTrue();
+    }
+
+    @Test
+    public void build_appsOfOtherAndRemovedUsers_collapsed() {
+        mAggregator.add(UserHandle.getUid(OTHER_USER_ID, APP_ID_1), 10L);
+        mAggregator.add(UserHandle.getUid(OTHER_USER_ID, APP_ID_2), 20L);
+        mAggregator.add(UserHandle.getUid(REMOVED_USER_ID, APP_ID_1), 5L);
+        mAggregator.add(UserHandle.getUid(REMOVED_USER_ID, APP_ID_2), 5L);
+
+        final AppsDataUsageLoader.Result result = mAggregator.build();
+
+        assertThat(result.items).hasSize(2);
+        assertThat(findItem(result, UidDetailProvider.buildKeyForUser(OTHER_USER_ID)).total)
+                .isEqualTo(30L);
+        assertThat(findItem(result, UID_REMOVED).total).isEqualTo(10L);
+        // The user info is only queried once for each user.
+        verify(mUserManager, times(2)).getUserInfo(anyInt());
+    }
+
+    @Test
+    public void addRestrictedUids_noUsage_addRestrictedItem() {
+        final int uid = UserHandle.getUid(CURRENT_USER_ID, APP_ID_1);
+
+        mAggregator.addRestrictedUids(
+                new int[] {uid, UserHandle.getUid(OTHER_USER_ID, APP_ID_1)});
+
+        final AppsDataUsageLoader.Result result = mAggregator.build();
+        assertThat(result.items).hasSize(1);
+        assertThat(result.items.get(0).key).isEqualTo(uid);
+        assertThat(result.items.get(0).total).isEqualTo(-1L);
+        assertThat(result.items.get(0).restricted).isTrue();
+    }
+
+    @Test
+    public void loadInBackground_closedCycleCached_notQueriedAgain() throws Exception {
+        ShadowApplication.getInstance().setSystemService(Context.NETWORK_STATS_SERVICE,
+                mNetworkStatsManager);
+        when(mPolicyManager.getUidsWithPolicy(anyInt())).thenReturn(new int[0]);
+        final NetworkTemplate template =
+                new NetworkTemplate.Builder(NetworkTemplate.MATCH_WIFI).build();
+        final long end = System.currentTimeMillis() - DataUsageCache.CLOSED_CYCLE_DELAY_MS;
+        final long start = 0L;
+        final int uid = UserHandle.getUid(CURRENT_USER_ID, APP_ID_1);
+        final SparseLongArray usage = new SparseLongArray();
+        usage.put(uid, 100L);
+        final DataUsageCache cache = new DataUsageCache();
+        cache.putCycleUsage(template, start, end, usage);
+
+        final AppsDataUsageLoader.Result result = new AppsDataUsageLoader(
+                RuntimeEnvironment.application, mPolicyManager, cache, template, start, end)
+                .loadInBackground();
+
+        verify(mNetworkStatsManager, never()).querySummary(any(), anyLong(), anyLong());
+        assertThat(findItem(result, uid).total).isEqualTo(100L);
+    }
+
+    private static AppItem findItem(AppsDataUsageLoader.Result result, int key) {
+        for (AppItem item : result.items) {
+            if (item.key == key) {
+                return item;
+            }
+        }
+        throw new AssertionError("No item of key " + key);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.NetworkTemplate;
+import android.text.format.DateUtils;
+import android.util.SparseBooleanArray;
+import android.util.SparseLongArray;
+
+import com.android.settingslib.net.NetworkCycleChartData;
+import com.android.settingslib.net.NetworkCycleDataForUid;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class DataUsageCacheTest {
+    private static final NetworkTemplate WIFI_TEMPLATE =
+            new NetworkTemplate.Builder(NetworkTemplate.MATCH_WIFI).build();
+    private static final NetworkTemplate MOBILE_TEMPLATE =
+            new NetworkTemplate.Builder(NetworkTemplate.MATCH_MOBILE).build();
+
+    private DataUsageCache mCache;
+    private long mNow;
+
+    @Before
+    public void setUp() {
+        mCache = new DataUsageCache();
+        mNow = System.currentTimeMillis();
+    }
+
+    @Test
+    public void putCycleUsage_closedCycle_cached() {
+        final long end = mNow - DataUsageCache.CLOSED_CYCLE_DELAY_MS;
+        final long start = end - DateUtils.WEEK_IN_MILLIS;
+        final SparseLongArray usage = new SparseLongArray();
+        usage.put(10001, 100L);
+
+        mCache.putCycleUsage(WIFI_TEMPLATE, start, end, usage);
+
+        assertThat(mCache.getCycleUsage(WIFI_TEMPLATE, start, end)).isSameInstanceAs(usage);
+        assertThat(mCache.getCycleUsage(MOBILE_TEMPLATE, start, end)).isNull();
+        assertThat(mCache.getCycleUsage(WIFI_TEMPLATE, start + 1, end)).isNull();
+    }
+
+    @Test
+    public void putCycleUsage_currentCycle_notCached() {
+        final long start = mNow - DateUtils.WEEK_IN_MILLIS;
+        final long end = mNow + DateUtils.WEEK_IN_MILLIS;
+
+        mCache.putCycleUsage(WIFI_TEMPLATE, start, end, new SparseLongArray());
+
+        assertThat(mCache.getCycleUsage(WIFI_TEMPLATE, start, end)).isNull();
+    }
+
+    @Test
+    public void putCycleUsage_cycleEndedWithinUidBucket_notCached() {
+        final long end = mNow - 2 * DateUtils.HOUR_IN_MILLIS;
+        final long start = end - DateUtils.WEEK_IN_MILLIS;
+
+        mCache.putCycleUsage(WIFI_TEMPLATE, start, end, new SparseLongArray());
+
+        assertThat(mCache.getCycleUsage(WIFI_TEMPLATE, start, end)).isNull();
+    }
+
+    @Test
+    public void putCycleUsage_cycleJustEnded_notCached() {
+        final long end = mNow - DateUtils.MINUTE_IN_MILLIS;
+        final long start = end - DateUtils.WEEK_IN_MILLIS;
+
+        mCache.putCycleUsage(WIFI_TEMPLATE, start, end, new SparseLongArray());
+
+        assertThat(mCache.getCycleUsage(WIFI_TEMPLATE, start, end)).isNull();
+    }
+
+    @Test
+    public void putChartData_keyedByTemplate() {
+        final List<NetworkCycleChartData> data = new ArrayList<>();
+
+        mCache.putChartData(WIFI_TEMPLATE, data);
+
+        assertThat(mCache.getChartData(WIFI_TEMPLATE)).isSameInstanceAs(data);
+        assertThat(mCache.getChartData(MOBILE_TEMPLATE)).isNull();
+    }
+
+    @Test
+    public void putUidData_keyedByUidsAndCycles() {
+        final SparseBooleanArray uids = new SparseBooleanArray();
+        uids.put(10001, true);
+        uids.put(10002, true);
+        final SparseBooleanArray otherUids = new SparseBooleanArray();
+        otherUids.put(10001, true);
+        final List<Long> cycles = new ArrayList<>(Arrays.asList(mNow, mNow - 1000L));
+        final List<NetworkCycleDataForUid> data = new ArrayList<>();
+
+        mCache.putUidData(WIFI_TEMPLATE, uids, cycles, data);
+
+        final SparseBooleanArray sameUids = new SparseBooleanArray();
+        sameUids.put(10002, true);
+        sameUids.put(10001, true);
+        assertThat(mCache.getUidData(WIFI_TEMPLATE, sameUids, Arrays.asList(mNow, mNow - 1000L)))
+                .isSameInstanceAs(data);
+        assertThat(mCache.getUidData(WIFI_TEMPLATE, otherUids, cycles)).isNull();
+        assertThat(mCache.getUidData(WIFI_TEMPLATE, uids, null /* cycles */)).isNull();
+    }
+
+    @Test
+    public void clear_allRemoved() {
+        final long end = mNow - DataUsageCache.CLOSED_CYCLE_DELAY_MS;
+        mCache.putCycleUsage(WIFI_TEMPLATE, 0L, end, new SparseLongArray());
+        mCache.putChartData(WIFI_TEMPLATE, new ArrayList<>());
+
+        mCache.clear();
+
+        assertThat(mCache.getCycleUsage(WIFI_TEMPLATE, 0L, end)).isNull();
+        assertThat(mCache.getChartData(WIFI_TEMPLATE)).isNull();
+    }
+}
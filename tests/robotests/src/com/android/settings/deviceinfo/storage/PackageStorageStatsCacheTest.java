@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settingslib.applications.StorageStatsSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class PackageStorageStatsCacheTest {
+    private static final int USER_ID = 0;
+    private static final int OTHER_USER_ID = 10;
+    private static final String VOLUME_UUID = "uuid";
+    private static final String PACKAGE_NAME = "com.test.package";
+    private static final long LAST_UPDATE_TIME = 1000L;
+
+    private Context mContext;
+    private PackageStorageStatsCache mCache;
+    private StorageStatsSource.AppStorageStats mStats;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mCache = new PackageStorageStatsCache(mContext, USER_ID);
+        mStats = mock(StorageStatsSource.AppStorageStats.class);
+        when(mStats.getCodeBytes()).thenReturn(1L);
+        when(mStats.getDataBytes()).thenReturn(20L);
+        when(mStats.getCacheBytes()).thenReturn(3L);
+    }
+
+    @Test
+    public void get_afterPut_returnCachedStats() {
+        mCache.put(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME, mStats, 64L);
+        mCache.apply();
+
+        final PackageStorageStatsCache.Entry entry =
+                new PackageStorageStatsCache(mContext, USER_ID)
+                        .get(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME);
+
+        assertThat(entry.getCodeBytes()).isEqualTo(1L);
+        assertThat(entry.getDataBytes()).isEqualTo(20L);
+        assertThat(entry.getCacheBytes()).isEqualTo(3L);
+        assertThat(entry.getTotalBytes()).isEqualTo(21L);
+        assertThat(entry.getCacheQuotaBytes()).isEqualTo(64L);
+    }
+
+    @Test
+    public void get_packageUpdated_returnNull() {
+        mCache.put(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME, mStats, 64L);
+        mCache.apply();
+
+        assertThat(mCache.get(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME + 1)).isNull();
+    }
+
+    @Test
+    public void get_beforeApply_returnNull() {
+        mCache.put(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME, mStats, 64L);
+
+        assertThat(mCache.get(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME)).isNull();
+    }
+
+    @Test
+    public void retainPackages_removedPackage_dropCachedStats() {
+        mCache.put(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME, mStats, 64L);
+        mCache.apply();
+
+        mCache.retainPackages(VOLUME_UUID, Collections.emptySet());
+        mCache.apply();
+
+        assertThat(mCache.get(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME)).isNull();
+    }
+
+    @Test
+    public void onReceive_packageDataCleared_dropCachedStats() {
+        mCache.put(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME, mStats, 64L);
+        mCache.apply();
+        final Intent intent = new Intent(Intent.ACTION_PACKAGE_DATA_CLEARED,
+                Uri.fromParts("package", PACKAGE_NAME, null /* fragment */));
+
+        new PackageStorageStatsCacheReceiver().onReceive(mContext, intent);
+
+        assertThat(mCache.get(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME)).isNull();
+    }
+
+    @Test
+    public void get_otherUser_notCached() {
+        final PackageStorageStatsCache cache =
+                new PackageStorageStatsCache(mContext, OTHER_USER_ID);
+        cache.put(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME, mStats, 64L);
+        cache.apply();
+
+        assertThat(PackageStorageStatsCache.isSupported(OTHER_USER_ID)).isFalse();
+        assertThat(new PackageStorageStatsCache(mContext, OTHER_USER_ID)
+                .get(VOLUME_UUID, PACKAGE_NAME, LAST_UPDATE_TIME)).isNull();
+    }
+}
@@ -354,6 +354,48 @@ public class StorageItemPreferenceControllerTest {
         assertThat(mController.mTrashPreference.getSummary().toString()).isEqualTo("100 kB");
     }
 
+    @Test
+    @Config(shadows = ShadowUserManager.class)
+    public void onPartialResultLoaded_updatesPreferencesWithoutCaching() {
+        mController.displayPreference(mPreferenceScreen);
+        mController.setUsedSize(MEGABYTE_IN_BYTES * 970);
+        final StorageAsyncLoader.StorageResult result = new StorageAsyncLoader.StorageResult();
+        result.imagesSize = MEGABYTE_IN_BYTES * 350;
+        final SparseArray<StorageAsyncLoader.StorageResult> results = new SparseArray<>();
+        results.put(0, result);
+
+        mController.onPartialResultLoaded(results, 0);
+
+        assertThat(mController.mImagesPreference.getSummary().toString()).isEqualTo("350 MB");
+        assertThat(new StorageCacheHelper(mContext, 0).hasCachedSizeInfo()).isFalse();
+    }
+
+    @Test
+    @Config(shadows = ShadowUserManager.class)
+    public void onPartialResultLoaded_otherUserLoading_keepsSystemSize() {
+        mController.displayPreference(mPreferenceScreen);
+        mController.setUsedSize(GIGABYTE_IN_BYTES * 20);
+        final StorageAsyncLoader.StorageResult ownerResult =
+                new StorageAsyncLoader.StorageResult();
+        ownerResult.imagesSize = GIGABYTE_IN_BYTES * 4;
+        final StorageAsyncLoader.StorageResult profileResult =
+                new StorageAsyncLoader.StorageResult();
+        profileResult.imagesSize = GIGABYTE_IN_BYTES * 6;
+        final SparseArray<StorageAsyncLoader.StorageResult> results = new SparseArray<>();
+        results.put(0, ownerResult);
+        results.put(10, profileResult);
+        mController.onLoadFinished(results, 0);
+        final String systemSize = mController.mSystemPreference.getSummary().toString();
+
+        // Reloads, only the owner has finished so far.
+        final SparseArray<StorageAsyncLoader.StorageResult> partialResults = new SparseArray<>();
+        partialResults.put(0, ownerResult);
+        mController.onPartialResultLoaded(partialResults, 0);
+
+        assertThat(systemSize).isEqualTo("10 GB");
+        assertThat(mController.mSystemPreference.getSummary().toString()).isEqualTo(systemSize);
+    }
+
     @Test
     public void settingUserIdAppliesNewIcons() {
         mController.displayPreference(mPreferenceScreen);
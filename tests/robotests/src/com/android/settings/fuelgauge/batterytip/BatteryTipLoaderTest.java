@@ -31,7 +31,9 @@ import com.android.settings.fuelgauge.BatteryInfo;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batterytip.tips.AppLabelPredicate;
 import com.android.settings.fuelgauge.batterytip.tips.AppRestrictionPredicate;
+import com.android.settings.fuelgauge.batterytip.detectors.BatteryTipDetector;
 import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
+import com.android.settings.fuelgauge.batterytip.tips.SmartBatteryTip;
 
 import org.junit.After;
 import org.junit.Before;
@@ -45,6 +47,7 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 @RunWith(RobolectricTestRunner.class)
 public class BatteryTipLoaderTest {
@@ -86,6 +89,7 @@ public class BatteryTipLoaderTest {
     public void tearDown() {
         ReflectionHelpers.setStaticField(AppLabelPredicate.class, "sInstance", null);
         ReflectionHelpers.setStaticField(AppRestrictionPredicate.class, "sInstance", null);
+        BatteryTipLoader.sLastResults.clear();
     }
 
     @Test
@@ -97,4 +101,66 @@ public class BatteryTipLoaderTest {
             assertThat(batteryTips.get(i).getType()).isEqualTo(TIP_ORDER[i]);
         }
     }
+
+    @Test
+    public void testLoadBackground_detectorTimedOut_usePreviousResult() {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final BatteryTipDetector detector = new BlockingDetector(latch);
+        final BatteryTip previousResult = new SmartBatteryTip(BatteryTip.StateType.NEW);
+        BatteryTipLoader.sLastResults.put(detector.getClass(), previousResult);
+        mBatteryTipLoader = spy(mBatteryTipLoader);
+        doReturn(List.of(detector)).when(mBatteryTipLoader).getDetectors();
+
+        final List<BatteryTip> batteryTips = mBatteryTipLoader.loadInBackground();
+        latch.countDown();
+
+        assertThat(batteryTips).containsExactly(previousResult);
+    }
+
+    @Test
+    public void testLoadBackground_detectorTimedOutWithoutPreviousResult_useInvisibleTip() {
+        final CountDownLatch latch = new CountDownLatch(1);
+        mBatteryTipLoader = spy(mBatteryTipLoader);
+        doReturn(List.of(new BlockingDetector(latch))).when(mBatteryTipLoader).getDetectors();
+
+        final List<BatteryTip> batteryTips = mBatteryTipLoader.loadInBackground();
+        latch.countDown();
+
+        assertThat(batteryTips).hasSize(1);
+        assertThat(batteryTips.get(0).getType())
+                .isEqualTo(BatteryTip.TipType.SMART_BATTERY_MANAGER);
+        assertThat(batteryTips.get(0).getState()).isEqualTo(BatteryTip.StateType.INVISIBLE);
+    }
+
+    @Test
+    public void testLoadBackground_keepsResultOfEachDetector() {
+        final List<BatteryTip> batteryTips = mBatteryTipLoader.loadInBackground();
+
+        assertThat(BatteryTipLoader.sLastResults.values())
+                .containsExactlyElementsIn(batteryTips);
+    }
+
+    /** Detector which doesn't finish until the latch is released. */
+    private static class BlockingDetector implements BatteryTipDetector {
+        private final CountDownLatch mLatch;
+
+        BlockingDetector(CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Override
+        public BatteryTip detect() {
+            try {
+                mLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new SmartBatteryTip(BatteryTip.StateType.NEW);
+        }
+
+        @Override
+        public BatteryTip createInvisibleTip() {
+            return new SmartBatteryTip(BatteryTip.StateType.INVISIBLE);
+        }
+    }
 }
@@ -135,8 +135,9 @@ public final class BatteryChartPreferenceControllerTest {
                 mBatteryHistEntry);
         mBatteryDiffEntry = spy(mBatteryDiffEntry);
         // Adds fake testing data.
-        BatteryDiffEntry.sResourceCache.put(
-                "fakeBatteryDiffEntryKey",
+        BatteryDiffEntry.clearCache();
+        NameAndIconCache.getInstance().put(
+                NameAndIconCache.createKey(/*uid=*/ 1001, "fakePackageName", /*userId=*/ 0),
                 new BatteryEntry.NameAndIcon("fakeName", /*icon=*/ null, /*iconId=*/ 1));
     }
 
@@ -144,20 +145,20 @@ public final class BatteryChartPreferenceControllerTest {
     public void onDestroy_activityIsChanging_clearBatteryEntryCache() {
         doReturn(true).when(mSettingsActivity).isChangingConfigurations();
         // Ensures the testing environment is correct.
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(1);
 
         mBatteryChartPreferenceController.onDestroy();
-        assertThat(BatteryDiffEntry.sResourceCache).isEmpty();
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(0);
     }
 
     @Test
     public void onDestroy_activityIsNotChanging_notClearBatteryEntryCache() {
         doReturn(false).when(mSettingsActivity).isChangingConfigurations();
         // Ensures the testing environment is correct.
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(1);
 
         mBatteryChartPreferenceController.onDestroy();
-        assertThat(BatteryDiffEntry.sResourceCache).isNotEmpty();
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(1);
     }
 
     @Test
@@ -409,6 +410,64 @@ public final class BatteryChartPreferenceControllerTest {
         verify(mAppListGroup, never()).addPreference(any());
     }
 
+    @Test
+    public void addPreferenceToScreen_itemsNotLoaded_addPlaceholderPreference() {
+        mBatteryChartPreferenceController.mIsUsageMapItemsLoaded = false;
+        doReturn(1).when(mAppListGroup).getPreferenceCount();
+        doReturn(PREF_KEY).when(mBatteryHistEntry).getKey();
+        doReturn(null).when(mAppListGroup).findPreference(PREF_KEY);
+
+        mBatteryChartPreferenceController.addPreferenceToScreen(
+                Arrays.asList(mBatteryDiffEntry));
+
+        final PowerGaugePreference pref =
+                (PowerGaugePreference) mBatteryChartPreferenceController.mPreferenceCache
+                        .get(PREF_KEY);
+        verify(mAppListGroup).addPreference(pref);
+        assertThat(pref.getIcon()).isNotNull();
+        assertThat(pref.getBatteryDiffEntry()).isSameInstanceAs(mBatteryDiffEntry);
+        assertThat(pref.isEnabled()).isTrue();
+        verify(mBatteryDiffEntry, never()).getAppLabel();
+        verify(mBatteryDiffEntry, never()).getAppIcon();
+        verify(mBatteryDiffEntry, never()).validForRestriction();
+    }
+
+    @Test
+    public void rebindLoadedItems_rebindPreferenceInPlace() {
+        final String appLabel = "fake app label";
+        final PowerGaugePreference pref = new PowerGaugePreference(mContext);
+        mBatteryChartPreferenceController.mBatteryUsageMap = createBatteryUsageMap();
+        doReturn(mDrawable).when(mBatteryDiffEntry).getAppIcon();
+        doReturn(appLabel).when(mBatteryDiffEntry).getAppLabel();
+        doReturn(false).when(mBatteryDiffEntry).validForRestriction();
+        doReturn(PREF_KEY).when(mBatteryHistEntry).getKey();
+        doReturn(pref).when(mAppListGroup).findPreference(PREF_KEY);
+
+        mBatteryChartPreferenceController.rebindLoadedItems();
+
+        assertThat(pref.getTitle()).isEqualTo(appLabel);
+        assertThat(pref.getIcon()).isEqualTo(mDrawable);
+        assertThat(pref.isEnabled()).isFalse();
+        verify(mAppListGroup, never()).addPreference(any());
+        verify(mAppListGroup, never()).removeAll();
+    }
+
+    @Test
+    public void rebindLoadedItems_noAppResource_removePreference() {
+        mBatteryChartPreferenceController.mBatteryUsageMap = createBatteryUsageMap();
+        doReturn(null).when(mBatteryDiffEntry).getAppIcon();
+        doReturn("fake app label").when(mBatteryDiffEntry).getAppLabel();
+        doReturn(PREF_KEY).when(mBatteryHistEntry).getKey();
+        doReturn(PREF_KEY).when(mPowerGaugePreference).getKey();
+        doReturn(mPowerGaugePreference).when(mAppListGroup).findPreference(PREF_KEY);
+
+        mBatteryChartPreferenceController.rebindLoadedItems();
+
+        verify(mAppListGroup, atLeastOnce()).removePreference(mPowerGaugePreference);
+        assertThat(mBatteryChartPreferenceController.mPreferenceCache.get(PREF_KEY))
+                .isEqualTo(mPowerGaugePreference);
+    }
+
     @Test
     public void handlePreferenceTreeClick_notPowerGaugePreference_returnFalse() {
         assertThat(mBatteryChartPreferenceController.handlePreferenceTreeClick(mAppListGroup))
@@ -146,12 +146,8 @@ public final class BatteryDiffEntryTest {
 
         assertThat(entry.getAppLabel()).isEqualTo(expectedName);
         assertThat(entry.getAppIconId()).isEqualTo(R.drawable.ic_settings_aod);
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
-        // Verifies the app label in the cache.
-        final BatteryEntry.NameAndIcon nameAndIcon =
-                BatteryDiffEntry.sResourceCache.get(entry.getKey());
-        assertThat(nameAndIcon.mName).isEqualTo(expectedName);
-        assertThat(nameAndIcon.mIconId).isEqualTo(R.drawable.ic_settings_aod);
+        // Power components are loaded from resources without caching.
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(0);
         // Verifies the restrictable flag in the cache.
         assertThat(entry.mValidForRestriction).isTrue();
         assertThat(BatteryDiffEntry.sValidForRestriction.get(entry.getKey())).isTrue();
@@ -172,10 +168,10 @@ public final class BatteryDiffEntryTest {
         assertThat(entry.getAppLabel()).isEqualTo(expectedName);
         assertThat(entry.getAppIcon()).isNull();
         assertThat(entry.getAppIconId()).isEqualTo(0);
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(1);
         // Verifies the app label in the cache.
         final BatteryEntry.NameAndIcon nameAndIcon =
-                BatteryDiffEntry.sResourceCache.get(entry.getKey());
+                NameAndIconCache.getInstance().get(entry.getCacheKey());
         assertThat(nameAndIcon.mName).isEqualTo(expectedName);
         assertThat(nameAndIcon.mIconId).isEqualTo(0);
         // Verifies the restrictable flag in the cache.
@@ -201,10 +197,10 @@ public final class BatteryDiffEntryTest {
 
         assertThat(entry.getAppLabel()).isEqualTo(expectedAppLabel);
         assertThat(entry.getAppIconId()).isEqualTo(0);
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(1);
         // Verifies the app label in the cache.
         final BatteryEntry.NameAndIcon nameAndIcon =
-                BatteryDiffEntry.sResourceCache.get(entry.getKey());
+                NameAndIconCache.getInstance().get(entry.getCacheKey());
         assertThat(nameAndIcon.mName).isEqualTo(expectedAppLabel);
         // Verifies the restrictable flag in the cache.
         assertThat(entry.mValidForRestriction).isFalse();
@@ -221,10 +217,10 @@ public final class BatteryDiffEntryTest {
         final BatteryDiffEntry entry = createBatteryDiffEntry(10, batteryHistEntry);
 
         assertThat(entry.getAppLabel()).isEqualTo(expectedAppLabel);
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(1);
         // Verifies the app label in the cache.
         final BatteryEntry.NameAndIcon nameAndIcon =
-                BatteryDiffEntry.sResourceCache.get(entry.getKey());
+                NameAndIconCache.getInstance().get(entry.getCacheKey());
         assertThat(nameAndIcon.mName).isEqualTo(expectedAppLabel);
     }
 
@@ -240,7 +236,7 @@ public final class BatteryDiffEntryTest {
 
         entry.mIsLoaded = true;
         assertThat(entry.getAppLabel()).isEqualTo(expectedAppLabel);
-        assertThat(BatteryDiffEntry.sResourceCache).isEmpty();
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(0);
     }
 
     @Test
@@ -255,7 +251,7 @@ public final class BatteryDiffEntryTest {
         entry.mIsLoaded = true;
         entry.mAppIcon = mMockDrawable;
         assertThat(entry.getAppIcon()).isEqualTo(mMockDrawable);
-        assertThat(BatteryDiffEntry.sResourceCache).isEmpty();
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(0);
     }
 
     @Test
@@ -280,24 +276,24 @@ public final class BatteryDiffEntryTest {
 
         entry.mAppIcon = null;
         assertThat(entry.getAppIcon()).isEqualTo(mMockDrawable);
-        assertThat(BatteryDiffEntry.sResourceCache).hasSize(1);
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(1);
         // Verifies the app label in the cache.
         final BatteryEntry.NameAndIcon nameAndIcon =
-                BatteryDiffEntry.sResourceCache.get(entry.getKey());
+                NameAndIconCache.getInstance().get(entry.getCacheKey());
         assertThat(nameAndIcon.mIcon).isEqualTo(mMockDrawable);
     }
 
     @Test
     public void testClearCache_clearDataForResourcesAndFlags() {
-        BatteryDiffEntry.sResourceCache.put(
-                "fake application key",
+        NameAndIconCache.getInstance().put(
+                NameAndIconCache.createKey(/*uid=*/ 1001, "com.a.b.c", /*userId=*/ 0),
                 new BatteryEntry.NameAndIcon("app label", null, /*iconId=*/ 0));
         BatteryDiffEntry.sValidForRestriction.put(
                 "fake application key", Boolean.valueOf(false));
 
         BatteryDiffEntry.clearCache();
 
-        assertThat(BatteryDiffEntry.sResourceCache).isEmpty();
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(0);
         assertThat(BatteryDiffEntry.sValidForRestriction).isEmpty();
     }
 
@@ -318,7 +314,7 @@ public final class BatteryDiffEntryTest {
         assertThat(entry2.getAppIcon()).isEqualTo(mMockDrawable2);
         // Verifies the cache is updated into the new drawable.
         final BatteryEntry.NameAndIcon nameAndIcon =
-                BatteryDiffEntry.sResourceCache.get(entry2.getKey());
+                NameAndIconCache.getInstance().get(entry2.getCacheKey());
         assertThat(nameAndIcon.mIcon).isEqualTo(mMockDrawable2);
     }
 
@@ -220,12 +220,15 @@ public class BatteryEntryTest {
         BatteryEntry.stopRequestQueue();
 
         Locale.setDefault(new Locale("en_US"));
-        BatteryEntry.sUidCache.put(Integer.toString(APP_UID), null);
-        assertThat(BatteryEntry.sUidCache).isNotEmpty();
+        NameAndIconCache.getInstance().put(
+                NameAndIconCache.createKey(APP_UID, HIGH_DRAIN_PACKAGE, /*userId=*/ 0),
+                new BatteryEntry.NameAndIcon("app label", /*icon=*/ null, /*iconId=*/ 0));
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(1);
 
         Locale.setDefault(new Locale("zh_TW"));
         createBatteryEntryForApp(null, null, HIGH_DRAIN_PACKAGE);
-        assertThat(BatteryEntry.sUidCache).isEmpty(); // check if cache is clear
+        // check if cache is clear
+        assertThat(NameAndIconCache.getInstance().size()).isEqualTo(0);
     }
 
     @Test
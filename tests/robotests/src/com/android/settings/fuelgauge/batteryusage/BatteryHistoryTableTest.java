@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentValues;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryHistoryTableTest {
+
+    @Test
+    public void from_returnsRowsSortedByTimestamp() {
+        final Map<Long, Map<String, BatteryHistEntry>> historyMap = new HashMap<>();
+        historyMap.put(3000L, createEntryMap("package1", 30L, 3L, 3.0));
+        historyMap.put(1000L, createEntryMap("package1", 10L, 1L, 1.0));
+        historyMap.put(2000L, new HashMap<>());
+
+        final BatteryHistoryTable table = BatteryHistoryTable.from(historyMap);
+
+        assertThat(table.indexOf(1000L)).isEqualTo(0);
+        assertThat(table.indexOf(2000L)).isEqualTo(1);
+        assertThat(table.indexOf(3000L)).isEqualTo(2);
+        assertThat(table.indexOf(4000L)).isEqualTo(-1);
+        assertThat(table.hasEntries(0)).isTrue();
+        assertThat(table.hasEntries(1)).isFalse();
+        assertThat(table.hasEntries(-1)).isFalse();
+    }
+
+    @Test
+    public void from_missingEntry_readsAsZero() {
+        final Map<Long, Map<String, BatteryHistEntry>> historyMap = new HashMap<>();
+        final Map<String, BatteryHistEntry> entryMap = createEntryMap("package1", 10L, 1L, 1.0);
+        entryMap.putAll(createEntryMap("package2", 20L, 2L, 2.0));
+        historyMap.put(1000L, entryMap);
+        historyMap.put(2000L, createEntryMap("package2", 40L, 4L, 4.0));
+
+        final BatteryHistoryTable table = BatteryHistoryTable.from(historyMap);
+
+        assertThat(table.getKeyCount()).isEqualTo(2);
+        final int row = table.indexOf(2000L);
+        for (int id = 0; id < table.getKeyCount(); id++) {
+            if (table.getKey(id).equals("package1")) {
+                assertThat(table.getEntry(row, id)).isNull();
+                assertThat(table.getForegroundUsageTimeInMs(row, id)).isEqualTo(0L);
+                assertThat(table.getBackgroundUsageTimeInMs(row, id)).isEqualTo(0L);
+                assertThat(table.getConsumePower(row, id)).isEqualTo(0.0);
+            } else {
+                assertThat(table.getForegroundUsageTimeInMs(row, id)).isEqualTo(40L);
+                assertThat(table.getBackgroundUsageTimeInMs(row, id)).isEqualTo(4L);
+                assertThat(table.getConsumePower(row, id)).isEqualTo(4.0);
+            }
+        }
+    }
+
+    private static Map<String, BatteryHistEntry> createEntryMap(String key,
+            long foregroundUsageTimeInMs, long backgroundUsageTimeInMs, double consumePower) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, key);
+        values.put(BatteryHistEntry.KEY_FOREGROUND_USAGE_TIME, foregroundUsageTimeInMs);
+        values.put(BatteryHistEntry.KEY_BACKGROUND_USAGE_TIME, backgroundUsageTimeInMs);
+        values.put(BatteryHistEntry.KEY_CONSUME_POWER, consumePower);
+        final Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+        entryMap.put(key, new BatteryHistEntry(values));
+        return entryMap;
+    }
+}
@@ -18,7 +18,10 @@ package com.android.settings.fuelgauge.batteryusage;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -36,13 +39,18 @@ import com.android.settings.fuelgauge.PowerUsageFeatureProvider;
 import com.android.settings.testutils.FakeFeatureFactory;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -52,6 +60,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
 
 @RunWith(RobolectricTestRunner.class)
 public class DataProcessorTest {
@@ -62,6 +71,7 @@ public class DataProcessorTest {
     private FakeFeatureFactory mFeatureFactory;
     private MetricsFeatureProvider mMetricsFeatureProvider;
     private PowerUsageFeatureProvider mPowerUsageFeatureProvider;
+    private ExecutorService mUsageMapItemsExecutor;
 
     @Mock private BatteryUsageStats mBatteryUsageStats;
     @Mock private BatteryEntry mMockBatteryEntry1;
@@ -79,6 +89,14 @@ public class DataProcessorTest {
         mFeatureFactory = FakeFeatureFactory.setupForTest();
         mMetricsFeatureProvider = mFeatureFactory.metricsFeatureProvider;
         mPowerUsageFeatureProvider = mFeatureFactory.powerUsageFeatureProvider;
+        DataProcessor.clearHourlySlotCache();
+        mUsageMapItemsExecutor = DataProcessor.sUsageMapItemsExecutor;
+        DataProcessor.sUsageMapItemsExecutor = MoreExecutors.newDirectExecutorService();
+    }
+
+    @After
+    public void tearDown() {
+        DataProcessor.sUsageMapItemsExecutor = mUsageMapItemsExecutor;
     }
 
     @Test
@@ -142,6 +160,44 @@ public class DataProcessorTest {
                 expectedHourlyLevels);
     }
 
+    @Test
+    public void getBatteryLevelData_publishUsageMapBeforeItems() {
+        final long[] timestamps = {1640966400000L, 1640970000000L, 1640973600000L};
+        final int[] levels = {100, 99, 98};
+        final DataProcessor.UsageMapAsyncResponse asyncResponseDelegate =
+                mock(DataProcessor.UsageMapAsyncResponse.class);
+
+        DataProcessor.getBatteryLevelData(
+                mContext,
+                /*handler=*/ null,
+                createHistoryMap(timestamps, levels),
+                asyncResponseDelegate);
+        ShadowLooper.idleMainLooper();
+
+        final InOrder inOrder = inOrder(asyncResponseDelegate);
+        inOrder.verify(asyncResponseDelegate).onBatteryUsageMapLoaded(any());
+        inOrder.verify(asyncResponseDelegate).onBatteryUsageMapItemsLoaded(any());
+    }
+
+    @Test
+    public void cancelBatteryUsageMapLoading_notPublishResults() {
+        final long[] timestamps = {1640966400000L, 1640970000000L, 1640973600000L};
+        final int[] levels = {100, 99, 98};
+        final DataProcessor.UsageMapAsyncResponse asyncResponseDelegate =
+                mock(DataProcessor.UsageMapAsyncResponse.class);
+
+        DataProcessor.getBatteryLevelData(
+                mContext,
+                /*handler=*/ null,
+                createHistoryMap(timestamps, levels),
+                asyncResponseDelegate);
+        DataProcessor.cancelBatteryUsageMapLoading(asyncResponseDelegate);
+        ShadowLooper.idleMainLooper();
+
+        verify(asyncResponseDelegate, never()).onBatteryUsageMapLoaded(any());
+        verify(asyncResponseDelegate, never()).onBatteryUsageMapItemsLoaded(any());
+    }
+
     @Test
     public void getHistoryMapWithExpectedTimestamps_emptyHistoryMap_returnEmptyMap() {
         assertThat(DataProcessor
@@ -825,6 +881,89 @@ public class DataProcessorTest {
                         0);
     }
 
+    @Test
+    public void getBatteryUsageMap_reloadSameHistory_reusesSlotResultCopy() {
+        final long[] batteryHistoryKeys = new long[]{
+                1641052800000L, // 2022-01-02 00:00:00
+                1641056400000L, // 2022-01-02 01:00:00
+                1641060000000L  // 2022-01-02 02:00:00
+        };
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new HashMap<>();
+        final int currentUserId = mContext.getUserId();
+        for (int index = 0; index < batteryHistoryKeys.length; index++) {
+            final Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+            final BatteryHistEntry entry = createBatteryHistEntry(
+                    "package1", "label1", /*consumePower=*/ 10.0 * index, /*uid=*/ 1L,
+                    currentUserId, ConvertUtils.CONSUMER_TYPE_UID_BATTERY,
+                    /*foregroundUsageTimeInMs=*/ 1000L * index,
+                    /*backgroundUsageTimeInMs=*/ 0L);
+            entryMap.put(entry.getKey(), entry);
+            batteryHistoryMap.put(batteryHistoryKeys[index], entryMap);
+        }
+        final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay =
+                new ArrayList<>();
+        hourlyBatteryLevelsPerDay.add(new BatteryLevelData.PeriodBatteryLevelData(
+                List.of(batteryHistoryKeys[0], batteryHistoryKeys[2]), List.of(100, 100)));
+
+        final BatteryDiffData firstDiffData = DataProcessor.getBatteryUsageMap(
+                mContext, hourlyBatteryLevelsPerDay, batteryHistoryMap).get(0).get(0);
+        final BatteryDiffData secondDiffData = DataProcessor.getBatteryUsageMap(
+                mContext, hourlyBatteryLevelsPerDay, batteryHistoryMap).get(0).get(0);
+
+        final BatteryDiffEntry firstEntry = firstDiffData.getAppDiffEntryList().get(0);
+        final BatteryDiffEntry secondEntry = secondDiffData.getAppDiffEntryList().get(0);
+        assertThat(secondEntry).isNotSameInstanceAs(firstEntry);
+        assertThat(secondEntry.mForegroundUsageTimeInMs)
+                .isEqualTo(firstEntry.mForegroundUsageTimeInMs);
+        assertThat(secondEntry.mConsumePower).isEqualTo(firstEntry.mConsumePower);
+        assertThat(secondEntry.getPercentOfTotal()).isEqualTo(firstEntry.getPercentOfTotal());
+    }
+
+    @Test
+    public void getBatteryUsageMap_reloadChangedHistory_recomputesSlot() {
+        final long[] batteryHistoryKeys = new long[]{
+                1641052800000L, // 2022-01-02 00:00:00
+                1641056400000L, // 2022-01-02 01:00:00
+                1641060000000L  // 2022-01-02 02:00:00
+        };
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new HashMap<>();
+        final int currentUserId = mContext.getUserId();
+        for (int index = 0; index < batteryHistoryKeys.length; index++) {
+            final Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+            final BatteryHistEntry entry = createBatteryHistEntry(
+                    "package1", "label1", /*consumePower=*/ 10.0 * index, /*uid=*/ 1L,
+                    currentUserId, ConvertUtils.CONSUMER_TYPE_UID_BATTERY,
+                    /*foregroundUsageTimeInMs=*/ 1000L * index,
+                    /*backgroundUsageTimeInMs=*/ 0L);
+            entryMap.put(entry.getKey(), entry);
+            batteryHistoryMap.put(batteryHistoryKeys[index], entryMap);
+        }
+        final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay =
+                new ArrayList<>();
+        hourlyBatteryLevelsPerDay.add(new BatteryLevelData.PeriodBatteryLevelData(
+                List.of(batteryHistoryKeys[0], batteryHistoryKeys[2]), List.of(100, 100)));
+        final BatteryDiffEntry firstEntry = DataProcessor.getBatteryUsageMap(
+                mContext, hourlyBatteryLevelsPerDay, batteryHistoryMap)
+                .get(0).get(0).getAppDiffEntryList().get(0);
+
+        // More usage is recorded at the end of the slot.
+        final Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+        final BatteryHistEntry entry = createBatteryHistEntry(
+                "package1", "label1", /*consumePower=*/ 40.0, /*uid=*/ 1L,
+                currentUserId, ConvertUtils.CONSUMER_TYPE_UID_BATTERY,
+                /*foregroundUsageTimeInMs=*/ 4000L,
+                /*backgroundUsageTimeInMs=*/ 0L);
+        entryMap.put(entry.getKey(), entry);
+        batteryHistoryMap.put(batteryHistoryKeys[2], entryMap);
+        final BatteryDiffEntry secondEntry = DataProcessor.getBatteryUsageMap(
+                mContext, hourlyBatteryLevelsPerDay, batteryHistoryMap)
+                .get(0).get(0).getAppDiffEntryList().get(0);
+
+        assertThat(secondEntry.mConsumePower).isGreaterThan(firstEntry.mConsumePower);
+        assertThat(secondEntry.mForegroundUsageTimeInMs)
+                .isGreaterThan(firstEntry.mForegroundUsageTimeInMs);
+    }
+
     @Test
     public void getBatteryUsageMap_hideApplicationEntries_returnsExpectedResult() {
         final long[] batteryHistoryKeys = new long[]{
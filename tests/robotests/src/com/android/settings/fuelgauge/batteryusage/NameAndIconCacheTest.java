@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+@RunWith(RobolectricTestRunner.class)
+public final class NameAndIconCacheTest {
+
+    private NameAndIconCache mCache;
+    private int mLoadCount;
+
+    @Before
+    public void setUp() {
+        Locale.setDefault(new Locale("en_US"));
+        mCache = new NameAndIconCache(/*maxSize=*/ 2);
+    }
+
+    @Test
+    public void getOrLoad_sameKeyTwice_loadOnce() {
+        final NameAndIconCache.Key key = NameAndIconCache.createKey(1001, "com.a.b", 0);
+
+        mCache.getOrLoad(key, this::load);
+        final BatteryEntry.NameAndIcon nameAndIcon = mCache.getOrLoad(key, this::load);
+
+        assertThat(mLoadCount).isEqualTo(1);
+        assertThat(nameAndIcon.mName).isEqualTo("label1");
+    }
+
+    @Test
+    public void getOrLoad_exceedMaxSize_evictLeastRecentlyUsed() {
+        final NameAndIconCache.Key key1 = NameAndIconCache.createKey(1001, "com.a.b", 0);
+        final NameAndIconCache.Key key2 = NameAndIconCache.createKey(1002, "com.c.d", 0);
+        final NameAndIconCache.Key key3 = NameAndIconCache.createKey(1003, "com.e.f", 0);
+
+        mCache.getOrLoad(key1, this::load);
+        mCache.getOrLoad(key2, this::load);
+        mCache.get(key1);
+        mCache.getOrLoad(key3, this::load);
+
+        assertThat(mCache.size()).isEqualTo(2);
+        assertThat(mCache.get(key1)).isNotNull();
+        assertThat(mCache.get(key2)).isNull();
+    }
+
+    @Test
+    public void get_switchLocale_clearCache() {
+        final NameAndIconCache.Key key = NameAndIconCache.createKey(1001, "com.a.b", 0);
+        mCache.getOrLoad(key, this::load);
+
+        Locale.setDefault(new Locale("zh_TW"));
+
+        assertThat(mCache.get(key)).isNull();
+        assertThat(mCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void put_keyOfPreviousLocale_notCache() {
+        final NameAndIconCache.Key key = NameAndIconCache.createKey(1001, "com.a.b", 0);
+        Locale.setDefault(new Locale("zh_TW"));
+
+        mCache.put(key, load());
+
+        assertThat(mCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void loadInBackground_deliverLoadedResult() {
+        final NameAndIconCache.Key key = NameAndIconCache.createKey(1001, "com.a.b", 0);
+        final List<BatteryEntry.NameAndIcon> results = new ArrayList<>();
+
+        mCache.loadInBackground(key, this::load, results::add);
+
+        assertThat(results).hasSize(1);
+        assertThat(mCache.get(key)).isSameInstanceAs(results.get(0));
+    }
+
+    private BatteryEntry.NameAndIcon load() {
+        mLoadCount++;
+        return new BatteryEntry.NameAndIcon("label" + mLoadCount, /*icon=*/ null, /*iconId=*/ 0);
+    }
+}
@@ -151,6 +151,54 @@ public class ContextualCardLoaderTest {
         assertThat(mContextualCardLoader.getCardCount()).isEqualTo(configCount);
     }
 
+    @Test
+    public void getSettledCards_uncheckedStickyCandidates_keepSlotsForThem() {
+        // 4 non-sticky cards followed by 3 sticky cards.
+        final List<ContextualCard> candidates = getContextualCardList().stream().limit(6)
+                .collect(Collectors.toList());
+        final List<ContextualCard> eligibleCards = candidates.stream().limit(4)
+                .collect(Collectors.toList());
+
+        final List<ContextualCard> settledCards = ContextualCardLoader.getSettledCards(
+                candidates, 4 /* checkedCount */, eligibleCards, DEFAULT_CARD_COUNT);
+
+        // Two sticky candidates may still take two of the three slots.
+        assertThat(settledCards).containsExactly(candidates.get(0));
+    }
+
+    @Test
+    public void getSettledCards_allStickyCandidatesChecked_fillRemainingSlots() {
+        final List<ContextualCard> candidates = getContextualCardList().stream().limit(6)
+                .collect(Collectors.toList());
+        final List<ContextualCard> eligibleCards = new ArrayList<>(candidates.subList(0, 4));
+        eligibleCards.add(candidates.get(4));
+
+        final List<ContextualCard> settledCards = ContextualCardLoader.getSettledCards(
+                candidates, 6 /* checkedCount */, eligibleCards, DEFAULT_CARD_COUNT);
+
+        assertThat(settledCards).containsExactly(candidates.get(0), candidates.get(1),
+                candidates.get(4)).inOrder();
+    }
+
+    @Test
+    public void getSettledCards_moreCandidatesChecked_onlyAddCards() {
+        final List<ContextualCard> candidates = getContextualCardList();
+        final List<ContextualCard> eligibleCards = new ArrayList<>();
+        List<ContextualCard> previousCards = new ArrayList<>();
+
+        for (int i = 0; i < candidates.size(); i++) {
+            eligibleCards.add(candidates.get(i));
+            final List<ContextualCard> settledCards = ContextualCardLoader.getSettledCards(
+                    candidates, i + 1, eligibleCards, DEFAULT_CARD_COUNT);
+
+            assertThat(settledCards).containsAtLeastElementsIn(previousCards);
+            previousCards = settledCards;
+        }
+        doReturn(eligibleCards).when(mContextualCardLoader).filterEligibleCards(anyList());
+        assertThat(previousCards).isEqualTo(
+                mContextualCardLoader.getDisplayableCards(candidates));
+    }
+
     private List<ContextualCard> getContextualCardList() {
         final List<ContextualCard> cards = new ArrayList<>();
         cards.add(new ContextualCard.Builder()
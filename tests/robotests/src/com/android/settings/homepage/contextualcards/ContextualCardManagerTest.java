@@ -328,6 +328,56 @@ public class ContextualCardManagerTest {
         verify(manager, never()).onContextualCardUpdated(anyMap());
     }
 
+    @Test
+    public void onPartialCardLoading_newLaunchBeforeTimeout_shouldShowCards() {
+        mManager.mStartTime = System.currentTimeMillis();
+        final List<ContextualCard> cards = new ArrayList<>();
+        cards.add(buildContextualCard(TEST_SLICE_URI));
+
+        mManager.onPartialCardLoading(cards);
+
+        assertThat(mManager.mContextualCards).hasSize(1);
+        assertThat(mManager.mPartialCards).isEqualTo(cards);
+    }
+
+    @Test
+    public void onPartialCardLoading_afterTimeout_shouldSkipOnContextualCardUpdated() {
+        mManager.mStartTime = 0;
+        final ContextualCardManager manager = spy(mManager);
+
+        manager.onPartialCardLoading(Arrays.asList(buildContextualCard(TEST_SLICE_URI)));
+
+        verify(manager, never()).onContextualCardUpdated(anyMap());
+    }
+
+    @Test
+    public void onPartialCardLoading_notFirstLaunch_shouldSkipOnContextualCardUpdated() {
+        mManager.mStartTime = System.currentTimeMillis();
+        mManager.mIsFirstLaunch = false;
+        final ContextualCardManager manager = spy(mManager);
+
+        manager.onPartialCardLoading(Arrays.asList(buildContextualCard(TEST_SLICE_URI)));
+
+        verify(manager, never()).onContextualCardUpdated(anyMap());
+    }
+
+    @Test
+    public void onFinishCardLoading_slowLoadAfterPartialCards_shouldKeepPartialCards() {
+        mManager.mStartTime = System.currentTimeMillis();
+        final List<ContextualCard> partialCards = new ArrayList<>();
+        partialCards.add(buildContextualCard(TEST_SLICE_URI));
+        mManager.onPartialCardLoading(partialCards);
+        mManager.mStartTime = 0;
+        final List<ContextualCard> cards = new ArrayList<>(partialCards);
+        cards.add(buildContextualCard(TEST_SLICE_URI));
+
+        mManager.onFinishCardLoading(cards);
+
+        assertThat(mManager.mContextualCards).hasSize(1);
+        assertThat(mManager.mPartialCards).isNull();
+        assertThat(mManager.mIsFirstLaunch).isFalse();
+    }
+
     @Test
     public void onFinishCardLoading_newLaunch_twoLoadedCards_shouldShowTwoCards() {
         mManager.mStartTime = System.currentTimeMillis();
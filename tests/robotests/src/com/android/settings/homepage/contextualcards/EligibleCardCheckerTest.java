@@ -23,6 +23,8 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import android.app.Activity;
 import android.app.PendingIntent;
@@ -46,6 +48,9 @@ import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
 
 @RunWith(RobolectricTestRunner.class)
 public class EligibleCardCheckerTest {
@@ -53,14 +58,16 @@ public class EligibleCardCheckerTest {
     private static final Uri TEST_SLICE_URI = Uri.parse("content://test/test");
 
     private Context mContext;
+    private EligibleCardCache mCache;
     private EligibleCardChecker mEligibleCardChecker;
     private Activity mActivity;
 
     @Before
     public void setUp() {
         mContext = RuntimeEnvironment.application;
-        mEligibleCardChecker =
-                spy(new EligibleCardChecker(mContext, getContextualCard(TEST_SLICE_URI)));
+        mCache = new EligibleCardCache(mContext);
+        mEligibleCardChecker = spy(new EligibleCardChecker(mContext,
+                getContextualCard(TEST_SLICE_URI), mCache));
         SliceProvider.setSpecs(SliceLiveData.SUPPORTED_SPECS);
         mActivity = Robolectric.buildActivity(Activity.class).create().get();
     }
@@ -131,6 +138,55 @@ public class EligibleCardCheckerTest {
         assertThat(mEligibleCardChecker.mCard.getSlice()).isNotNull();
     }
 
+    @Test
+    public void isCardEligibleToDisplay_checkedTwice_bindSliceOnce() {
+        final Slice slice = buildSlice();
+        doReturn(slice).when(mEligibleCardChecker).bindSlice(any(Uri.class));
+
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+        final boolean eligible =
+                mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+
+        assertThat(eligible).isTrue();
+        verify(mEligibleCardChecker).bindSlice(TEST_SLICE_URI);
+    }
+
+    @Test
+    public void isCardEligibleToDisplay_failedBindCached_returnFalseWithoutBinding() {
+        doReturn(null).when(mEligibleCardChecker).bindSlice(any(Uri.class));
+
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+        final boolean eligible =
+                mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+
+        assertThat(eligible).isFalse();
+        verify(mEligibleCardChecker).bindSlice(TEST_SLICE_URI);
+    }
+
+    @Test
+    public void isCardEligibleToDisplay_sliceInvalidated_bindSliceAgain() {
+        final Slice slice = buildSlice();
+        doReturn(slice).when(mEligibleCardChecker).bindSlice(any(Uri.class));
+
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+        mCache.invalidate(TEST_SLICE_URI);
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+
+        verify(mEligibleCardChecker, times(2)).bindSlice(TEST_SLICE_URI);
+    }
+
+    @Test
+    public void isCardEligibleToDisplay_cacheExpired_bindSliceAgain() {
+        final Slice slice = buildSlice();
+        doReturn(slice).when(mEligibleCardChecker).bindSlice(any(Uri.class));
+
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+        ShadowSystemClock.advanceBy(Duration.ofMillis(EligibleCardCache.TTL_MS));
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+
+        verify(mEligibleCardChecker, times(2)).bindSlice(TEST_SLICE_URI);
+    }
+
     private ContextualCard getContextualCard(Uri sliceUri) {
         return new ContextualCard.Builder()
                 .setName("test_card")
@@ -50,6 +50,7 @@ import android.util.ArraySet;
 import android.view.accessibility.AccessibilityManager;
 
 import androidx.slice.Slice;
+import androidx.slice.SliceMetadata;
 import androidx.slice.SliceProvider;
 import androidx.slice.widget.SliceLiveData;
 
@@ -88,7 +89,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -150,7 +150,6 @@ public class SettingsSliceProviderTest {
 
         mProvider = spy(new SettingsSliceProvider());
         ShadowStrictMode.reset();
-        mProvider.mSliceWeakDataCache = new HashMap<>();
         mProvider.mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(mContext);
         when(mProvider.getContext()).thenReturn(mContext);
 
@@ -187,7 +186,7 @@ public class SettingsSliceProviderTest {
         SliceTestUtils.insertSliceToDb(mContext, KEY);
 
         mProvider.loadSlice(INTENT_SLICE_URI);
-        SliceData data = mProvider.mSliceWeakDataCache.get(INTENT_SLICE_URI);
+        SliceData data = mProvider.mSliceDataCache.get(INTENT_SLICE_URI);
 
         assertThat(data.getKey()).isEqualTo(KEY);
         assertThat(data.getTitle()).isEqualTo(SliceTestUtils.FAKE_TITLE);
@@ -219,16 +218,43 @@ public class SettingsSliceProviderTest {
     }
 
     @Test
-    @Ignore
-    public void testLoadSlice_cachedEntryRemovedOnBuild() {
-        SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
-        mProvider.onBindSlice(data.getUri());
-        SliceTestUtils.insertSliceToDb(mContext, data.getKey());
+    public void onBindSlice_cachedSliceData_shouldReflectChangedSetting() {
+        final SliceData data = new SliceData.Builder()
+                .setKey(KEY)
+                .setUri(URI)
+                .setTitle(SliceTestUtils.FAKE_TITLE)
+                .setSummary(SliceTestUtils.FAKE_SUMMARY)
+                .setScreenTitle(SliceTestUtils.FAKE_SCREEN_TITLE)
+                .setIcon(SliceTestUtils.FAKE_ICON)
+                .setFragmentName(SliceTestUtils.FAKE_FRAGMENT_NAME)
+                .setPreferenceControllerClassName(SliceTestUtils.FAKE_CONTROLLER_NAME)
+                .setSliceType(SliceData.SliceType.SWITCH)
+                .setHighlightMenuRes(SliceTestUtils.FAKE_HIGHLIGHT_MENU_RES)
+                .build();
+        mProvider.mSliceDataCache.put(data.getUri(), data);
+        final FakeToggleController controller = new FakeToggleController(mContext, KEY);
+        controller.setChecked(false);
+
+        final Slice before = mProvider.onBindSlice(data.getUri());
+        controller.setChecked(true);
+        final Slice after = mProvider.onBindSlice(data.getUri());
+
+        assertThat(mProvider.mSliceDataCache.get(data.getUri())).isEqualTo(data);
+        verify(mProvider, never()).loadSliceInBackground(any(Uri.class));
+        assertThat(SliceMetadata.from(mContext, before).getToggles().get(0).isChecked())
+                .isFalse();
+        assertThat(SliceMetadata.from(mContext, after).getToggles().get(0).isChecked())
+                .isTrue();
+    }
+
+    @Test
+    public void invalidateCaches_shouldDropCachedSliceData() {
+        final SliceData data = getMockData();
+        mProvider.mSliceDataCache.put(data.getUri(), data);
 
-        SliceData cachedData = mProvider.mSliceWeakDataCache.get(data.getUri());
+        mProvider.invalidateCaches();
 
-        assertThat(cachedData).isNull();
+        assertThat(mProvider.mSliceDataCache.get(data.getUri())).isNull();
     }
 
     @Test
@@ -237,7 +263,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(true);
         final StrictMode.ThreadPolicy oldThreadPolicy = StrictMode.getThreadPolicy();
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         final StrictMode.ThreadPolicy newThreadPolicy = StrictMode.getThreadPolicy();
@@ -251,7 +277,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(false);
 
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         assertThat(ShadowStrictMode.isThreadPolicyOverridden()).isTrue();
@@ -280,7 +306,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeChanged_shouldReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         final SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_YES;
@@ -294,7 +320,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeNotChanged_shouldNotReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
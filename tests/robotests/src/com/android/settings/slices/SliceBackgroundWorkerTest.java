@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.android.settings.slices.SliceBackgroundWorker.SLICE_UPDATE_BATCH_WINDOW;
+import static com.android.settings.slices.SliceBackgroundWorker.SLICE_UPDATE_THROTTLE_INTERVAL;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceBackgroundWorkerTest {
+
+    private static final Uri URI_1 = Uri.parse("content://com.android.settings.slices/action/a");
+    private static final Uri URI_2 = Uri.parse("content://com.android.settings.slices/action/b");
+    // Long enough for any pending update to become due.
+    private static final long FLUSH_DELAY_MS =
+            SLICE_UPDATE_THROTTLE_INTERVAL + SLICE_UPDATE_BATCH_WINDOW;
+
+    @Mock
+    private Context mContext;
+    @Mock
+    private ContentResolver mContentResolver;
+
+    private SliceBackgroundWorker.NotifySliceChangeHandler mHandler;
+    private TestWorker mWorker1;
+    private TestWorker mWorker2;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mContext.getContentResolver()).thenReturn(mContentResolver);
+        mHandler = new SliceBackgroundWorker.NotifySliceChangeHandler(Looper.getMainLooper());
+        mWorker1 = new TestWorker(mContext, URI_1);
+        mWorker2 = new TestWorker(mContext, URI_2);
+    }
+
+    @Test
+    public void updateSlice_withinSameWindow_notifiedInOneBatch() {
+        mHandler.updateSlice(mWorker1);
+        mHandler.updateSlice(mWorker2);
+        mHandler.updateSlice(mWorker1);
+
+        ShadowLooper.idleMainLooper(FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+
+        final ArgumentCaptor<Collection<Uri>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(mContentResolver, times(1)).notifyChange(captor.capture(), isNull(), eq(0));
+        assertThat(captor.getValue()).containsExactly(URI_1, URI_2);
+    }
+
+    @Test
+    public void updateSlice_withinThrottleInterval_notifiedAfterInterval() {
+        mHandler.updateSlice(mWorker1);
+        ShadowLooper.idleMainLooper(FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        verify(mContentResolver, times(1)).notifyChange(anyCollection(), any(), anyInt());
+
+        mHandler.updateSlice(mWorker1);
+        ShadowLooper.idleMainLooper(SLICE_UPDATE_THROTTLE_INTERVAL / 2, TimeUnit.MILLISECONDS);
+        verify(mContentResolver, times(1)).notifyChange(anyCollection(), any(), anyInt());
+
+        ShadowLooper.idleMainLooper(FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        verify(mContentResolver, times(2)).notifyChange(anyCollection(), any(), anyInt());
+    }
+
+    @Test
+    public void cancelSliceUpdate_pendingUpdate_notNotified() {
+        mHandler.updateSlice(mWorker1);
+
+        mHandler.cancelSliceUpdate(mWorker1);
+        ShadowLooper.idleMainLooper(FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+
+        verify(mContentResolver, never()).notifyChange(anyCollection(), any(), anyInt());
+    }
+
+    @Test
+    @Config(shadows = ShadowSliceBackgroundWorker.class)
+    public void updateResults_sameSizeAndHash_notNotifiedAgain() {
+        mWorker1.updateResults(Arrays.asList(new Item("a")));
+
+        mWorker1.updateResults(Arrays.asList(new Item("b")));
+
+        verify(mContentResolver, times(1)).notifyChange(URI_1, null);
+        assertThat(mWorker1.getResults()).containsExactly(new Item("a"));
+    }
+
+    @Test
+    @Config(shadows = ShadowSliceBackgroundWorker.class)
+    public void updateResults_exactComparison_sameHashButNotEqual_notified() {
+        final TestWorker worker = new TestWorker(mContext, URI_1) {
+            @Override
+            protected boolean areListsTheSame(List<Item> a, List<Item> b) {
+                return a.equals(b);
+            }
+        };
+        worker.updateResults(Arrays.asList(new Item("a")));
+
+        worker.updateResults(Arrays.asList(new Item("b")));
+
+        verify(mContentResolver, times(2)).notifyChange(URI_1, null);
+        assertThat(worker.getResults()).containsExactly(new Item("b"));
+    }
+
+    @Test
+    public void cancelSliceUpdate_shouldDropUpdateStats() {
+        mHandler.updateSlice(mWorker1);
+        ShadowLooper.idleMainLooper(FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+
+        mHandler.cancelSliceUpdate(mWorker1);
+
+        final StringWriter stringWriter = new StringWriter();
+        mHandler.dump(new PrintWriter(stringWriter));
+        assertThat(stringWriter.toString()).doesNotContain(URI_1.toString());
+    }
+
+    @Test
+    @Config(shadows = ShadowSliceBackgroundWorker.class)
+    public void updateResults_equalResults_notNotifiedAgain() {
+        mWorker1.updateResults(Arrays.asList(new Item("a")));
+
+        mWorker1.updateResults(Arrays.asList(new Item("a")));
+
+        verify(mContentResolver, times(1)).notifyChange(URI_1, null);
+    }
+
+    private static class TestWorker extends SliceBackgroundWorker<Item> {
+
+        TestWorker(Context context, Uri uri) {
+            super(context, uri);
+        }
+
+        @Override
+        protected void onSlicePinned() {
+        }
+
+        @Override
+        protected void onSliceUnpinned() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /** An item whose hash always collides with the hash of other items. */
+    private static class Item {
+        private final String mValue;
+
+        Item(String value) {
+            mValue = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Item && ((Item) o).mValue.equals(mValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+}
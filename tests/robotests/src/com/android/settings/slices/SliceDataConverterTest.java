@@ -19,6 +19,8 @@ package com.android.settings.slices;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -37,6 +39,7 @@ import com.android.settings.search.SearchFeatureProvider;
 import com.android.settings.search.SearchFeatureProviderImpl;
 import com.android.settings.testutils.FakeFeatureFactory;
 import com.android.settings.testutils.FakeIndexProvider;
+import com.android.settingslib.search.Indexable.SearchIndexProvider;
 import com.android.settingslib.search.SearchIndexableData;
 
 import org.junit.After;
@@ -47,8 +50,11 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 @RunWith(RobolectricTestRunner.class)
 public class SliceDataConverterTest {
@@ -114,6 +120,46 @@ public class SliceDataConverterTest {
         }
     }
 
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void getSliceData_shouldRecordProviderTimings() {
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues().clear();
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .add(new SearchIndexableData(FakeIndexProvider.class,
+                        FakeIndexProvider.SEARCH_INDEX_DATA_PROVIDER));
+        doReturn(getFakeService()).when(mSliceDataConverter).getAccessibilityServiceInfoList();
+
+        mSliceDataConverter.getSliceData();
+
+        final StringWriter stringWriter = new StringWriter();
+        SliceDataConverter.dumpProviderTimings(new PrintWriter(stringWriter));
+        assertThat(stringWriter.toString()).contains(FAKE_FRAGMENT_CLASSNAME);
+    }
+
+    @Test
+    public void getSliceData_interrupted_returnsNull() {
+        final CountDownLatch neverReleased = new CountDownLatch(1);
+        final SearchIndexProvider blockingProvider = mock(SearchIndexProvider.class);
+        doAnswer(invocation -> {
+            try {
+                neverReleased.await();
+            } catch (InterruptedException e) {
+                // Released when the converter shuts its executor down.
+            }
+            return null;
+        }).when(blockingProvider).getXmlResourcesToIndex(any(), anyBoolean());
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues().clear();
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .add(new SearchIndexableData(FakeIndexProvider.class, blockingProvider));
+
+        Thread.currentThread().interrupt();
+        final List<SliceData> sliceDataList = mSliceDataConverter.getSliceData();
+
+        // Clears the interrupt so it doesn't leak into other tests.
+        assertThat(Thread.interrupted()).isTrue();
+        assertThat(sliceDataList).isNull();
+    }
+
     private void assertFakeSlice(SliceData fakeSlice) {
         assertThat(fakeSlice.getKey()).isEqualTo(FAKE_KEY);
         assertThat(fakeSlice.getTitle()).isEqualTo(FAKE_TITLE);
@@ -27,6 +27,7 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 
+import com.android.settings.slices.SlicesDatabaseHelper.HashColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.testutils.DatabaseTestUtils;
 
@@ -205,10 +206,121 @@ public class SlicesIndexerTest {
         }
     }
 
+    @Test
+    public void computeHash_sameData_shouldMatch() {
+        assertThat(SlicesIndexer.computeHash(getMockIndexableData(false)))
+                .isEqualTo(SlicesIndexer.computeHash(getMockIndexableData(false)));
+    }
+
+    @Test
+    public void computeHash_changedData_shouldDiffer() {
+        assertThat(SlicesIndexer.computeHash(getMockIndexableData(false)))
+                .isNotEqualTo(SlicesIndexer.computeHash(getMockIndexableData(true)));
+    }
+
+    @Test
+    public void indexSliceData_unchangedFragment_shouldSkipFragment() {
+        doReturn(getFragmentData(FRAGMENT_NAME, TITLES)).when(mManager).getSliceData();
+        mManager.run();
+        insertSpecialCase("stray_key", "stray_title", FRAGMENT_NAME);
+        SlicesDatabaseHelper.getInstance(mContext).clearIndexedState();
+
+        mManager.run();
+
+        // The fragment was not rewritten, so the row added behind the indexer's back survives.
+        assertThat(getIndexedKeys(FRAGMENT_NAME)).containsExactly(
+                KEYS[0], KEYS[1], KEYS[2], "stray_key");
+    }
+
+    @Test
+    public void indexSliceData_changedFragment_shouldReplaceRows() {
+        final String otherFragment = "other fragment";
+        final List<SliceData> sliceData = getFragmentData(FRAGMENT_NAME, TITLES);
+        sliceData.addAll(getFragmentData(otherFragment, TITLES));
+        doReturn(sliceData).when(mManager).getSliceData();
+        mManager.run();
+        final long otherHash = getIndexedHash(otherFragment);
+
+        final String[] newTitles = new String[]{"new1", "new2", "new3"};
+        final List<SliceData> newSliceData = getFragmentData(FRAGMENT_NAME, newTitles);
+        newSliceData.addAll(getFragmentData(otherFragment, TITLES));
+        doReturn(newSliceData).when(mManager).getSliceData();
+        SlicesDatabaseHelper.getInstance(mContext).clearIndexedState();
+        mManager.run();
+
+        assertThat(getIndexedTitles(FRAGMENT_NAME)).containsExactly(
+                newTitles[0], newTitles[1], newTitles[2]);
+        assertThat(getIndexedHash(FRAGMENT_NAME))
+                .isEqualTo(SlicesIndexer.computeHash(getFragmentData(FRAGMENT_NAME, newTitles)));
+        assertThat(getIndexedTitles(otherFragment)).containsExactly(
+                TITLES[0], TITLES[1], TITLES[2]);
+        assertThat(getIndexedHash(otherFragment)).isEqualTo(otherHash);
+    }
+
+    @Test
+    public void indexSliceData_removedFragment_shouldDeleteRowsAndHash() {
+        final String otherFragment = "other fragment";
+        final List<SliceData> sliceData = getFragmentData(FRAGMENT_NAME, TITLES);
+        sliceData.addAll(getFragmentData(otherFragment, TITLES));
+        doReturn(sliceData).when(mManager).getSliceData();
+        mManager.run();
+
+        doReturn(getFragmentData(FRAGMENT_NAME, TITLES)).when(mManager).getSliceData();
+        SlicesDatabaseHelper.getInstance(mContext).clearIndexedState();
+        mManager.run();
+
+        assertThat(getIndexedKeys(otherFragment)).isEmpty();
+        assertThat(getIndexedHashes()).containsExactly(FRAGMENT_NAME);
+        assertThat(getIndexedKeys(FRAGMENT_NAME)).containsExactly(KEYS[0], KEYS[1], KEYS[2]);
+    }
+
+    @Test
+    public void indexSliceData_interrupted_shouldKeepPreviousIndex() {
+        final String otherFragment = "other fragment";
+        final List<SliceData> sliceData = getFragmentData(FRAGMENT_NAME, TITLES);
+        sliceData.addAll(getFragmentData(otherFragment, TITLES));
+        doReturn(sliceData).when(mManager).getSliceData();
+        mManager.run();
+
+        doReturn(null).when(mManager).getSliceData();
+        SlicesDatabaseHelper.getInstance(mContext).clearIndexedState();
+        mManager.run();
+
+        assertThat(getIndexedKeys(FRAGMENT_NAME)).containsExactly(KEYS[0], KEYS[1], KEYS[2]);
+        assertThat(getIndexedKeys(otherFragment)).containsExactly(KEYS[0], KEYS[1], KEYS[2]);
+        assertThat(getIndexedHashes()).containsExactly(FRAGMENT_NAME, otherFragment);
+        assertThat(SlicesDatabaseHelper.getInstance(mContext).isSliceDataIndexed()).isFalse();
+    }
+
+    @Test
+    public void onUpgrade_fromVersion9_shouldForceFullReindex() {
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        doReturn(getFragmentData(FRAGMENT_NAME, TITLES)).when(mManager).getSliceData();
+        mManager.run();
+
+        helper.onUpgrade(helper.getWritableDatabase(), 9 /* oldVersion */,
+                10 /* newVersion */);
+
+        assertThat(helper.isSliceDataIndexed()).isFalse();
+        assertThat(getIndexedHashes()).isEmpty();
+
+        insertSpecialCase("stray_key", "stray_title", FRAGMENT_NAME);
+        mManager.run();
+
+        // Without stored hashes every fragment is rewritten, dropping the stray row.
+        assertThat(getIndexedKeys(FRAGMENT_NAME)).containsExactly(KEYS[0], KEYS[1], KEYS[2]);
+        assertThat(getIndexedHashes()).containsExactly(FRAGMENT_NAME);
+    }
+
     private void insertSpecialCase(String key, String title) {
+        insertSpecialCase(key, title, null /* fragment */);
+    }
+
+    private void insertSpecialCase(String key, String title, String fragment) {
         final ContentValues values = new ContentValues();
         values.put(IndexColumns.KEY, key);
         values.put(IndexColumns.TITLE, title);
+        values.put(IndexColumns.FRAGMENT, fragment);
         final SQLiteDatabase db = SlicesDatabaseHelper.getInstance(mContext).getWritableDatabase();
         db.beginTransaction();
         try {
@@ -217,7 +329,73 @@ public class SlicesIndexerTest {
         } finally {
             db.endTransaction();
         }
-        db.close();
+    }
+
+    private List<String> getIndexedKeys(String fragment) {
+        return queryIndex(IndexColumns.KEY, fragment);
+    }
+
+    private List<String> getIndexedTitles(String fragment) {
+        return queryIndex(IndexColumns.TITLE, fragment);
+    }
+
+    private List<String> queryIndex(String column, String fragment) {
+        final List<String> values = new ArrayList<>();
+        final SQLiteDatabase db = SlicesDatabaseHelper.getInstance(mContext).getReadableDatabase();
+        try (Cursor cursor = db.query(SlicesDatabaseHelper.Tables.TABLE_SLICES_INDEX,
+                new String[]{column}, IndexColumns.FRAGMENT + " = ?", new String[]{fragment},
+                null /* groupBy */, null /* having */, null /* orderBy */)) {
+            while (cursor.moveToNext()) {
+                values.add(cursor.getString(0));
+            }
+        }
+        return values;
+    }
+
+    private List<String> getIndexedHashes() {
+        final List<String> fragments = new ArrayList<>();
+        final SQLiteDatabase db = SlicesDatabaseHelper.getInstance(mContext).getReadableDatabase();
+        try (Cursor cursor = db.query(SlicesDatabaseHelper.Tables.TABLE_SLICES_INDEX_HASHES,
+                new String[]{HashColumns.FRAGMENT}, null /* selection */,
+                null /* selectionArgs */, null /* groupBy */, null /* having */,
+                null /* orderBy */)) {
+            while (cursor.moveToNext()) {
+                fragments.add(cursor.getString(0));
+            }
+        }
+        return fragments;
+    }
+
+    private long getIndexedHash(String fragment) {
+        final SQLiteDatabase db = SlicesDatabaseHelper.getInstance(mContext).getReadableDatabase();
+        try (Cursor cursor = db.query(SlicesDatabaseHelper.Tables.TABLE_SLICES_INDEX_HASHES,
+                new String[]{HashColumns.HASH}, HashColumns.FRAGMENT + " = ?",
+                new String[]{fragment}, null /* groupBy */, null /* having */,
+                null /* orderBy */)) {
+            assertThat(cursor.moveToFirst()).isTrue();
+            return cursor.getLong(0);
+        }
+    }
+
+    private List<SliceData> getFragmentData(String fragment, String[] titles) {
+        final List<SliceData> sliceData = new ArrayList<>();
+        for (int i = 0; i < KEYS.length; i++) {
+            sliceData.add(new SliceData.Builder()
+                    .setKey(KEYS[i])
+                    .setTitle(titles[i])
+                    .setSummary(SUMMARY)
+                    .setScreenTitle(SCREEN_TITLE)
+                    .setKeywords(KEYWORDS)
+                    .setFragmentName(fragment)
+                    .setIcon(ICON)
+                    .setUri(URI)
+                    .setPreferenceControllerClassName(PREF_CONTROLLER)
+                    .setSliceType(SLICE_TYPE)
+                    .setUnavailableSliceSubtitle(UNAVAILABLE_SLICE_SUBTITLE)
+                    .setHighlightMenuRes(HIGHLIGHT_MENU_KEY)
+                    .build());
+        }
+        return sliceData;
     }
 
     private List<SliceData> getMockIndexableData(boolean isPublicSlice) {
@@ -18,6 +18,7 @@ package com.android.settings.wifi;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -43,6 +44,7 @@ import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(RobolectricTestRunner.class)
 public class WifiEntryPreferenceTest {
@@ -264,4 +266,75 @@ public class WifiEntryPreferenceTest {
 
         verify(mMockDrawable4).setTintList(any());
     }
+
+    @Test
+    public void setWifiEntry_newWifiEntry_shouldListenAndUpdateTitleAndSummary() {
+        final WifiEntryPreference pref =
+                new WifiEntryPreference(mContext, mMockWifiEntry, mMockIconInjector);
+        final WifiEntry newWifiEntry = mock(WifiEntry.class);
+        when(newWifiEntry.getTitle()).thenReturn("newTitle");
+        when(newWifiEntry.getSummary(false /* concise */)).thenReturn("newSummary");
+
+        pref.setWifiEntry(newWifiEntry);
+
+        assertThat(pref.getWifiEntry()).isEqualTo(newWifiEntry);
+        assertThat(pref.getTitle()).isEqualTo("newTitle");
+        assertThat(pref.getSummary()).isEqualTo("newSummary");
+        verify(mMockWifiEntry).setListener(null);
+        verify(newWifiEntry).setListener(pref);
+    }
+
+    @Test
+    public void setWifiEntry_sameBoundState_shouldNotNotifyChanged() {
+        final AtomicInteger notifyCount = new AtomicInteger();
+        final WifiEntryPreference pref = createCountingPreference(notifyCount);
+        final WifiEntry newWifiEntry = mock(WifiEntry.class);
+        when(newWifiEntry.getTitle()).thenReturn(MOCK_TITLE);
+        when(newWifiEntry.getSummary(false /* concise */)).thenReturn(MOCK_SUMMARY);
+
+        pref.setWifiEntry(newWifiEntry);
+
+        assertThat(notifyCount.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void setWifiEntry_helpButtonChanged_shouldNotifyChanged() {
+        final AtomicInteger notifyCount = new AtomicInteger();
+        final WifiEntryPreference pref = createCountingPreference(notifyCount);
+        final WifiEntry newWifiEntry = mock(WifiEntry.class);
+        when(newWifiEntry.getTitle()).thenReturn(MOCK_TITLE);
+        when(newWifiEntry.getSummary(false /* concise */)).thenReturn(MOCK_SUMMARY);
+        when(newWifiEntry.getHelpUriString()).thenReturn(FAKE_URI_STRING);
+
+        pref.setWifiEntry(newWifiEntry);
+
+        assertThat(notifyCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void setWifiEntry_securityChanged_shouldNotifyChanged() {
+        final AtomicInteger notifyCount = new AtomicInteger();
+        final WifiEntryPreference pref = createCountingPreference(notifyCount);
+        final WifiEntry newWifiEntry = mock(WifiEntry.class);
+        when(newWifiEntry.getTitle()).thenReturn(MOCK_TITLE);
+        when(newWifiEntry.getSummary(false /* concise */)).thenReturn(MOCK_SUMMARY);
+        when(newWifiEntry.getSecurity()).thenReturn(WifiEntry.SECURITY_PSK);
+
+        pref.setWifiEntry(newWifiEntry);
+
+        assertThat(notifyCount.get()).isEqualTo(1);
+    }
+
+    private WifiEntryPreference createCountingPreference(AtomicInteger notifyCount) {
+        final WifiEntryPreference pref =
+                new WifiEntryPreference(mContext, mMockWifiEntry, mMockIconInjector) {
+                    @Override
+                    protected void notifyChanged() {
+                        notifyCount.incrementAndGet();
+                        super.notifyChanged();
+                    }
+                };
+        notifyCount.set(0);
+        return pref;
+    }
 }
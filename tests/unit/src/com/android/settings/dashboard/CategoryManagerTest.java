@@ -22,10 +22,14 @@ import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_KEYH
 
 import static com.google.common.truth.Truth.assertThat;
 
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
 import android.content.pm.ProviderInfo;
+import android.content.pm.ResolveInfo;
 import android.os.Bundle;
 import android.util.Pair;
 
@@ -42,8 +46,12 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RunWith(AndroidJUnit4.class)
 public class CategoryManagerTest {
@@ -315,6 +323,60 @@ public class CategoryManagerTest {
         assertThat(category.getTilesCount()).isEqualTo(1);
     }
 
+    @Test
+    public void updateCategoryFromDenylist_shouldNotModifyPreviousSnapshot() {
+        final String testPackage = mContext.getPackageName();
+        final DashboardCategory category = new DashboardCategory(CATEGORY_HOMEPAGE);
+        final Tile tile1 = createActivityTile(category.key, testPackage, "class1", 100);
+        final Tile tile2 = createActivityTile(category.key, testPackage, "class2", 50);
+        category.addTile(tile1);
+        category.addTile(tile2);
+        mCategoryManager.setCategories(Collections.singletonList(category));
+        final List<DashboardCategory> categories = mCategoryManager.getCategories(mContext);
+        final ComponentName denylisted = tile1.getIntent().getComponent();
+
+        mCategoryManager.updateCategoryFromDenylist(Collections.singleton(denylisted));
+
+        assertThat(categories.get(0).getTilesCount()).isEqualTo(2);
+        assertThat(mCategoryManager.getTilesByCategory(mContext, CATEGORY_HOMEPAGE)
+                .getTilesCount()).isEqualTo(1);
+        assertThat(mCategoryManager.getTileByComponentMap()).doesNotContainKey(denylisted);
+        mCategoryManager.reloadAllCategories(mContext);
+    }
+
+    @Test
+    public void tileActions_shouldResolveEveryLoadedTile() {
+        final PackageManager pm = mContext.getPackageManager();
+        final Set<ComponentName> declared = new HashSet<>();
+        for (String action : CategoryManager.TILE_ACTIONS) {
+            final Intent intent = new Intent(action);
+            for (ResolveInfo info : pm.queryIntentActivities(intent,
+                    PackageManager.GET_META_DATA)) {
+                declared.add(new ComponentName(info.activityInfo.packageName,
+                        info.activityInfo.name));
+            }
+            for (ResolveInfo info : pm.queryIntentContentProviders(intent,
+                    PackageManager.GET_META_DATA)) {
+                declared.add(new ComponentName(info.providerInfo.packageName,
+                        info.providerInfo.name));
+            }
+        }
+
+        mCategoryManager.reloadAllCategories(mContext);
+
+        assertThat(declared).containsAtLeastElementsIn(
+                mCategoryManager.getTileByComponentMap().keySet());
+    }
+
+    @Test
+    public void reloadCategoriesForPackage_packageWithoutTiles_shouldSkipReload() {
+        final List<DashboardCategory> categories = mCategoryManager.getCategories(mContext);
+
+        assertThat(mCategoryManager.reloadCategoriesForPackage(mContext, "com.no.such.package"))
+                .isFalse();
+        assertThat(mCategoryManager.getCategories(mContext)).isSameInstanceAs(categories);
+    }
+
     private Tile createActivityTile(String categoryKey, String packageName, String className,
             int order) {
         final ActivityInfo activityInfo = new ActivityInfo();
@@ -24,11 +24,15 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.UserInfo;
@@ -53,6 +57,11 @@ import org.mockito.MockitoAnnotations;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(AndroidJUnit4.class)
 @SmallTest
@@ -63,6 +72,7 @@ public class StorageAsyncLoaderTest {
     private static final String PACKAGE_NAME_2 = "com.blah.test2";
     private static final String PACKAGE_NAME_3 = "com.blah.test3";
     private static final long DEFAULT_QUOTA = DataUnit.MEBIBYTES.toBytes(64);
+    private static final long TIMEOUT_SECONDS = 5;
 
     @Mock
     private StorageStatsSource mSource;
@@ -71,7 +81,7 @@ public class StorageAsyncLoaderTest {
     private PackageManager mPackageManager;
     @Mock
     private UserManager mUserManager;
-    private List<ApplicationInfo> mInfo = new ArrayList<>();
+    private List<PackageInfo> mInfo = new ArrayList<>();
     private List<UserInfo> mUsers;
 
     private StorageAsyncLoader mLoader;
@@ -83,8 +93,11 @@ public class StorageAsyncLoaderTest {
         mContext = spy(ApplicationProvider.getApplicationContext());
         mInfo = new ArrayList<>();
         mLoader = new StorageAsyncLoader(mContext, mUserManager, "id", mSource, mPackageManager);
-        when(mPackageManager.getInstalledApplicationsAsUser(eq(PRIMARY_USER_ID), anyInt()))
+        when(mPackageManager.getInstalledPackagesAsUser(eq(PRIMARY_USER_ID), anyInt()))
                 .thenReturn(mInfo);
+        // Stats of the same packages differ among tests.
+        clearStatsCache(PRIMARY_USER_ID);
+        clearStatsCache(SECONDARY_USER_ID);
         UserInfo info = new UserInfo();
         mUsers = new ArrayList<>();
         mUsers.add(info);
@@ -159,6 +172,117 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(SECONDARY_USER_ID).externalStats.totalBytes).isEqualTo(10L);
     }
 
+    @Test
+    public void testSharedCodeSizeIsDuplicateForLaterUsers() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        UserInfo info = new UserInfo();
+        info.id = SECONDARY_USER_ID;
+        mUsers.add(0, info);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.size()).isEqualTo(2);
+        assertThat(result.get(PRIMARY_USER_ID).duplicateCodeSize).isEqualTo(0L);
+        assertThat(result.get(SECONDARY_USER_ID).duplicateCodeSize).isEqualTo(1L);
+    }
+
+    @Test
+    public void testStatsAreLoadedFromCache() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        mLoader.loadInBackground();
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        verify(mSource, times(1))
+                .getStatsForPackage(anyString(), eq(PACKAGE_NAME_1), any(UserHandle.class));
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(11L);
+    }
+
+    @Test
+    public void testStatsOfOtherUsersAreNotCached() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        UserInfo info = new UserInfo();
+        info.id = SECONDARY_USER_ID;
+        mUsers.add(info);
+        mLoader.loadInBackground();
+
+        mLoader.loadInBackground();
+
+        // Package broadcasts of other users never reach this process to drop their stats.
+        verify(mSource, times(1)).getStatsForPackage(anyString(), eq(PACKAGE_NAME_1),
+                eq(UserHandle.of(PRIMARY_USER_ID)));
+        verify(mSource, times(2)).getStatsForPackage(anyString(), eq(PACKAGE_NAME_1),
+                eq(UserHandle.of(SECONDARY_USER_ID)));
+    }
+
+    @Test
+    public void testPartialResultContainsOnlyFinishedUsers() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        UserInfo info = new UserInfo();
+        info.id = SECONDARY_USER_ID;
+        mUsers.add(info);
+        final CountDownLatch release = new CountDownLatch(1);
+        final StorageStatsSource.AppStorageStats stats =
+                mock(StorageStatsSource.AppStorageStats.class);
+        when(mSource.getStatsForPackage(anyString(), eq(PACKAGE_NAME_1),
+                eq(UserHandle.of(SECONDARY_USER_ID)))).thenAnswer(invocation -> {
+                    release.await();
+                    return stats;
+                });
+        final BlockingQueue<SparseArray<StorageAsyncLoader.StorageResult>> partialResults =
+                new LinkedBlockingQueue<>();
+        startLoader();
+        mLoader.setPartialResultListener(partialResults::add);
+        final FutureTask<SparseArray<StorageAsyncLoader.StorageResult>> load =
+                new FutureTask<>(mLoader::loadInBackground);
+        new Thread(load).start();
+
+        final SparseArray<StorageAsyncLoader.StorageResult> partialResult =
+                partialResults.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        release.countDown();
+        final SparseArray<StorageAsyncLoader.StorageResult> result =
+                load.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertThat(partialResult).isNotNull();
+        assertThat(partialResult.size()).isEqualTo(1);
+        assertThat(partialResult.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(11L);
+        assertThat(result.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCancelledLoadSkipsRemainingPackages() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        addPackage(PACKAGE_NAME_2, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        addPackage(PACKAGE_NAME_3, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final StorageStatsSource.AppStorageStats stats =
+                mock(StorageStatsSource.AppStorageStats.class);
+        when(mSource.getStatsForPackage(anyString(), eq(PACKAGE_NAME_1), any(UserHandle.class)))
+                .thenAnswer(invocation -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return stats;
+                });
+        final FutureTask<SparseArray<StorageAsyncLoader.StorageResult>> load =
+                new FutureTask<>(mLoader::loadInBackground);
+        new Thread(load).start();
+
+        assertThat(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        mLoader.cancelLoadInBackground();
+        release.countDown();
+
+        assertThat(load.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isNull();
+        verify(mSource, never())
+                .getStatsForPackage(anyString(), eq(PACKAGE_NAME_2), any(UserHandle.class));
+        verify(mSource, never())
+                .getStatsForPackage(anyString(), eq(PACKAGE_NAME_3), any(UserHandle.class));
+    }
+
     @Test
     public void testUpdatedSystemAppCodeSizeIsCounted() throws Exception {
         ApplicationInfo systemApp =
@@ -176,7 +300,7 @@ public class StorageAsyncLoaderTest {
         ApplicationInfo info = new ApplicationInfo();
         info.packageName = PACKAGE_NAME_1;
         info.category = ApplicationInfo.CATEGORY_UNDEFINED;
-        mInfo.add(info);
+        mInfo.add(createPackageInfo(info));
         when(mSource.getStatsForPackage(anyString(), anyString(), any(UserHandle.class)))
                 .thenThrow(new NameNotFoundException());
 
@@ -221,8 +345,32 @@ public class StorageAsyncLoaderTest {
         ApplicationInfo info = new ApplicationInfo();
         info.packageName = packageName;
         info.category = category;
-        mInfo.add(info);
+        mInfo.add(createPackageInfo(info));
         return info;
     }
 
+    private void startLoader() {
+        // Partial results are only delivered to a started loader.
+        mLoader = new StorageAsyncLoader(mContext, mUserManager, "id", mSource, mPackageManager) {
+            @Override
+            protected void onStartLoading() {
+                // The test runs the load itself.
+            }
+        };
+        mLoader.startLoading();
+    }
+
+    private static PackageInfo createPackageInfo(ApplicationInfo info) {
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = info.packageName;
+        packageInfo.applicationInfo = info;
+        return packageInfo;
+    }
+
+    private void clearStatsCache(int userId) {
+        PackageStorageStatsCache cache = new PackageStorageStatsCache(mContext, userId);
+        cache.clear();
+        cache.apply();
+    }
+
 }
@@ -18,7 +18,9 @@ package com.android.settings.network;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,11 +41,20 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 @RunWith(AndroidJUnit4.class)
 public class CarrierConfigCacheTest {
 
     static final int ONCE_SUB_ID = 11;
     static final int TWICE_SUB_ID = 12;
+    static final int BLOCKED_SUB_ID = 13;
+    static final int OTHER_SUB_ID = 14;
+    static final int SHARED_SUB_ID = 15;
+    static final int PREFETCH_SUB_ID = 16;
+    static final long TIMEOUT_SECONDS = 5;
 
     @Rule
     public final MockitoRule mMockitoRule = MockitoJUnit.rule();
@@ -98,4 +109,60 @@ public class CarrierConfigCacheTest {
 
         verify(mCarrierConfigManager, times(1)).getConfigForSubId(TWICE_SUB_ID);
     }
+
+    @Test
+    public void getConfigForSubId_otherSubIdBeingFetched_notBlocked() throws Exception {
+        final CountDownLatch releaseFetch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            releaseFetch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return mCarrierConfig;
+        }).when(mCarrierConfigManager).getConfigForSubId(BLOCKED_SUB_ID);
+        final PersistableBundle otherConfig = new PersistableBundle();
+        when(mCarrierConfigManager.getConfigForSubId(OTHER_SUB_ID)).thenReturn(otherConfig);
+
+        final CompletableFuture<PersistableBundle> blocked = CompletableFuture.supplyAsync(
+                () -> mCarrierConfigCache.getConfigForSubId(BLOCKED_SUB_ID));
+        verify(mCarrierConfigManager, timeout(TIMEOUT_SECONDS * 1000))
+                .getConfigForSubId(BLOCKED_SUB_ID);
+
+        assertThat(mCarrierConfigCache.getConfigForSubId(OTHER_SUB_ID)).isEqualTo(otherConfig);
+        assertThat(blocked.isDone()).isFalse();
+
+        releaseFetch.countDown();
+        assertThat(blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(mCarrierConfig);
+    }
+
+    @Test
+    public void getConfigForSubId_sameSubIdBeingFetched_shareFetch() throws Exception {
+        final CountDownLatch releaseFetch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            releaseFetch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return mCarrierConfig;
+        }).when(mCarrierConfigManager).getConfigForSubId(SHARED_SUB_ID);
+
+        final CompletableFuture<PersistableBundle> first = CompletableFuture.supplyAsync(
+                () -> mCarrierConfigCache.getConfigForSubId(SHARED_SUB_ID));
+        verify(mCarrierConfigManager, timeout(TIMEOUT_SECONDS * 1000))
+                .getConfigForSubId(SHARED_SUB_ID);
+        final CompletableFuture<PersistableBundle> second = CompletableFuture.supplyAsync(
+                () -> mCarrierConfigCache.getConfigForSubId(SHARED_SUB_ID));
+
+        releaseFetch.countDown();
+        assertThat(first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(mCarrierConfig);
+        assertThat(second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(mCarrierConfig);
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(SHARED_SUB_ID);
+    }
+
+    @Test
+    public void prefetchConfigs_thenGet_onlyGetOnceFromManager() {
+        when(mCarrierConfigManager.getConfigForSubId(PREFETCH_SUB_ID)).thenReturn(mCarrierConfig);
+
+        mCarrierConfigCache.prefetchConfigs(new int[] {PREFETCH_SUB_ID});
+        verify(mCarrierConfigManager, timeout(TIMEOUT_SECONDS * 1000))
+                .getConfigForSubId(PREFETCH_SUB_ID);
+
+        assertThat(mCarrierConfigCache.getConfigForSubId(PREFETCH_SUB_ID))
+                .isEqualTo(mCarrierConfig);
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(PREFETCH_SUB_ID);
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.telephony;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.settingslib.core.AbstractPreferenceController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(AndroidJUnit4.class)
+public class TelephonyStatusControlSessionTest {
+    private static final int SUB_ID = 1;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void close_evaluated_statusNotControlledAfterClose() {
+        final TestPreferenceController controller =
+                new TestPreferenceController(mContext, "prefKey", false /* fail */);
+        final TelephonyStatusControlSession session =
+                new TelephonyStatusControlSession.Builder(asList(controller)).build();
+        session.close();
+        assertThat(controller.mEvaluationCount.get()).isEqualTo(1);
+
+        controller.getAvailabilityStatus();
+        assertThat(controller.mEvaluationCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void close_evaluationFailed_statusNotControlled() {
+        final TestPreferenceController controller =
+                new TestPreferenceController(mContext, "prefKey", true /* fail */);
+        final TelephonyStatusControlSession session =
+                new TelephonyStatusControlSession.Builder(asList(controller)).build();
+        session.close();
+
+        controller.mFail = false;
+        assertThat(controller.getAvailabilityStatus())
+                .isEqualTo(TelephonyBasePreferenceController.AVAILABLE);
+        controller.getAvailabilityStatus();
+        assertThat(controller.mEvaluationCount.get()).isEqualTo(3);
+    }
+
+    private static List<AbstractPreferenceController> asList(
+            AbstractPreferenceController controller) {
+        return Arrays.asList(controller);
+    }
+
+    /**
+     * Test preference controller for {@link TelephonyStatusControlSession}
+     */
+    public static class TestPreferenceController extends TelephonyBasePreferenceController {
+        final AtomicInteger mEvaluationCount = new AtomicInteger();
+        volatile boolean mFail;
+
+        public TestPreferenceController(Context context, String prefKey, boolean fail) {
+            super(context, prefKey);
+            mSubId = SUB_ID;
+            mFail = fail;
+        }
+
+        @Override
+        public int getAvailabilityStatus(int subId) {
+            mEvaluationCount.incrementAndGet();
+            if (mFail) {
+                throw new IllegalStateException("Failed to evaluate");
+            }
+            return AVAILABLE;
+        }
+    }
+}